@@ -0,0 +1,236 @@
+package com.text.recognition;
+
+import java.util.Arrays;
+
+/**
+ * Relates the analysis frame to the preview view it is shown in: which part of the frame is
+ * actually visible, and where a point of the recognized crop lands on screen.
+ *
+ * <p>{@code PreviewView} shows the camera stream scaled to fill the view and centered, cutting off
+ * whatever does not fit. With preview and analysis bound at the same aspect ratio they see the same
+ * field of view, so the visible part of the analysis frame follows from the frame and view sizes
+ * alone. {@link #update} intersects that part with an optional region of interest given in view
+ * coordinates, and turns the result into a crop rectangle of the frame buffer as the sensor
+ * delivers it, before the rotation recognition applies. The crop is aligned to even pixels so that
+ * it keeps whole chroma samples of a YUV 4:2:0 frame.
+ *
+ * <p>Recognition reports boxes in the upright coordinates of the cropped image. {@link
+ * #getImageToView()} maps those to view coordinates exactly, and {@link #getFrameToView()} maps
+ * coordinates of the whole frame buffer, before rotation. Both are only rebuilt when one of the
+ * inputs changes, so for a steady stream of frames {@link #update} costs a few comparisons.
+ *
+ * <p>Instances are mutable and not thread safe; the transforms they hand out are immutable.
+ */
+public final class AnalysisViewport {
+
+    private int cropLeft;
+    private int cropTop;
+    private int cropWidth;
+    private int cropHeight;
+    private float scale = 1f;
+    private ViewTransform imageToView = ViewTransform.IDENTITY;
+    private ViewTransform frameToView = ViewTransform.IDENTITY;
+
+    /** Inputs of the last update, so that unchanged frames skip the computation. */
+    private int lastImageWidth = -1;
+    private int lastImageHeight;
+    private int lastRotationDegrees;
+    private int lastViewWidth;
+    private int lastViewHeight;
+    private float[] lastRoi;
+    private boolean lastMirrored;
+
+    /**
+     * Recomputes the crop and mapping.
+     *
+     * @param imageWidth width of the frame buffer, before rotation
+     * @param imageHeight height of the frame buffer, before rotation
+     * @param rotationDegrees clockwise rotation that makes the frame upright: 0, 90, 180 or 270
+     * @param viewWidth width of the preview view, or 0 if it is not laid out yet
+     * @param viewHeight height of the preview view, or 0 if it is not laid out yet
+     * @param roi region of interest in view coordinates as {@code left, top, right, bottom}, or
+     *     null to recognize everything visible
+     * @return whether the crop or transforms changed
+     */
+    public boolean update(int imageWidth, int imageHeight, int rotationDegrees,
+                          int viewWidth, int viewHeight, float[] roi) {
+        return update(imageWidth, imageHeight, rotationDegrees, viewWidth, viewHeight, roi, false);
+    }
+
+    /**
+     * Same as {@link #update(int, int, int, int, int, float[])}, mirroring the view horizontally
+     * when {@code mirrored} is set, as the preview of a front-facing camera is.
+     */
+    public boolean update(int imageWidth, int imageHeight, int rotationDegrees,
+                          int viewWidth, int viewHeight, float[] roi, boolean mirrored) {
+        if (imageWidth == lastImageWidth && imageHeight == lastImageHeight
+                && rotationDegrees == lastRotationDegrees && viewWidth == lastViewWidth
+                && viewHeight == lastViewHeight && Arrays.equals(roi, lastRoi)
+                && mirrored == lastMirrored) {
+            return false;
+        }
+        lastImageWidth = imageWidth;
+        lastImageHeight = imageHeight;
+        lastRotationDegrees = rotationDegrees;
+        lastViewWidth = viewWidth;
+        lastViewHeight = viewHeight;
+        lastRoi = roi == null ? null : roi.clone();
+        lastMirrored = mirrored;
+
+        boolean sideways = rotationDegrees == 90 || rotationDegrees == 270;
+        int uprightWidth = sideways ? imageHeight : imageWidth;
+        int uprightHeight = sideways ? imageWidth : imageHeight;
+
+        // Where the view's origin lies in the upright frame, and view pixels per frame pixel.
+        float viewScale = 1f;
+        float originX = 0;
+        float originY = 0;
+        float visibleLeft = 0;
+        float visibleTop = 0;
+        float visibleRight = uprightWidth;
+        float visibleBottom = uprightHeight;
+        if (viewWidth > 0 && viewHeight > 0) {
+            viewScale = Math.max(viewWidth / (float) uprightWidth, viewHeight / (float) uprightHeight);
+            originX = (uprightWidth - viewWidth / viewScale) / 2;
+            originY = (uprightHeight - viewHeight / viewScale) / 2;
+            visibleLeft = originX;
+            visibleTop = originY;
+            visibleRight = originX + viewWidth / viewScale;
+            visibleBottom = originY + viewHeight / viewScale;
+            if (roi != null) {
+                visibleLeft = Math.max(visibleLeft, originX + roi[0] / viewScale);
+                visibleTop = Math.max(visibleTop, originY + roi[1] / viewScale);
+                visibleRight = Math.min(visibleRight, originX + roi[2] / viewScale);
+                visibleBottom = Math.min(visibleBottom, originY + roi[3] / viewScale);
+            }
+        }
+
+        // Upright rectangle to buffer rectangle, widened to even pixel boundaries.
+        float left;
+        float top;
+        float right;
+        float bottom;
+        switch (rotationDegrees) {
+            case 90:
+                left = visibleTop;
+                top = uprightWidth - visibleRight;
+                right = visibleBottom;
+                bottom = uprightWidth - visibleLeft;
+                break;
+            case 180:
+                left = uprightWidth - visibleRight;
+                top = uprightHeight - visibleBottom;
+                right = uprightWidth - visibleLeft;
+                bottom = uprightHeight - visibleTop;
+                break;
+            case 270:
+                left = uprightHeight - visibleBottom;
+                top = visibleLeft;
+                right = uprightHeight - visibleTop;
+                bottom = visibleRight;
+                break;
+            default:
+                left = visibleLeft;
+                top = visibleTop;
+                right = visibleRight;
+                bottom = visibleBottom;
+                break;
+        }
+        cropLeft = clamp(floorEven(left), imageWidth);
+        cropTop = clamp(floorEven(top), imageHeight);
+        cropWidth = Math.max(0, clamp(ceilEven(right), imageWidth) - cropLeft);
+        cropHeight = Math.max(0, clamp(ceilEven(bottom), imageHeight) - cropTop);
+
+        // Upright origin of the aligned crop.
+        float cropOriginX;
+        float cropOriginY;
+        switch (rotationDegrees) {
+            case 90:
+                cropOriginX = imageHeight - (cropTop + cropHeight);
+                cropOriginY = cropLeft;
+                break;
+            case 180:
+                cropOriginX = imageWidth - (cropLeft + cropWidth);
+                cropOriginY = imageHeight - (cropTop + cropHeight);
+                break;
+            case 270:
+                cropOriginX = cropTop;
+                cropOriginY = imageWidth - (cropLeft + cropWidth);
+                break;
+            default:
+                cropOriginX = cropLeft;
+                cropOriginY = cropTop;
+                break;
+        }
+        scale = viewScale;
+        imageToView = ViewTransform.scaleTranslate(viewScale,
+                (cropOriginX - originX) * viewScale, (cropOriginY - originY) * viewScale);
+        frameToView = ViewTransform.rotation(rotationDegrees, imageWidth, imageHeight)
+                .then(ViewTransform.scaleTranslate(viewScale, -originX * viewScale, -originY * viewScale));
+        if (mirrored) {
+            imageToView = imageToView.mirrored(viewWidth);
+            frameToView = frameToView.mirrored(viewWidth);
+        }
+        return true;
+    }
+
+    /** Left edge of the crop in the frame buffer, before rotation. */
+    public int getCropLeft() {
+        return cropLeft;
+    }
+
+    public int getCropTop() {
+        return cropTop;
+    }
+
+    public int getCropWidth() {
+        return cropWidth;
+    }
+
+    public int getCropHeight() {
+        return cropHeight;
+    }
+
+    /** Returns whether nothing of the frame is left to recognize, e.g. for an off-screen ROI. */
+    public boolean isEmpty() {
+        return cropWidth == 0 || cropHeight == 0;
+    }
+
+    /** View pixels per pixel of the upright crop. */
+    public float getScale() {
+        return scale;
+    }
+
+    /** Maps coordinates of the upright crop, as recognition reports them, to the view. */
+    public ViewTransform getImageToView() {
+        return imageToView;
+    }
+
+    /** Maps coordinates of the whole frame buffer, before rotation, to the view. */
+    public ViewTransform getFrameToView() {
+        return frameToView;
+    }
+
+    /** Maps an x coordinate of the upright crop to the view. */
+    public float viewX(float x) {
+        return imageToView.mapX(x, 0);
+    }
+
+    /** Maps a y coordinate of the upright crop to the view. */
+    public float viewY(float y) {
+        return imageToView.mapY(0, y);
+    }
+
+    private static int floorEven(float value) {
+        return ((int) Math.floor(value)) & ~1;
+    }
+
+    private static int ceilEven(float value) {
+        int ceiling = (int) Math.ceil(value);
+        return ceiling + (ceiling & 1);
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(value, max));
+    }
+}
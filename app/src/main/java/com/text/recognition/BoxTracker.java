@@ -0,0 +1,238 @@
+package com.text.recognition;
+
+import java.util.Arrays;
+
+/**
+ * Carries highlight boxes forward between recognitions, so that recognition can run a few times a
+ * second while the overlay still follows the camera at display rate.
+ *
+ * <p>Every recognized {@link HighlightResult} is associated with the current tracks greedily by
+ * intersection over union with the boxes the tracks' velocities predict for that frame: the pair
+ * with the highest IoU is linked first, boxes only link to tracks of the same target, and pairs
+ * below {@link #MIN_IOU} never link. A linked track takes the new box and updates its velocity from
+ * the displacement of the box center since its last observation, smoothed exponentially. Unlinked boxes start new tracks at rest, and tracks that have not been
+ * observed for the timeout are dropped. The result is published as an immutable {@link
+ * TrackedHighlights}, which the UI thread extrapolates to the time of each drawn frame.
+ *
+ * <p>Instances are not thread safe; they are meant to be updated from the analysis executor only.
+ */
+public final class BoxTracker {
+
+    public static final long DEFAULT_TIMEOUT_MS = 1000;
+
+    /** Boxes overlapping a track less than this are considered different highlights. */
+    public static final float MIN_IOU = 0.3f;
+
+    /** Boxes are not extrapolated further than this past their last observation. */
+    public static final long MAX_EXTRAPOLATION_MS = 500;
+
+    /** Weight of the newest displacement in the velocity estimate. */
+    private static final float VELOCITY_SMOOTHING = 0.5f;
+
+    private final long timeoutMillis;
+
+    private float[] rects = new float[64];
+    private float[] velocities = new float[32];
+    private long[] observedAt = new long[16];
+    private int[] targetIds = new int[16];
+    private int count;
+
+    /** Scratch space for association: candidate pairs, and which boxes and tracks are linked. */
+    private long[] pairs = new long[64];
+    private boolean[] boxLinked = new boolean[16];
+    private int[] trackForBox = new int[16];
+    private boolean[] trackLinked = new boolean[16];
+    /** Where the tracks are expected in the frame being associated. */
+    private float[] predicted = new float[64];
+
+    public BoxTracker() {
+        this(DEFAULT_TIMEOUT_MS);
+    }
+
+    public BoxTracker(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Updates the tracks with the highlights recognized in a frame captured at {@code nowMillis},
+     * and returns the tracks to draw.
+     */
+    public TrackedHighlights update(HighlightResult observed, long nowMillis) {
+        expire(nowMillis);
+        int boxCount = observed.size();
+        ensureScratch(boxCount);
+        predict(nowMillis);
+        associate(observed, boxCount);
+
+        for (int box = 0; box < boxCount; box++) {
+            int track = trackForBox[box];
+            if (track < 0) {
+                track = addTrack(observed.targetId(box));
+                setBox(track, observed, box);
+                velocities[track * 2] = 0;
+                velocities[track * 2 + 1] = 0;
+            } else {
+                long elapsed = nowMillis - observedAt[track];
+                if (elapsed > 0) {
+                    float dx = centerX(observed, box) - (rects[track * 4] + rects[track * 4 + 2]) / 2;
+                    float dy = centerY(observed, box) - (rects[track * 4 + 1] + rects[track * 4 + 3]) / 2;
+                    velocities[track * 2] += VELOCITY_SMOOTHING * (dx / elapsed - velocities[track * 2]);
+                    velocities[track * 2 + 1] += VELOCITY_SMOOTHING * (dy / elapsed - velocities[track * 2 + 1]);
+                }
+                setBox(track, observed, box);
+            }
+            observedAt[track] = nowMillis;
+        }
+        return publish();
+    }
+
+    /**
+     * Confirms every track in place at {@code nowMillis}, for frames that were not recognized because
+     * the scene did not change. The tracks stop moving and their timeouts restart.
+     */
+    public TrackedHighlights hold(long nowMillis) {
+        for (int i = 0; i < count; i++) {
+            observedAt[i] = nowMillis;
+        }
+        Arrays.fill(velocities, 0, count * 2, 0f);
+        return publish();
+    }
+
+    /** Drops all tracks, for example when the targets change. */
+    public void clear() {
+        count = 0;
+    }
+
+    /** Returns the number of live tracks. */
+    public int trackCount() {
+        return count;
+    }
+
+    private void expire(long nowMillis) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (nowMillis - observedAt[i] > timeoutMillis) {
+                continue;
+            }
+            if (kept != i) {
+                System.arraycopy(rects, i * 4, rects, kept * 4, 4);
+                System.arraycopy(velocities, i * 2, velocities, kept * 2, 2);
+                observedAt[kept] = observedAt[i];
+                targetIds[kept] = targetIds[i];
+            }
+            kept++;
+        }
+        count = kept;
+    }
+
+    private void predict(long nowMillis) {
+        if (predicted.length < count * 4) {
+            predicted = new float[rects.length];
+        }
+        for (int track = 0; track < count; track++) {
+            float elapsed = Math.min(nowMillis - observedAt[track], MAX_EXTRAPOLATION_MS);
+            float dx = velocities[track * 2] * elapsed;
+            float dy = velocities[track * 2 + 1] * elapsed;
+            predicted[track * 4] = rects[track * 4] + dx;
+            predicted[track * 4 + 1] = rects[track * 4 + 1] + dy;
+            predicted[track * 4 + 2] = rects[track * 4 + 2] + dx;
+            predicted[track * 4 + 3] = rects[track * 4 + 3] + dy;
+        }
+    }
+
+    private void associate(HighlightResult observed, int boxCount) {
+        int pairCount = 0;
+        for (int box = 0; box < boxCount; box++) {
+            trackForBox[box] = -1;
+            boxLinked[box] = false;
+            for (int track = 0; track < count; track++) {
+                if (targetIds[track] != observed.targetId(box)) {
+                    continue;
+                }
+                float iou = iou(observed, box, track);
+                if (iou < MIN_IOU) {
+                    continue;
+                }
+                if (pairCount == pairs.length) {
+                    pairs = Arrays.copyOf(pairs, pairCount * 2);
+                }
+                // IoU is positive, so its float bits sort like the value; the low bits keep the pair.
+                pairs[pairCount++] = ((long) Float.floatToIntBits(iou) << 32) | ((long) box << 16) | track;
+            }
+        }
+        Arrays.fill(trackLinked, 0, count, false);
+        Arrays.sort(pairs, 0, pairCount);
+        for (int i = pairCount - 1; i >= 0; i--) {
+            int box = (int) (pairs[i] >>> 16) & 0xffff;
+            int track = (int) pairs[i] & 0xffff;
+            if (boxLinked[box] || trackLinked[track]) {
+                continue;
+            }
+            boxLinked[box] = true;
+            trackLinked[track] = true;
+            trackForBox[box] = track;
+        }
+    }
+
+    private float iou(HighlightResult observed, int box, int track) {
+        float[] rects = predicted;
+        float left = Math.max(observed.left(box), rects[track * 4]);
+        float top = Math.max(observed.top(box), rects[track * 4 + 1]);
+        float right = Math.min(observed.right(box), rects[track * 4 + 2]);
+        float bottom = Math.min(observed.bottom(box), rects[track * 4 + 3]);
+        if (right <= left || bottom <= top) {
+            return 0;
+        }
+        float intersection = (right - left) * (bottom - top);
+        float boxArea = (observed.right(box) - observed.left(box)) * (observed.bottom(box) - observed.top(box));
+        float trackArea = (rects[track * 4 + 2] - rects[track * 4]) * (rects[track * 4 + 3] - rects[track * 4 + 1]);
+        return intersection / (boxArea + trackArea - intersection);
+    }
+
+    private int addTrack(int targetId) {
+        if (count == targetIds.length) {
+            int capacity = count * 2;
+            rects = Arrays.copyOf(rects, capacity * 4);
+            velocities = Arrays.copyOf(velocities, capacity * 2);
+            observedAt = Arrays.copyOf(observedAt, capacity);
+            targetIds = Arrays.copyOf(targetIds, capacity);
+            trackLinked = Arrays.copyOf(trackLinked, capacity);
+        }
+        targetIds[count] = targetId;
+        return count++;
+    }
+
+    private void setBox(int track, HighlightResult observed, int box) {
+        rects[track * 4] = observed.left(box);
+        rects[track * 4 + 1] = observed.top(box);
+        rects[track * 4 + 2] = observed.right(box);
+        rects[track * 4 + 3] = observed.bottom(box);
+    }
+
+    private void ensureScratch(int boxCount) {
+        if (boxLinked.length < boxCount) {
+            boxLinked = new boolean[boxCount];
+            trackForBox = new int[boxCount];
+        }
+    }
+
+    private TrackedHighlights publish() {
+        if (count == 0) {
+            return TrackedHighlights.EMPTY;
+        }
+        return new TrackedHighlights(
+                Arrays.copyOf(rects, count * 4),
+                Arrays.copyOf(velocities, count * 2),
+                Arrays.copyOf(observedAt, count),
+                Arrays.copyOf(targetIds, count),
+                timeoutMillis);
+    }
+
+    private static float centerX(HighlightResult result, int index) {
+        return (result.left(index) + result.right(index)) / 2;
+    }
+
+    private static float centerY(HighlightResult result, int index) {
+        return (result.top(index) + result.bottom(index)) / 2;
+    }
+}
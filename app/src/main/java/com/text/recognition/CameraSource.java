@@ -7,6 +7,7 @@ import android.content.Context;
 import android.graphics.ImageFormat;
 import android.graphics.SurfaceTexture;
 import android.hardware.Camera;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.Surface;
 import android.view.SurfaceHolder;
@@ -20,11 +21,19 @@ import com.google.android.gms.common.images.Size;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Map;
 
-/**unused class*/
+/**
+ * Camera1 backend, for devices whose legacy camera HAL works better than CameraX. Preview frames
+ * arrive as NV21 in a pool of callback buffers and are handed to a {@link FrameProcessor} on a
+ * dedicated thread, always the most recent one; frames that arrive while it is busy go straight
+ * back to the camera.
+ *
+ * <p>Frames are not copied: a {@link Frame} wraps the camera's own buffer, and the buffer only
+ * returns to the camera once the processor {@link Frame#release() releases} the frame. The depth of
+ * the pool, see {@link #setPreviewBufferCount(int)}, bounds how many frames the processor can hold
+ * on to before the camera runs out of buffers and skips frames.
+ */
 public class CameraSource {
 
     @SuppressLint("InlinedApi")
@@ -48,6 +57,13 @@ public class CameraSource {
      */
     private static final float ASPECT_RATIO_TOLERANCE = 0.01f;
 
+    /** Preview buffers used unless {@link #setPreviewBufferCount(int)} says otherwise. */
+    public static final int DEFAULT_PREVIEW_BUFFER_COUNT = 4;
+    /** One frame being processed, one pending and one the camera is filling. */
+    public static final int MIN_PREVIEW_BUFFER_COUNT = 3;
+    /** Buffers are numbered in their spare last byte. */
+    public static final int MAX_PREVIEW_BUFFER_COUNT = 255;
+
     protected Activity activity;
 
     private Camera camera;
@@ -92,18 +108,21 @@ public class CameraSource {
 
     private final Object processorLock = new Object();
     // @GuardedBy("processorLock")
-    //private TextRecognitionProcessor frameProcessor;
+    private FrameProcessor frameProcessor;
+
+    private int previewBufferCount = DEFAULT_PREVIEW_BUFFER_COUNT;
 
     /**
-     * Map to convert between a byte array, received from the camera, and its associated byte buffer.
-     * We use byte buffers internally because this is a more efficient way to call into native code
-     * later (avoids a potential copy).
-     *
-     * <p><b>Note:</b> uses IdentityHashMap here instead of HashMap because the behavior of an array's
-     * equals, hashCode and toString methods is both useless and unexpected. IdentityHashMap enforces
-     * identity ('==') check on the keys.
+     * Guards the buffers' way back to the camera, see {@link Frame#release()}. Kept apart from the
+     * monitor of this source, which {@link #stop()} holds while it waits for the processing thread.
      */
-    private final Map<byte[], ByteBuffer> bytesToByteBuffer = new IdentityHashMap<>();
+    private final Object bufferLock = new Object();
+
+    /**
+     * One frame per preview buffer, at the index stored in the buffer's spare last byte, so that the
+     * buffer the camera fills maps back to its frame with an array lookup.
+     */
+    private Frame[] frames = new Frame[0];
 
     public CameraSource(Activity activity, GraphicOverlay overlay) {
         this.activity = activity;
@@ -118,14 +137,16 @@ public class CameraSource {
 
     /** Stops the camera and releases the resources of the camera and underlying detector. */
     public void release() {
+        // Stopped first, since the processing thread it waits for takes processorLock.
+        stop();
         synchronized (processorLock) {
-            stop();
             processingRunnable.release();
             cleanScreen();
 
-            /*if (frameProcessor != null) {
+            if (frameProcessor != null) {
                 frameProcessor.stop();
-            }*/
+                frameProcessor = null;
+            }
         }
     }
 
@@ -142,7 +163,10 @@ public class CameraSource {
             return this;
         }
 
-        camera = createCamera();
+        Camera camera = createCamera();
+        synchronized (bufferLock) {
+            this.camera = camera;
+        }
         dummySurfaceTexture = new SurfaceTexture(DUMMY_TEXTURE_NAME);
         camera.setPreviewTexture(dummySurfaceTexture);
         usingSurfaceTexture = true;
@@ -167,7 +191,10 @@ public class CameraSource {
             return this;
         }
 
-        camera = createCamera();
+        Camera camera = createCamera();
+        synchronized (bufferLock) {
+            this.camera = camera;
+        }
         camera.setPreviewDisplay(surfaceHolder);
         camera.startPreview();
 
@@ -214,12 +241,15 @@ public class CameraSource {
             } catch (Exception e) {
                 Log.e(TAG, "Failed to clear camera preview: " + e);
             }
-            camera.release();
-            camera = null;
+            // Frames still held by the processor must not go back to the released camera.
+            synchronized (bufferLock) {
+                camera.release();
+                camera = null;
+            }
         }
 
         // Release the reference to any image buffers, since these will no longer be in use.
-        bytesToByteBuffer.clear();
+        frames = new Frame[0];
     }
 
     /** Changes the facing of the camera. */
@@ -230,11 +260,28 @@ public class CameraSource {
         this.facing = facing;
     }
 
+    /**
+     * Sets the number of preview buffers the camera cycles through, from the next {@link #start()}
+     * on. Every frame the processor holds on to takes one out of the pool, and the camera needs two
+     * free ones to keep delivering without dropping frames.
+     */
+    public synchronized void setPreviewBufferCount(int count) {
+        if (count < MIN_PREVIEW_BUFFER_COUNT || count > MAX_PREVIEW_BUFFER_COUNT) {
+            throw new IllegalArgumentException("Invalid preview buffer count: " + count);
+        }
+        previewBufferCount = count;
+    }
+
     /** Returns the preview size that is currently in use by the underlying camera. */
     public Size getPreviewSize() {
         return previewSize;
     }
 
+    /** Returns the clockwise rotation that turns the frames upright, in degrees. */
+    public int getRotationDegrees() {
+        return rotation * 90;
+    }
+
     /**
      * Returns the selected camera; one of {@link #CAMERA_FACING_BACK} or {@link
      * #CAMERA_FACING_FRONT}.
@@ -293,7 +340,7 @@ public class CameraSource {
 
         camera.setParameters(parameters);
 
-        // Four frame buffers are needed for working with the camera:
+        // By default four frame buffers are used for working with the camera:
         //
         //   one for the frame that is currently being executed upon in doing detection
         //   one for the next pending frame to process immediately upon completing detection
@@ -303,12 +350,15 @@ public class CameraSource {
         // used in this code, are needed for the camera to work properly.  Perhaps the camera has
         // one thread for acquiring images, and another thread for calling into user code.  If only
         // three buffers are used, then the camera will spew thousands of warning messages when
-        // detection takes a non-trivial amount of time.
+        // detection takes a non-trivial amount of time.  Processors that hold on to frames while
+        // they are recognized asynchronously need one more buffer per frame they hold.
         camera.setPreviewCallbackWithBuffer(new CameraPreviewCallback());
-        camera.addCallbackBuffer(createPreviewBuffer(previewSize));
-        camera.addCallbackBuffer(createPreviewBuffer(previewSize));
-        camera.addCallbackBuffer(createPreviewBuffer(previewSize));
-        camera.addCallbackBuffer(createPreviewBuffer(previewSize));
+        Frame[] frames = new Frame[previewBufferCount];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = new Frame(camera, createPreviewBuffer(previewSize, i));
+            camera.addCallbackBuffer(frames[i].array);
+        }
+        this.frames = frames;
 
         return camera;
     }
@@ -522,30 +572,36 @@ public class CameraSource {
 
     /**
      * Creates one buffer for the camera preview callback. The size of the buffer is based off of the
-     * camera preview size and the format of the camera image.
+     * camera preview size and the format of the camera image, plus one spare byte at the end that
+     * the camera never writes, which holds the buffer's index in {@link #frames}.
      *
      * @return a new preview buffer of the appropriate size for the current camera settings
      */
     @SuppressLint("InlinedApi")
-    private byte[] createPreviewBuffer(Size previewSize) {
+    private static byte[] createPreviewBuffer(Size previewSize, int index) {
         int bitsPerPixel = ImageFormat.getBitsPerPixel(ImageFormat.NV21);
         long sizeInBits = (long) previewSize.getHeight() * previewSize.getWidth() * bitsPerPixel;
         int bufferSize = (int) Math.ceil(sizeInBits / 8.0d) + 1;
 
-        // Creating the byte array this way and wrapping it, as opposed to using .allocate(),
-        // should guarantee that there will be an array to work with.
         byte[] byteArray = new byte[bufferSize];
-        ByteBuffer buffer = ByteBuffer.wrap(byteArray);
-        if (!buffer.hasArray() || (buffer.array() != byteArray)) {
-            // I don't think that this will ever happen.  But if it does, then we wouldn't be
-            // passing the preview content to the underlying detector later.
-            throw new IllegalStateException("Failed to create valid buffer for camera source.");
-        }
-
-        bytesToByteBuffer.put(byteArray, buffer);
+        byteArray[bufferSize - 1] = (byte) index;
         return byteArray;
     }
 
+    /**
+     * Returns the frame of a buffer the camera filled, or null if it is not one of the current
+     * pool's, e.g. one delivered late by a camera that has since been stopped.
+     */
+    @Nullable
+    private Frame frameOf(byte[] data) {
+        Frame[] frames = this.frames;
+        int index = data[data.length - 1] & 0xff;
+        if (index < frames.length && frames[index].array == data) {
+            return frames[index];
+        }
+        return null;
+    }
+
     // ==============================================================================================
     // Frame processing
     // ==============================================================================================
@@ -558,15 +614,122 @@ public class CameraSource {
         }
     }
 
-    /*public void setMachineLearningFrameProcessor(TextRecognitionProcessor processor) {
+    /**
+     * Sets the processor that preview frames are handed to, stopping the previous one. Frames
+     * arriving while there is none go straight back to the camera.
+     */
+    public void setFrameProcessor(@Nullable FrameProcessor processor) {
         synchronized (processorLock) {
             cleanScreen();
             if (frameProcessor != null) {
-                //frameProcessor.stop();
+                frameProcessor.stop();
             }
             frameProcessor = processor;
         }
-    }*/
+    }
+
+    /** Receives the preview frames of a {@link CameraSource}. */
+    public interface FrameProcessor {
+
+        /**
+         * Processes a frame, on the camera source's processing thread. The next frame is only
+         * handed over once this returns, but the processor may keep the frame beyond that, e.g.
+         * while it is recognized asynchronously, as long as it eventually calls {@link
+         * Frame#release()}. A frame that is not released is lost to the buffer pool.
+         */
+        void process(Frame frame);
+
+        /** Called when the processor is replaced or the camera source released. */
+        void stop();
+    }
+
+    /**
+     * A preview frame in NV21 format, backed directly by one of the camera's callback buffers. The
+     * frame and its buffer are reused once it has been released.
+     */
+    public final class Frame {
+        private final Camera owner;
+        private final byte[] array;
+        private final ByteBuffer data;
+        private final int size;
+        private final int width;
+        private final int height;
+        private final int facing;
+        private long timestampNanos;
+        private int rotationDegrees;
+        // @GuardedBy("bufferLock")
+        private boolean released = true;
+
+        Frame(Camera owner, byte[] array) {
+            this.owner = owner;
+            this.array = array;
+            width = previewSize.getWidth();
+            height = previewSize.getHeight();
+            facing = CameraSource.this.facing;
+            size = array.length - 1;
+            data = ByteBuffer.wrap(array, 0, size);
+        }
+
+        /** Marks the frame as delivered by the camera. */
+        void acquire(long timestampNanos, int rotationDegrees) {
+            synchronized (bufferLock) {
+                released = false;
+            }
+            this.timestampNanos = timestampNanos;
+            this.rotationDegrees = rotationDegrees;
+            data.clear();
+            data.limit(size);
+        }
+
+        /**
+         * Returns the frame's NV21 data: the luma plane of {@code width * height} bytes followed by
+         * interleaved V and U samples. The same buffer is returned every time; it is only valid
+         * until the frame is released.
+         */
+        public ByteBuffer getData() {
+            return data;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        /** Clockwise rotation that turns the frame upright, in degrees. */
+        public int getRotationDegrees() {
+            return rotationDegrees;
+        }
+
+        /** Returns {@link #CAMERA_FACING_BACK} or {@link #CAMERA_FACING_FRONT}. */
+        public int getFacing() {
+            return facing;
+        }
+
+        /** When the camera delivered the frame, on the {@code SystemClock.elapsedRealtimeNanos()} clock. */
+        public long getTimestampNanos() {
+            return timestampNanos;
+        }
+
+        /**
+         * Hands the frame's buffer back to the camera, from any thread. Releasing a frame again
+         * before the camera delivers it anew has no effect, and neither has releasing it after the
+         * camera was stopped.
+         */
+        public void release() {
+            synchronized (bufferLock) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                if (owner == camera) {
+                    owner.addCallbackBuffer(array);
+                }
+            }
+        }
+    }
 
     /**
      * This runnable controls access to the underlying receiver, calling it to process frames when
@@ -585,7 +748,7 @@ public class CameraSource {
         private boolean active = true;
 
         // These pending variables hold the state associated with the new frame awaiting processing.
-        private ByteBuffer pendingFrameData;
+        private Frame pendingFrame;
 
         FrameProcessingRunnable() {}
 
@@ -613,21 +776,21 @@ public class CameraSource {
          * present) back to the camera, and keeps a pending reference to the frame data for future use.
          */
         void setNextFrame(byte[] data, Camera camera) {
+            long timestampNanos = SystemClock.elapsedRealtimeNanos();
             synchronized (lock) {
-                if (pendingFrameData != null) {
-                    camera.addCallbackBuffer(pendingFrameData.array());
-                    pendingFrameData = null;
+                if (pendingFrame != null) {
+                    pendingFrame.release();
+                    pendingFrame = null;
                 }
 
-                if (!bytesToByteBuffer.containsKey(data)) {
-                    Log.d(
-                            TAG,
-                            "Skipping frame. Could not find ByteBuffer associated with the image "
-                                    + "data from the camera.");
+                Frame frame = frameOf(data);
+                if (frame == null) {
+                    Log.d(TAG, "Skipping frame. Could not find the frame of the image data from the camera.");
                     return;
                 }
 
-                pendingFrameData = bytesToByteBuffer.get(data);
+                frame.acquire(timestampNanos, rotation * 90);
+                pendingFrame = frame;
 
                 // Notify the processor thread if it is waiting on the next frame (see below).
                 lock.notifyAll();
@@ -651,11 +814,11 @@ public class CameraSource {
         @SuppressWarnings("GuardedBy")
         @Override
         public void run() {
-            ByteBuffer data;
+            Frame frame;
 
             while (true) {
                 synchronized (lock) {
-                    while (active && (pendingFrameData == null)) {
+                    while (active && (pendingFrame == null)) {
                         try {
                             // Wait for the next frame to be received from the camera, since we
                             // don't have it yet.
@@ -674,34 +837,30 @@ public class CameraSource {
                         return;
                     }
 
-                    // Hold onto the frame data locally, so that we can use this for detection
-                    // below.  We need to clear pendingFrameData to ensure that this buffer isn't
-                    // recycled back to the camera before we are done using that data.
-                    data = pendingFrameData;
-                    pendingFrameData = null;
+                    // Hold onto the frame locally, so that we can use this for detection below.  We
+                    // need to clear pendingFrame to ensure that this buffer isn't recycled back to
+                    // the camera before the processor is done using that data.
+                    frame = pendingFrame;
+                    pendingFrame = null;
                 }
 
                 // The code below needs to run outside of synchronization, because this will allow
                 // the camera to add pending frame(s) while we are running detection on the current
                 // frame.
 
+                // The processor releases the frame once it is done with it, which may be long after
+                // process() returned.
                 try {
                     synchronized (processorLock) {
-                        Log.d(TAG, "Process an image");
-                        /*frameProcessor.process(
-                                data,
-                                new FrameMetadata.Builder()
-                                        .setWidth(previewSize.getWidth())
-                                        .setHeight(previewSize.getHeight())
-                                        .setRotation(rotation)
-                                        .setCameraFacing(facing)
-                                        .build(),
-                                graphicOverlay);*/
+                        if (frameProcessor != null) {
+                            frameProcessor.process(frame);
+                        } else {
+                            frame.release();
+                        }
                     }
                 } catch (Throwable t) {
                     Log.e(TAG, "Exception thrown from receiver.", t);
-                } finally {
-                    camera.addCallbackBuffer(data.array());
+                    frame.release();
                 }
             }
         }
@@ -0,0 +1,123 @@
+package com.text.recognition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable {@link RecognizedText} held in plain arrays, as read back from a session capture (see
+ * {@link SessionCapture}) or built by tests. Elements without a bounding box carry NaN coordinates.
+ */
+public final class CapturedText implements RecognizedText {
+
+    private final String[] lineTexts;
+    private final String[][] elementTexts;
+    /** Per line, packed {@code left, top, right, bottom} per element. */
+    private final float[][] elementBoxes;
+
+    private CapturedText(String[] lineTexts, String[][] elementTexts, float[][] elementBoxes) {
+        this.lineTexts = lineTexts;
+        this.elementTexts = elementTexts;
+        this.elementBoxes = elementBoxes;
+    }
+
+    /** Returns a copy of any recognized text, for example to keep it beyond its frame. */
+    public static CapturedText copyOf(RecognizedText text) {
+        Builder builder = new Builder();
+        float[] box = new float[4];
+        for (int line = 0, lines = text.lineCount(); line < lines; line++) {
+            builder.beginLine(text.lineText(line));
+            for (int element = 0, elements = text.elementCount(line); element < elements; element++) {
+                if (text.elementBox(line, element, box)) {
+                    builder.addElement(text.elementText(line, element), box[0], box[1], box[2], box[3]);
+                } else {
+                    builder.addElement(text.elementText(line, element));
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    public int lineCount() {
+        return lineTexts.length;
+    }
+
+    @Override
+    public String lineText(int line) {
+        return lineTexts[line];
+    }
+
+    @Override
+    public int elementCount(int line) {
+        return elementTexts[line].length;
+    }
+
+    @Override
+    public String elementText(int line, int element) {
+        return elementTexts[line][element];
+    }
+
+    @Override
+    public boolean elementBox(int line, int element, float[] out) {
+        float[] boxes = elementBoxes[line];
+        int offset = element * 4;
+        if (Float.isNaN(boxes[offset])) {
+            return false;
+        }
+        System.arraycopy(boxes, offset, out, 0, 4);
+        return true;
+    }
+
+    /** Collects lines and their elements in reading order. */
+    public static final class Builder {
+        private final List<String> lineTexts = new ArrayList<>();
+        private final List<String[]> elementTexts = new ArrayList<>();
+        private final List<float[]> elementBoxes = new ArrayList<>();
+        private String[] texts = new String[8];
+        private float[] boxes = new float[32];
+        private int count;
+
+        public Builder beginLine(String lineText) {
+            endLine();
+            lineTexts.add(lineText);
+            return this;
+        }
+
+        public Builder addElement(String text, float left, float top, float right, float bottom) {
+            if (lineTexts.size() == elementTexts.size()) {
+                throw new IllegalStateException("addElement() before beginLine()");
+            }
+            if (count == texts.length) {
+                texts = Arrays.copyOf(texts, count * 2);
+                boxes = Arrays.copyOf(boxes, count * 8);
+            }
+            texts[count] = text;
+            boxes[count * 4] = left;
+            boxes[count * 4 + 1] = top;
+            boxes[count * 4 + 2] = right;
+            boxes[count * 4 + 3] = bottom;
+            count++;
+            return this;
+        }
+
+        /** Adds an element without a bounding box. */
+        public Builder addElement(String text) {
+            return addElement(text, Float.NaN, Float.NaN, Float.NaN, Float.NaN);
+        }
+
+        public CapturedText build() {
+            endLine();
+            return new CapturedText(lineTexts.toArray(new String[0]),
+                    elementTexts.toArray(new String[0][]), elementBoxes.toArray(new float[0][]));
+        }
+
+        private void endLine() {
+            if (lineTexts.size() > elementTexts.size()) {
+                elementTexts.add(Arrays.copyOf(texts, count));
+                elementBoxes.add(Arrays.copyOf(boxes, count * 4));
+                count = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.text.recognition;
+
+/**
+ * Decides which detectors run on each frame that goes to recognition, so that the text recognizer
+ * and the barcode scanner can share one camera binding and one copy of every frame while running
+ * at rates of their own.
+ *
+ * <p>Every detector runs on every n-th frame, n being its period. Detectors with the same period
+ * are staggered rather than run on the same frame, so that the work is spread out. Frames on which
+ * no detector is due get {@code 0} and can be skipped.
+ *
+ * <p>Text recognition can also be held to a minimum interval, see {@link #next(MotionGate, long)},
+ * which the barcode scanner is not, so that codes are still scanned at the camera rate while text
+ * is only recognized a few times a second. Text held back by the interval runs on the first frame
+ * after it.
+ *
+ * <p>Behind a {@link MotionGate}, a scene is only settled once every enabled detector has run on
+ * it. Until then {@link #next(MotionGate, long)} keeps the gate open, so that a label first seen
+ * on a text-only frame still has its barcode scanned, and the other way round.
+ *
+ * <p>Instances are not thread safe; they are meant to be used from the analysis executor only.
+ */
+public final class DetectorScheduler {
+
+    /** Bit of {@link #next()} for the text recognizer. */
+    public static final int TEXT = 1;
+    /** Bit of {@link #next()} for the barcode scanner. */
+    public static final int BARCODE = 1 << 1;
+
+    private final int textPeriod;
+    private final int barcodePeriod;
+    private final int barcodeOffset;
+    private final long minTextIntervalMillis;
+    /** Bits of the detectors with a period. */
+    private final int enabled;
+    /** Bits of the enabled detectors that have not run yet on the scene the gate let through. */
+    private int pending;
+    private long frame;
+    /** Whether text recognition is due but has been held back by the interval. */
+    private boolean textOwed;
+    private long lastTextMillis = Long.MIN_VALUE / 2;
+
+    /**
+     * @param textPeriod run text recognition on every this many frames, or never if 0
+     * @param barcodePeriod run barcode scanning on every this many frames, or never if 0
+     */
+    public DetectorScheduler(int textPeriod, int barcodePeriod) {
+        this(textPeriod, barcodePeriod, 0);
+    }
+
+    /**
+     * @param textPeriod run text recognition on every this many frames, or never if 0
+     * @param barcodePeriod run barcode scanning on every this many frames, or never if 0
+     * @param minTextIntervalMillis run text recognition at most once per this many milliseconds
+     */
+    public DetectorScheduler(int textPeriod, int barcodePeriod, long minTextIntervalMillis) {
+        if (textPeriod < 0 || barcodePeriod < 0 || textPeriod + barcodePeriod == 0) {
+            throw new IllegalArgumentException(
+                    "Invalid periods: text " + textPeriod + ", barcode " + barcodePeriod);
+        }
+        if (minTextIntervalMillis < 0) {
+            throw new IllegalArgumentException("Invalid text interval: " + minTextIntervalMillis);
+        }
+        this.minTextIntervalMillis = minTextIntervalMillis;
+        this.textPeriod = textPeriod;
+        this.barcodePeriod = barcodePeriod;
+        barcodeOffset = barcodePeriod == textPeriod && barcodePeriod > 1 ? 1 : 0;
+        enabled = (textPeriod > 0 ? TEXT : 0) | (barcodePeriod > 0 ? BARCODE : 0);
+    }
+
+    /**
+     * Returns the detectors to run on the next frame, as {@link #TEXT} and {@link #BARCODE} bits,
+     * regardless of the text interval.
+     */
+    public int next() {
+        return next(lastTextMillis + minTextIntervalMillis);
+    }
+
+    /**
+     * Returns the detectors to run on the next frame, arriving at {@code nowMillis}. Text
+     * recognition that is due less than the minimum interval after it last ran is left out and
+     * runs on the first frame after the interval instead.
+     */
+    public int next(long nowMillis) {
+        long current = frame++;
+        int detectors = 0;
+        if (textPeriod > 0 && current % textPeriod == 0) {
+            textOwed = true;
+        }
+        if (textOwed && nowMillis - lastTextMillis >= minTextIntervalMillis) {
+            textOwed = false;
+            lastTextMillis = nowMillis;
+            detectors |= TEXT;
+        }
+        if (barcodePeriod > 0 && (current + barcodeOffset) % barcodePeriod == 0) {
+            detectors |= BARCODE;
+        }
+        return detectors;
+    }
+
+    /**
+     * Returns the detectors to run on a frame that {@code gate} has just let through, arriving at
+     * {@code nowMillis}, see {@link #next(long)}. The gate takes that frame as the reference for
+     * the frames to come, which only holds once every enabled detector has run on its scene, so
+     * the gate is {@link MotionGate#keepOpen kept open} until then. A new scene showing up in the
+     * meantime starts over.
+     */
+    public int next(MotionGate gate, long nowMillis) {
+        int detectors = next(nowMillis);
+        if (gate.lastFrameChanged()) {
+            pending = enabled;
+        }
+        pending &= ~detectors;
+        gate.keepOpen(pending != 0);
+        return detectors;
+    }
+
+    /**
+     * Starts the schedule over, so that every detector without a stagger runs on the next frame,
+     * the text interval notwithstanding, for example when the targets change.
+     */
+    public void reset() {
+        frame = 0;
+        textOwed = false;
+        lastTextMillis = Long.MIN_VALUE / 2;
+    }
+}
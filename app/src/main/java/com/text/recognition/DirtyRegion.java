@@ -0,0 +1,179 @@
+package com.text.recognition;
+
+import java.util.Arrays;
+
+/**
+ * Works out which part of {@link GraphicOverlay} has to be redrawn, so that it is not redrawn as a
+ * whole after every recognized frame when the highlights have not moved.
+ *
+ * <p>{@link #diff} compares two sets of highlights as drawn at the same time: boxes found in both
+ * are left alone, and the region is the union of all others, old and new. {@link #sweep} covers the
+ * boxes that are moving, from where they are to where their extrapolation ends. The region is
+ * rounded outwards to whole pixels and grown by a padding for the stroke the boxes are drawn with.
+ *
+ * <p>Instances are not thread safe.
+ */
+public final class DirtyRegion {
+
+    private final float padding;
+    private float left;
+    private float top;
+    private float right;
+    private float bottom;
+    private boolean empty = true;
+
+    // Scratch space for the boxes of the two sets being compared.
+    private float[] before = new float[64];
+    private float[] after = new float[64];
+    private boolean[] matched = new boolean[16];
+    private final float[] box = new float[4];
+
+    /** @param padding pixels drawn outside of each box, such as half the stroke width */
+    public DirtyRegion(float padding) {
+        this.padding = padding;
+    }
+
+    /**
+     * Computes the region that differs between {@code previous} and {@code next} as drawn at {@code
+     * nowMillis}, and returns false if there is none.
+     */
+    public boolean diff(TrackedHighlights previous, TrackedHighlights next, long nowMillis) {
+        empty = true;
+        if (previous == next) {
+            return false;
+        }
+        int beforeCount = collect(previous, nowMillis, true);
+        int afterCount = collect(next, nowMillis, false);
+        if (matched.length < beforeCount) {
+            matched = new boolean[Math.max(beforeCount, matched.length * 2)];
+        }
+        Arrays.fill(matched, 0, beforeCount, false);
+        for (int i = 0; i < afterCount; i++) {
+            int match = -1;
+            // Boxes usually keep their order, so look at the same index first.
+            if (i < beforeCount && !matched[i] && sameBox(i, i)) {
+                match = i;
+            } else {
+                for (int j = 0; j < beforeCount; j++) {
+                    if (!matched[j] && sameBox(j, i)) {
+                        match = j;
+                        break;
+                    }
+                }
+            }
+            if (match >= 0) {
+                matched[match] = true;
+            } else {
+                include(after, i);
+            }
+        }
+        for (int j = 0; j < beforeCount; j++) {
+            if (!matched[j]) {
+                include(before, j);
+            }
+        }
+        return !empty;
+    }
+
+    /**
+     * Computes the region that the moving boxes of {@code highlights} pass through from {@code
+     * nowMillis} until their extrapolation ends, and returns false if none is moving.
+     */
+    public boolean sweep(TrackedHighlights highlights, long nowMillis) {
+        empty = true;
+        if (!highlights.isMoving(nowMillis)) {
+            return false;
+        }
+        long end = nowMillis + BoxTracker.MAX_EXTRAPOLATION_MS;
+        for (int i = 0, count = highlights.size(); i < count; i++) {
+            if (!highlights.boxAt(i, nowMillis, box)) {
+                continue;
+            }
+            float startLeft = box[0];
+            float startTop = box[1];
+            float startRight = box[2];
+            float startBottom = box[3];
+            // Boxes move in a straight line, so both ends bound the way. One that expires on the
+            // way is erased by the redraw at its expiry.
+            if (!highlights.boxAt(i, end, box)) {
+                continue;
+            }
+            if (box[0] != startLeft || box[1] != startTop || box[2] != startRight
+                    || box[3] != startBottom) {
+                include(startLeft, startTop, startRight, startBottom);
+                include(box[0], box[1], box[2], box[3]);
+            }
+        }
+        return !empty;
+    }
+
+    /** Returns whether the last computed region is empty. */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    public int getLeft() {
+        return (int) Math.floor(left - padding);
+    }
+
+    public int getTop() {
+        return (int) Math.floor(top - padding);
+    }
+
+    public int getRight() {
+        return (int) Math.ceil(right + padding);
+    }
+
+    public int getBottom() {
+        return (int) Math.ceil(bottom + padding);
+    }
+
+    /** Writes the boxes drawn at {@code nowMillis} to the before or after scratch, and counts them. */
+    private int collect(TrackedHighlights highlights, long nowMillis, boolean toBefore) {
+        float[] boxes = toBefore ? before : after;
+        int count = 0;
+        for (int i = 0, size = highlights.size(); i < size; i++) {
+            if (!highlights.boxAt(i, nowMillis, box)) {
+                continue;
+            }
+            if (boxes.length < (count + 1) * 4) {
+                boxes = Arrays.copyOf(boxes, boxes.length * 2);
+            }
+            System.arraycopy(box, 0, boxes, count * 4, 4);
+            count++;
+        }
+        if (toBefore) {
+            before = boxes;
+        } else {
+            after = boxes;
+        }
+        return count;
+    }
+
+    private boolean sameBox(int beforeIndex, int afterIndex) {
+        int b = beforeIndex * 4;
+        int a = afterIndex * 4;
+        return before[b] == after[a] && before[b + 1] == after[a + 1]
+                && before[b + 2] == after[a + 2] && before[b + 3] == after[a + 3];
+    }
+
+    private void include(float[] boxes, int index) {
+        int offset = index * 4;
+        include(boxes[offset], boxes[offset + 1], boxes[offset + 2], boxes[offset + 3]);
+    }
+
+    private void include(float l, float t, float r, float b) {
+        if (empty) {
+            left = l;
+            top = t;
+            right = r;
+            bottom = b;
+            empty = false;
+        } else {
+            left = Math.min(left, l);
+            top = Math.min(top, t);
+            right = Math.max(right, r);
+            bottom = Math.max(bottom, b);
+        }
+    }
+}
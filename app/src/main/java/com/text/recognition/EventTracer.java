@@ -0,0 +1,192 @@
+package com.text.recognition;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Preallocated, lock-free ring buffer of typed trace events for the hot paths of the pipeline,
+ * where logging to logcat would cost more than the work it describes.
+ *
+ * <p>An event is an {@link Event} type, a phase (span, instant or counter), a {@code
+ * System.nanoTime()} timestamp, the recording thread and one numeric argument, such as a frame
+ * timestamp or a target id. Recording is a few atomic stores into fixed arrays, with no string
+ * formatting or allocation; once the buffer is full the oldest events are overwritten. Every slot
+ * carries a sequence number that is cleared while the slot is being written, so that an export
+ * running concurrently skips events it would otherwise read half written.
+ *
+ * <p>{@link #writeChromeTrace(Writer, long)} exports the most recent events as Chrome trace JSON,
+ * which chrome://tracing and ui.perfetto.dev load directly.
+ */
+public final class EventTracer {
+
+    /** Event types, with their name and the name of their argument in exported traces. */
+    public enum Event {
+        FRAME("frame", "timestamp"),
+        CROP("crop", "frame"),
+        RECOGNIZE("recognize", "frame"),
+        MATCH("match", "frame"),
+        HIGHLIGHT("highlight", "target"),
+        HIGHLIGHTS("highlights", "count"),
+        DRAW("draw", "boxes"),
+        SIMILARITY("similarity", "permille"),
+        IN_FLIGHT("in_flight", "frames");
+
+        final String traceName;
+        final String argName;
+
+        Event(String traceName, String argName) {
+            this.traceName = traceName;
+            this.argName = argName;
+        }
+    }
+
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private static final int PHASE_SPAN = 0;
+    private static final int PHASE_INSTANT = 1;
+    private static final int PHASE_COUNTER = 2;
+    private static final char[] PHASE_CODES = {'X', 'i', 'C'};
+
+    /** Longs per event: timestamp, duration, argument, and event, phase and thread packed. */
+    private static final int FIELDS = 4;
+
+    private static final Event[] EVENTS = Event.values();
+
+    private static final EventTracer DEFAULT = new EventTracer(DEFAULT_CAPACITY);
+
+    private final int mask;
+    private final AtomicLongArray data;
+    /** Index + 1 of the event in each slot, or 0 while it is being written. */
+    private final AtomicLongArray sequence;
+    private final AtomicLong cursor = new AtomicLong();
+    private volatile boolean enabled = true;
+
+    /** @param capacity number of events kept, rounded up to a power of two */
+    public EventTracer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        data = new AtomicLongArray(size * FIELDS);
+        sequence = new AtomicLongArray(size);
+    }
+
+    /** Returns the tracer shared by the whole app. */
+    public static EventTracer getDefault() {
+        return DEFAULT;
+    }
+
+    /** Turns recording on or off; while off, recording costs one volatile read. */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /** Records a span of work between two {@code System.nanoTime()} readings. */
+    public void span(Event event, long startNanos, long endNanos, long arg) {
+        if (enabled) {
+            record(event, PHASE_SPAN, startNanos, endNanos - startNanos, arg);
+        }
+    }
+
+    /** Records a point in time. */
+    public void instant(Event event, long arg) {
+        if (enabled) {
+            record(event, PHASE_INSTANT, System.nanoTime(), 0, arg);
+        }
+    }
+
+    /** Records the current value of a counter, drawn as a graph by trace viewers. */
+    public void counter(Event event, long value) {
+        if (enabled) {
+            record(event, PHASE_COUNTER, System.nanoTime(), 0, value);
+        }
+    }
+
+    private void record(Event event, int phase, long timestamp, long duration, long arg) {
+        long index = cursor.getAndIncrement();
+        int slot = (int) (index & mask);
+        int base = slot * FIELDS;
+        long header = event.ordinal() | (long) phase << 8 | Thread.currentThread().getId() << 16;
+        sequence.set(slot, 0);
+        // Ordered stores cannot move before the clearing of the sequence above or after its
+        // publication below, which is all a reader needs to detect an overwrite.
+        data.lazySet(base, timestamp);
+        data.lazySet(base + 1, duration);
+        data.lazySet(base + 2, arg);
+        data.lazySet(base + 3, header);
+        sequence.set(slot, index + 1);
+    }
+
+    /** Drops all recorded events. Events recorded concurrently may or may not survive. */
+    public void clear() {
+        cursor.set(0);
+        for (int i = 0; i <= mask; i++) {
+            sequence.set(i, 0);
+        }
+    }
+
+    /**
+     * Writes the events of the last {@code windowNanos} as a Chrome trace JSON object, oldest first,
+     * with timestamps in microseconds of the {@code System.nanoTime()} clock. Events still being
+     * recorded, or overwritten while exporting, are left out.
+     */
+    public void writeChromeTrace(Writer writer, long windowNanos) throws IOException {
+        long since = System.nanoTime() - windowNanos;
+        long end = cursor.get();
+        long start = Math.max(0, end - capacity());
+        writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        boolean first = true;
+        for (long index = start; index < end; index++) {
+            int slot = (int) (index & mask);
+            int base = slot * FIELDS;
+            if (sequence.get(slot) != index + 1) {
+                continue;
+            }
+            long timestamp = data.get(base);
+            long duration = data.get(base + 1);
+            long arg = data.get(base + 2);
+            long header = data.get(base + 3);
+            if (sequence.get(slot) != index + 1 || timestamp - since < 0) {
+                continue;
+            }
+            Event event = EVENTS[(int) (header & 0xff)];
+            int phase = (int) (header >>> 8 & 0xff);
+            long thread = header >>> 16;
+            writer.write(first ? "\n" : ",\n");
+            first = false;
+            writer.write(String.format(Locale.US,
+                    "{\"name\":\"%s\",\"cat\":\"pipeline\",\"ph\":\"%c\",\"ts\":%.3f,\"pid\":1,\"tid\":%d",
+                    event.traceName, PHASE_CODES[phase], timestamp / 1000.0, thread));
+            if (phase == PHASE_SPAN) {
+                writer.write(String.format(Locale.US, ",\"dur\":%.3f", duration / 1000.0));
+            } else if (phase == PHASE_INSTANT) {
+                writer.write(",\"s\":\"t\"");
+            }
+            writer.write(",\"args\":{\"" + event.argName + "\":" + arg + "}}");
+        }
+        writer.write("\n]}\n");
+    }
+
+    /** Writes a trace as {@link #writeChromeTrace(Writer, long)} does, replacing the file. */
+    public void writeChromeTrace(File file, long windowNanos) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file),
+                Charset.forName("UTF-8"))) {
+            writeChromeTrace(writer, windowNanos);
+        }
+    }
+}
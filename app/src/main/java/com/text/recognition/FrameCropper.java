@@ -0,0 +1,58 @@
+package com.text.recognition;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Copies a rectangle of a YUV 4:2:0 frame, as delivered in the three planes of an {@code
+ * ImageProxy}, into an NV21 buffer that can be handed to {@code InputImage.fromByteArray}.
+ *
+ * <p>Luma rows are copied in bulk. Chroma is gathered sample by sample, since planes differ between
+ * devices in how U and V are interleaved, and the crop only holds a quarter as many chroma samples
+ * as luma. The output buffer is reused from frame to frame and only grows.
+ *
+ * <p>Instances are not thread safe; use one per analysis executor.
+ */
+public final class FrameCropper {
+
+    private byte[] nv21 = new byte[0];
+
+    /**
+     * Crops the frame to the given rectangle, whose corners must be even, and returns the NV21
+     * buffer. Its first {@code width * height * 3 / 2} bytes are the crop; the buffer stays valid
+     * until the next call. The positions of the plane buffers are not changed.
+     */
+    public byte[] crop(ByteBuffer yPlane, int yRowStride,
+                       ByteBuffer uPlane, ByteBuffer vPlane, int uvRowStride, int uvPixelStride,
+                       int left, int top, int width, int height) {
+        int lumaSize = width * height;
+        int size = lumaSize + lumaSize / 2;
+        if (nv21.length < size) {
+            nv21 = new byte[size];
+        }
+
+        int yBase = yPlane.position();
+        try {
+            for (int row = 0; row < height; row++) {
+                yPlane.position(yBase + (top + row) * yRowStride + left);
+                yPlane.get(nv21, row * width, width);
+            }
+        } finally {
+            yPlane.position(yBase);
+        }
+
+        int uBase = uPlane.position();
+        int vBase = vPlane.position();
+        int chromaLeft = left / 2;
+        int chromaTop = top / 2;
+        int out = lumaSize;
+        for (int row = 0, rows = height / 2; row < rows; row++) {
+            int rowStart = (chromaTop + row) * uvRowStride + chromaLeft * uvPixelStride;
+            for (int column = 0, columns = width / 2; column < columns; column++) {
+                int offset = rowStart + column * uvPixelStride;
+                nv21[out++] = vPlane.get(vBase + offset);
+                nv21[out++] = uPlane.get(uBase + offset);
+            }
+        }
+        return nv21;
+    }
+}
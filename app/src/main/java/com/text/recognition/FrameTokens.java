@@ -0,0 +1,85 @@
+package com.text.recognition;
+
+import java.util.Arrays;
+
+/**
+ * The elements of one recognized frame, normalized by {@link TextNormalizer} once, in a single pass,
+ * into one reused buffer, so that matching against any number of phrases and targets does not
+ * normalize or split them again.
+ *
+ * <p>Tokens belong to the element they came from: element {@code e} of line {@code l} is {@link
+ * #start(int, int)} to {@link #end(int, int)} of {@link #chars()}, with a single space between its
+ * words where the element holds several, as a hyphenated word does. An element that normalizes to
+ * nothing is empty but keeps its place, so indexes always line up with the recognized elements.
+ *
+ * <p>Instances are reused from frame to frame and are not thread safe.
+ */
+public final class FrameTokens {
+
+    private char[] chars = new char[1024];
+    private int length;
+    /** Index of the first element of each line, and the element count after the last. */
+    private int[] lineStarts = new int[33];
+    private int lineCount;
+    /** Element {@code i} of the frame spans {@code [elementStarts[i], elementEnds[i])}. */
+    private int[] elementStarts = new int[256];
+    private int[] elementEnds = new int[256];
+    private int elementCount;
+
+    /** Normalizes the elements of {@code text}, replacing those of the previous frame. */
+    public FrameTokens reset(RecognizedText text) {
+        length = 0;
+        lineCount = 0;
+        elementCount = 0;
+        int lines = text.lineCount();
+        if (lineStarts.length <= lines) {
+            lineStarts = new int[lines + 1];
+        }
+        for (int line = 0; line < lines; line++) {
+            lineStarts[line] = elementCount;
+            for (int element = 0, elements = text.elementCount(line); element < elements; element++) {
+                addElement(text.elementText(line, element));
+            }
+        }
+        lineCount = lines;
+        lineStarts[lines] = elementCount;
+        return this;
+    }
+
+    private void addElement(String elementText) {
+        if (length + elementText.length() > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(length + elementText.length(), chars.length * 2));
+        }
+        if (elementCount == elementStarts.length) {
+            elementStarts = Arrays.copyOf(elementStarts, elementCount * 2);
+            elementEnds = Arrays.copyOf(elementEnds, elementCount * 2);
+        }
+        elementStarts[elementCount] = length;
+        length = TextNormalizer.appendNormalized(elementText, chars, length);
+        elementEnds[elementCount] = length;
+        elementCount++;
+    }
+
+    public int lineCount() {
+        return lineCount;
+    }
+
+    public int elementCount(int line) {
+        return lineStarts[line + 1] - lineStarts[line];
+    }
+
+    /** Returns the buffer that holds the normalized elements; valid until the next reset. */
+    public char[] chars() {
+        return chars;
+    }
+
+    /** Returns where the normalized element starts in {@link #chars()}. */
+    public int start(int line, int element) {
+        return elementStarts[lineStarts[line] + element];
+    }
+
+    /** Returns where the normalized element ends in {@link #chars()}, exclusive. */
+    public int end(int line, int element) {
+        return elementEnds[lineStarts[line] + element];
+    }
+}
@@ -0,0 +1,574 @@
+package com.text.recognition;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fuzzy lookup over a large dictionary of normalized target strings, in a trie of the targets
+ * pruned by edit distance.
+ *
+ * <p>A lookup walks the trie depth first and keeps track of the prefixes of the token that are
+ * within {@code maxEditDistance} edits of the path to each node it visits: in the bit vectors of a
+ * Levenshtein automaton for tokens of fewer than 64 chars, and in a row of the edit distance table,
+ * filled in only near its diagonal, for longer ones. As soon as no prefix is within reach, no
+ * target under that node can be either, and its whole subtree is skipped. Targets sharing a prefix
+ * share the work of comparing it, and a lookup only visits the paths within {@code
+ * maxEditDistance} edits of some prefix of the token. Their number depends on the token and on how
+ * densely the dictionary fills its neighbourhood, and grows far slower than the dictionary does.
+ *
+ * <p>A target matches a token when it is within {@code maxEditDistance} edits of it <em>and</em>
+ * more than {@code minSimilarity} similar to it. Brute-force matching in {@link TargetMatcher} only
+ * applies the similarity cutoff, which lets long words differ by more edits; that is the price of
+ * sub-linear lookup, and why the matcher only switches to an index for large target sets.
+ *
+ * <p>The index is laid out in a few flat arrays: the target chars back to back, and the trie nodes
+ * in depth-first order, each with its label, the end of its subtree and the target it completes,
+ * if any. A subtree is a run of consecutive nodes, so a lookup reads the arrays front to back and
+ * skips a subtree by jumping to its end, without any pointers to chase.
+ *
+ * <p>{@code TargetIndexBenchmark} in the benchmark module measures the default {@link
+ * #DEFAULT_MAX_EDIT_DISTANCE} on made-up names of two to five syllables, looking up the words of a
+ * synthetic page, a tenth of them targets and half of those misspelled. On a single-core x86-64 VM
+ * with JDK 17 ({@code -bm avgt}, three 5 s iterations) it gave:
+ *
+ * <pre>
+ *   entries   index size   build time   mean lookup
+ *   10k         0.8 MB       0.01 s       20 us
+ *   100k        6.8 MB       0.14 s       45 us
+ *   1M         61 MB         2.4 s       104 us
+ * </pre>
+ *
+ * <p>A hundred times the entries make lookups five times slower there. Every name is built from the
+ * same 26 syllables, so a larger dictionary fills the neighbourhood of a token more densely, and
+ * there are more paths within reach to visit.
+ *
+ * <p>{@link #writeTo(File)} saves the arrays back to back, little-endian, and {@link #map(File)}
+ * maps such a file read-only and looks tokens up in views of the mapping, without reading it into
+ * arrays first. Opening a file takes the same time whatever its size, reads nothing until lookups
+ * touch it, and leaves the index off the heap, in pages the system can drop and read back under
+ * memory pressure. Reading through the views costs lookups some speed, so only dictionaries too
+ * large to build at startup are compiled ahead of time, with {@link TargetIndexCompiler}.
+ *
+ * <p>The index itself is immutable and can be shared between threads; lookups go through a {@link
+ * Searcher}, which owns the scratch buffers and is not thread safe.
+ */
+public final class FuzzyIndex {
+
+    public static final int DEFAULT_MAX_EDIT_DISTANCE = 2;
+
+    /** "FZIX", little-endian. */
+    static final int MAGIC = 0x58495a46;
+    /**
+     * Version of the file format. Files also depend on how targets were normalized, so changes to
+     * that have to bump it as well.
+     */
+    static final int VERSION = 2;
+    /** Magic, version, max edit distance, target count, char count and node count, as ints. */
+    static final int HEADER_SIZE = 6 * 4;
+
+    private static final int ASCII_SIZE = 128;
+
+    private final int maxEditDistance;
+    /** Target chars back to back; target {@code i} spans {@code [offsets[i], offsets[i + 1])}. */
+    private final CharBuffer chars;
+    private final IntBuffer offsets;
+    /**
+     * The char on the edge into each trie node, in depth-first order. Node 0 is the root, whose
+     * label is unused.
+     */
+    private final CharBuffer labels;
+    /** The subtree of node {@code n} is nodes {@code [n, subtreeEnds[n])}. */
+    private final IntBuffer subtreeEnds;
+    /** The lowest id of the targets spelled by the path to each node, or -1 if there is none. */
+    private final IntBuffer nodeTargets;
+
+    private FuzzyIndex(int maxEditDistance, CharBuffer chars, IntBuffer offsets, CharBuffer labels,
+                       IntBuffer subtreeEnds, IntBuffer nodeTargets) {
+        this.maxEditDistance = maxEditDistance;
+        this.chars = chars;
+        this.offsets = offsets;
+        this.labels = labels;
+        this.subtreeEnds = subtreeEnds;
+        this.nodeTargets = nodeTargets;
+    }
+
+    /** Builds an index with the default edit distance. */
+    public static FuzzyIndex build(List<String> normalizedTargets) {
+        return build(normalizedTargets, DEFAULT_MAX_EDIT_DISTANCE);
+    }
+
+    /**
+     * Builds an index over the given targets, which must already be normalized the same way tokens
+     * will be. Target ids are positions in {@code normalizedTargets}.
+     */
+    public static FuzzyIndex build(List<String> normalizedTargets, int maxEditDistance) {
+        if (maxEditDistance < 0) {
+            throw new IllegalArgumentException("Invalid max edit distance: " + maxEditDistance);
+        }
+        int size = normalizedTargets.size();
+        int[] offsets = new int[size + 1];
+        int maxLength = 0;
+        for (int i = 0; i < size; i++) {
+            int length = normalizedTargets.get(i).length();
+            offsets[i + 1] = offsets[i] + length;
+            maxLength = Math.max(maxLength, length);
+        }
+        char[] chars = new char[offsets[size]];
+        for (int i = 0; i < size; i++) {
+            String target = normalizedTargets.get(i);
+            target.getChars(0, target.length(), chars, offsets[i]);
+        }
+
+        // Inserting the targets in sorted order creates the nodes in depth-first order. The sort is
+        // stable, so equal targets keep their order and the lowest id comes first.
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> normalizedTargets.get(a).compareTo(normalizedTargets.get(b)));
+
+        // No more nodes than chars, and the root.
+        char[] labels = new char[chars.length + 1];
+        int[] subtreeEnds = new int[chars.length + 1];
+        int[] nodeTargets = new int[chars.length + 1];
+        nodeTargets[0] = -1;
+        int nodeCount = 1;
+        // The nodes on the path of the previous target, by depth.
+        int[] path = new int[maxLength + 1];
+        int previousStart = 0;
+        int previousLength = 0;
+        for (int id : order) {
+            int start = offsets[id];
+            int length = offsets[id + 1] - start;
+            int common = 0;
+            while (common < length && common < previousLength
+                    && chars[start + common] == chars[previousStart + common]) {
+                common++;
+            }
+            for (int depth = previousLength; depth > common; depth--) {
+                subtreeEnds[path[depth]] = nodeCount;
+            }
+            for (int depth = common; depth < length; depth++) {
+                labels[nodeCount] = chars[start + depth];
+                nodeTargets[nodeCount] = -1;
+                path[depth + 1] = nodeCount++;
+            }
+            if (length > 0 && nodeTargets[path[length]] < 0) {
+                nodeTargets[path[length]] = id;
+            }
+            previousStart = start;
+            previousLength = length;
+        }
+        for (int depth = previousLength; depth >= 0; depth--) {
+            subtreeEnds[path[depth]] = nodeCount;
+        }
+
+        // Built indexes stay in arrays, which are faster to read than views of a byte buffer.
+        return new FuzzyIndex(maxEditDistance, CharBuffer.wrap(chars), IntBuffer.wrap(offsets),
+                CharBuffer.wrap(Arrays.copyOf(labels, nodeCount)),
+                IntBuffer.wrap(Arrays.copyOf(subtreeEnds, nodeCount)),
+                IntBuffer.wrap(Arrays.copyOf(nodeTargets, nodeCount)));
+    }
+
+    /**
+     * Maps an index file written by {@link #writeTo(File)}. The mapping stays valid after the file
+     * is closed, so nothing has to be closed afterwards.
+     */
+    public static FuzzyIndex map(File path) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+            return map(file.getChannel(), 0, file.length(), path.toString());
+        }
+    }
+
+    /**
+     * Maps {@code size} bytes of {@code channel} from {@code position} as an index, for index files
+     * embedded in a larger one, such as an uncompressed asset of an APK.
+     */
+    public static FuzzyIndex map(FileChannel channel, long position, long size) throws IOException {
+        return map(channel, position, size, "channel at " + position);
+    }
+
+    private static FuzzyIndex map(FileChannel channel, long position, long size, String source)
+            throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Index too large to map: " + size + " bytes");
+        }
+        ByteBuffer image = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        image.order(ByteOrder.LITTLE_ENDIAN);
+        if (size < HEADER_SIZE || image.getInt(0) != MAGIC) {
+            throw new IOException("Not a fuzzy index: " + source);
+        }
+        int version = image.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported index version " + version + ": " + source);
+        }
+        int maxEditDistance = image.getInt(8);
+        int targetCount = image.getInt(12);
+        int charCount = image.getInt(16);
+        int nodeCount = image.getInt(20);
+        if (maxEditDistance < 0 || targetCount < 0 || charCount < 0 || nodeCount < 1
+                || nodeCount > charCount + 1L
+                || imageSize(targetCount, charCount, nodeCount) != size) {
+            throw new IOException("Corrupt index: " + source);
+        }
+        int offset = HEADER_SIZE;
+        IntBuffer offsets = slice(image, offset, 4 * (targetCount + 1)).asIntBuffer();
+        offset += 4 * (targetCount + 1);
+        IntBuffer subtreeEnds = slice(image, offset, 4 * nodeCount).asIntBuffer();
+        offset += 4 * nodeCount;
+        IntBuffer nodeTargets = slice(image, offset, 4 * nodeCount).asIntBuffer();
+        offset += 4 * nodeCount;
+        CharBuffer chars = slice(image, offset, 2 * charCount).asCharBuffer();
+        offset += 2 * charCount;
+        CharBuffer labels = slice(image, offset, 2 * nodeCount).asCharBuffer();
+        return new FuzzyIndex(maxEditDistance, chars, offsets, labels, subtreeEnds, nodeTargets);
+    }
+
+    /** Writes the index to {@code path}, in the format {@link #map(File)} reads. */
+    public void writeTo(File path) throws IOException {
+        int size = size();
+        int charCount = chars.limit();
+        int nodeCount = labels.limit();
+        long imageSize = imageSize(size, charCount, nodeCount);
+        if (imageSize > Integer.MAX_VALUE) {
+            throw new IOException("Index too large to map: " + imageSize + " bytes");
+        }
+        ByteBuffer image = ByteBuffer.allocate((int) imageSize).order(ByteOrder.LITTLE_ENDIAN);
+        image.putInt(MAGIC).putInt(VERSION).putInt(maxEditDistance).putInt(size).putInt(charCount)
+                .putInt(nodeCount);
+        putInts(image, offsets);
+        putInts(image, subtreeEnds);
+        putInts(image, nodeTargets);
+        putChars(image, chars);
+        putChars(image, labels);
+        image.flip();
+        try (FileOutputStream out = new FileOutputStream(path)) {
+            FileChannel channel = out.getChannel();
+            while (image.hasRemaining()) {
+                channel.write(image);
+            }
+        }
+    }
+
+    /** Returns the number of indexed targets. */
+    public int size() {
+        return offsets.limit() - 1;
+    }
+
+    /** Returns the normalized target with the given id. */
+    public String target(int targetId) {
+        return chars.subSequence(offsets.get(targetId), offsets.get(targetId + 1)).toString();
+    }
+
+    /** Returns the normalized targets, read from the index on demand, in id order. */
+    public List<String> targets() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                if (index < 0 || index >= size()) {
+                    throw new IndexOutOfBoundsException("Target " + index + " of " + size());
+                }
+                return target(index);
+            }
+
+            @Override
+            public int size() {
+                return FuzzyIndex.this.size();
+            }
+        };
+    }
+
+    public int getMaxEditDistance() {
+        return maxEditDistance;
+    }
+
+    /**
+     * Returns the size of the index in bytes, as written by {@link #writeTo(File)}. A built index
+     * holds that much heap; a mapped one holds none, only pages of its file.
+     */
+    public long sizeBytes() {
+        return imageSize(size(), chars.limit(), labels.limit());
+    }
+
+    /** Creates a searcher over this index. Each thread doing lookups needs its own searcher. */
+    public Searcher newSearcher() {
+        return new Searcher();
+    }
+
+    private static long imageSize(int size, int charCount, int nodeCount) {
+        long ints = (size + 1L) + 2L * nodeCount;
+        return HEADER_SIZE + 4 * ints + 2L * charCount + 2L * nodeCount;
+    }
+
+    /** Returns {@code length} bytes of {@code image} from {@code position}, little-endian. */
+    private static ByteBuffer slice(ByteBuffer image, int position, int length) {
+        ByteBuffer duplicate = image.duplicate();
+        duplicate.limit(position + length);
+        duplicate.position(position);
+        return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void putInts(ByteBuffer image, IntBuffer values) {
+        for (int i = 0, count = values.limit(); i < count; i++) {
+            image.putInt(values.get(i));
+        }
+    }
+
+    private static void putChars(ByteBuffer image, CharBuffer values) {
+        for (int i = 0, count = values.limit(); i < count; i++) {
+            image.putChar(values.get(i));
+        }
+    }
+
+    /** Performs lookups against the enclosing index, reusing its scratch buffers between calls. */
+    public final class Searcher {
+        /**
+         * Bit {@code i + 1} of the mask of a char is set if the token being looked up has that
+         * char at {@code i}. Only ASCII chars have a mask here; see {@link #matchMask}.
+         */
+        private final long[] asciiMasks = new long[ASCII_SIZE];
+        /**
+         * For tokens of fewer than 64 chars, the states of the bit-parallel automaton, {@code
+         * maxEditDistance + 1} words per depth of the current path. Bit {@code i} of word {@code
+         * e} is set if the first {@code i} chars of the token are within {@code e} edits of the
+         * path.
+         */
+        private long[] states = new long[0];
+        /**
+         * For longer tokens, rows of the edit distance table, one per depth of the current path,
+         * each with an entry per token prefix, from the empty one.
+         */
+        private int[] rows = new int[0];
+        /** The subtree ends of the nodes on the current path, by depth. */
+        private int[] pathEnds = new int[0];
+        /** The most similar target of the current lookup so far, and its similarity. */
+        private int bestTarget;
+        private double bestSimilarity;
+
+        private Searcher() {}
+
+        /**
+         * Returns the id of the target most similar to the first {@code length} chars of {@code
+         * token}, or {@link TargetMatcher#NO_MATCH} if no target within the index's edit distance
+         * is more than {@code minSimilarity} similar. Similarity is defined as in {@link
+         * Similarity#similarity(String, String)}; of equally similar targets, the lowest id wins.
+         */
+        public int search(char[] token, int length, double minSimilarity) {
+            bestTarget = TargetMatcher.NO_MATCH;
+            bestSimilarity = minSimilarity;
+            if (length == 0) {
+                return TargetMatcher.NO_MATCH;
+            }
+            // Paths longer than length + maxEditDistance are more than maxEditDistance insertions
+            // away from the token, so the walk gets at most one node deeper.
+            int maxDepth = length + maxEditDistance + 1;
+            if (pathEnds.length < maxDepth + 1) {
+                pathEnds = new int[maxDepth + 1];
+            }
+            if (length < Long.SIZE) {
+                searchBitParallel(token, length, maxDepth);
+            } else {
+                searchRows(token, length, maxDepth);
+            }
+            return bestTarget;
+        }
+
+        /**
+         * Walks the trie with the states of a Levenshtein automaton for the token, as bit vectors
+         * that take a handful of word operations per node and edit.
+         */
+        private void searchBitParallel(char[] token, int length, int maxDepth) {
+            int width = maxEditDistance + 1;
+            if (states.length < (maxDepth + 1) * width) {
+                states = new long[(maxDepth + 1) * width];
+            }
+            long[] states = this.states;
+            int[] pathEnds = this.pathEnds;
+            for (int i = 0; i < length; i++) {
+                if (token[i] < ASCII_SIZE) {
+                    asciiMasks[token[i]] |= 1L << (i + 1);
+                }
+            }
+            long valid = -1L >>> (Long.SIZE - 1 - length);
+            long whole = 1L << length;
+            // The empty path: up to e chars of the token are deleted.
+            for (int e = 0; e < width; e++) {
+                states[e] = ((1L << (e + 1)) - 1) & valid;
+            }
+
+            int nodeCount = labels.limit();
+            pathEnds[0] = nodeCount;
+            int parentDepth = 0;
+            int node = 1;
+            while (node < nodeCount) {
+                while (node >= pathEnds[parentDepth]) {
+                    parentDepth--;
+                }
+                int depth = parentDepth + 1;
+                long match = matchMask(token, length, labels.get(node));
+                int parent = parentDepth * width;
+                int state = depth * width;
+                long parentFewer = states[parent];
+                long fewer = (parentFewer << 1) & match;
+                states[state] = fewer;
+                for (int e = 1; e < width; e++) {
+                    long parentEdits = states[parent + e];
+                    // A match, or with one more edit: the label inserted, substituted for the next
+                    // token char, or the next token char deleted.
+                    long edits = (((parentEdits << 1) & match) | parentFewer | (parentFewer << 1)
+                            | (fewer << 1)) & valid;
+                    states[state + e] = edits;
+                    parentFewer = parentEdits;
+                    fewer = edits;
+                }
+                if (fewer == 0) {
+                    // No prefix of the token is within maxEditDistance of the path, nor of any
+                    // path below it.
+                    node = subtreeEnds.get(node);
+                    continue;
+                }
+                int targetId = nodeTargets.get(node);
+                if (targetId >= 0 && (fewer & whole) != 0) {
+                    int distance = 0;
+                    while ((states[state + distance] & whole) == 0) {
+                        distance++;
+                    }
+                    offer(targetId, length, depth, distance);
+                }
+                pathEnds[depth] = subtreeEnds.get(node);
+                parentDepth = depth;
+                node++;
+            }
+            for (int i = 0; i < length; i++) {
+                if (token[i] < ASCII_SIZE) {
+                    asciiMasks[token[i]] = 0L;
+                }
+            }
+        }
+
+        private long matchMask(char[] token, int length, char c) {
+            if (c < ASCII_SIZE) {
+                return asciiMasks[c];
+            }
+            long mask = 0L;
+            for (int i = 0; i < length; i++) {
+                if (token[i] == c) {
+                    mask |= 1L << (i + 1);
+                }
+            }
+            return mask;
+        }
+
+        /**
+         * Walks the trie with one row of the edit distance table per node, filled in only within
+         * {@code maxEditDistance} of the diagonal, for tokens too long for {@link
+         * #searchBitParallel}.
+         */
+        private void searchRows(char[] token, int length, int maxDepth) {
+            int maxDistance = maxEditDistance;
+            int columns = length + 1;
+            if (rows.length < (maxDepth + 1) * columns) {
+                rows = new int[(maxDepth + 1) * columns];
+            }
+            int[] rows = this.rows;
+            int[] pathEnds = this.pathEnds;
+            for (int i = 0; i < columns; i++) {
+                rows[i] = i;
+            }
+            // Entries outside the band around the diagonal are not filled in, and read as this.
+            int outside = maxDistance + 1;
+
+            int nodeCount = labels.limit();
+            pathEnds[0] = nodeCount;
+            int parentDepth = 0;
+            int node = 1;
+            while (node < nodeCount) {
+                while (node >= pathEnds[parentDepth]) {
+                    parentDepth--;
+                }
+                int depth = parentDepth + 1;
+                int previous = parentDepth * columns;
+                int row = depth * columns;
+                char label = labels.get(node);
+                int from = Math.max(1, depth - maxDistance);
+                int to = Math.min(length, depth + maxDistance);
+                int previousTo = Math.min(length, parentDepth + maxDistance);
+                int left = outside;
+                int min = outside;
+                if (depth <= maxDistance) {
+                    rows[row] = depth;
+                    left = depth;
+                    min = depth;
+                }
+                for (int i = from; i <= to; i++) {
+                    int above = i <= previousTo ? rows[previous + i] : outside;
+                    int diagonal = rows[previous + i - 1] + (token[i - 1] == label ? 0 : 1);
+                    int distance = Math.min(Math.min(left, above) + 1, diagonal);
+                    rows[row + i] = distance;
+                    left = distance;
+                    min = Math.min(min, distance);
+                }
+                if (min > maxDistance) {
+                    node = subtreeEnds.get(node);
+                    continue;
+                }
+                int targetId = nodeTargets.get(node);
+                if (targetId >= 0 && to == length && rows[row + length] <= maxDistance) {
+                    offer(targetId, length, depth, rows[row + length]);
+                }
+                pathEnds[depth] = subtreeEnds.get(node);
+                parentDepth = depth;
+                node++;
+            }
+        }
+
+        /**
+         * Keeps the target of {@code targetLength} chars at {@code distance} edits from the token
+         * if it is the most similar one so far, which also makes it more than {@code minSimilarity}
+         * similar.
+         */
+        private void offer(int targetId, int length, int targetLength, int distance) {
+            int longerLength = Math.max(length, targetLength);
+            double similarity = (longerLength - distance) / (double) longerLength;
+            if (similarity > bestSimilarity || (similarity == bestSimilarity
+                    && bestTarget != TargetMatcher.NO_MATCH && targetId < bestTarget)) {
+                bestSimilarity = similarity;
+                bestTarget = targetId;
+            }
+        }
+
+        /**
+         * Returns the lowest id of the targets equal to the first {@code length} chars of {@code
+         * token}, or {@link TargetMatcher#NO_MATCH} if there is none.
+         */
+        public int find(char[] token, int length) {
+            if (length == 0) {
+                return TargetMatcher.NO_MATCH;
+            }
+            int node = 0;
+            for (int i = 0; i < length; i++) {
+                // Children follow their parent, in label order, each after the subtree of the last.
+                int end = subtreeEnds.get(node);
+                int child = node + 1;
+                while (child < end && labels.get(child) < token[i]) {
+                    child = subtreeEnds.get(child);
+                }
+                if (child >= end || labels.get(child) != token[i]) {
+                    return TargetMatcher.NO_MATCH;
+                }
+                node = child;
+            }
+            return nodeTargets.get(node);
+        }
+    }
+}
@@ -7,8 +7,8 @@ import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.view.View;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
@@ -17,18 +17,39 @@ import androidx.core.content.ContextCompat;
 
 import com.google.mlkit.vision.text.Text;
 
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Set;
 
 public class GraphicOverlay extends View {
 
     private final Object lock = new Object();
     private int previewWidth;
-    private float widthScaleFactor = 1.0f;
     private int previewHeight;
-    private float heightScaleFactor = 1.0f;
-    private Set<Graphic> graphics = new HashSet<>();
-    private Text text;
+    /** Maps recognized image coordinates to this view; replaced whenever the mapping changes. */
+    private volatile ViewTransform transform = ViewTransform.IDENTITY;
+    /**
+     * Graphics in drawing order, the last on top. Never modified, only replaced under {@link #lock}
+     * by a new array, so that {@link #onDraw} draws a consistent snapshot without the lock.
+     */
+    private volatile Graphic[] graphics = NO_GRAPHICS;
+    private static final Graphic[] NO_GRAPHICS = new Graphic[0];
+    private volatile TrackedHighlights highlights = TrackedHighlights.EMPTY;
+    /**
+     * {@code System.nanoTime()} at which the frame of {@link #highlights} was captured, until they
+     * are first drawn; {@link #NO_FRAME} after that.
+     */
+    private volatile long pendingFrameStart = NO_FRAME;
+    private static final long NO_FRAME = HighlightRenderer.NO_FRAME;
+    private volatile PipelineMetrics metrics;
+    /** Draws the highlights for {@link #onDraw}, which only runs on the UI thread. */
+    private final HighlightRenderer renderer = new HighlightRenderer(HIGHLIGHT_STROKE_WIDTH / 2);
+    private final CanvasTarget canvasTarget = new CanvasTarget();
+    /** Region changed by a new set of highlights; guarded by {@link #lock}. */
+    private final DirtyRegion changedRegion = new DirtyRegion(HIGHLIGHT_STROKE_WIDTH / 2);
+    private static final float HIGHLIGHT_STROKE_WIDTH = 4.0f;
     private Paint paint;
     private String highlightString;
     private static final int TEXT_COLOR = Color.TRANSPARENT;
@@ -43,7 +64,6 @@ public class GraphicOverlay extends View {
     private ImageView tickMarkImageView;
     private Context mContext;
     private static final float MIN_CONFIDENCE = 0.8f;
-    private String[] filteredWords;
 
     /**
      * Base class for a custom graphics object to be rendered within the graphic overlay. Subclass
@@ -76,12 +96,12 @@ public class GraphicOverlay extends View {
          * Adjusts a horizontal value of the supplied value from the preview scale to the view scale.
          */
         public float scaleX(float horizontal) {
-            return horizontal * overlay.widthScaleFactor;
+            return overlay.transform.mapLengthX(horizontal);
         }
 
         /** Adjusts a vertical value of the supplied value from the preview scale to the view scale. */
         public float scaleY(float vertical) {
-            return vertical * overlay.heightScaleFactor;
+            return overlay.transform.mapLengthY(vertical);
         }
 
         /** Returns the application context of the app. */
@@ -93,18 +113,14 @@ public class GraphicOverlay extends View {
          * Adjusts the x coordinate from the preview's coordinate system to the view coordinate system.
          */
         public float translateX(float x) {
-            if (overlay.facing == CameraSource.CAMERA_FACING_FRONT) {
-                return overlay.getWidth() - scaleX(x);
-            } else {
-                return scaleX(x);
-            }
+            return overlay.translateX(x);
         }
 
         /**
          * Adjusts the y coordinate from the preview's coordinate system to the view coordinate system.
          */
         public float translateY(float y) {
-            return scaleY(y);
+            return overlay.translateY(y);
         }
 
         public void postInvalidate() {
@@ -122,40 +138,155 @@ public class GraphicOverlay extends View {
 
     /** Removes all graphics from the overlay. */
     public void clear() {
+        replaceAll(Collections.<Graphic>emptyList());
+    }
+
+    /** Adds a graphic to the overlay, on top of the others, unless it is already there. */
+    public void add(Graphic graphic) {
+        addAll(Collections.singletonList(graphic));
+    }
+
+    /**
+     * Adds graphics on top of the others, in the order given, as one update: the overlay is redrawn
+     * once, and never shows only some of them. Graphics already on the overlay keep their place.
+     */
+    public void addAll(Collection<? extends Graphic> added) {
+        boolean changed;
         synchronized (lock) {
-            graphics.clear();
+            Graphic[] current = graphics;
+            Graphic[] next = distinct(current, added);
+            changed = next.length != current.length;
+            graphics = next;
+        }
+        if (changed) {
+            postInvalidate();
         }
-        postInvalidate();
     }
 
-    /** Adds a graphic to the overlay. */
-    public void add(Graphic graphic) {
+    /**
+     * Replaces all graphics with the given ones, in the order given, as one update, for example with
+     * those of a newly recognized frame.
+     */
+    public void replaceAll(Collection<? extends Graphic> replacements) {
+        boolean changed;
         synchronized (lock) {
-            graphics.add(graphic);
+            Graphic[] current = graphics;
+            Graphic[] next = distinct(NO_GRAPHICS, replacements);
+            changed = !Arrays.equals(next, current);
+            graphics = next;
+        }
+        if (changed) {
+            postInvalidate();
         }
-        postInvalidate();
     }
 
-    public void setText(Text text, String highlighted, String[] filteredWords) {
+    /**
+     * Removes graphics from the overlay as one update: the overlay is redrawn once, and never shows
+     * only some of them gone. Graphics not on the overlay are ignored.
+     */
+    public void removeAll(Collection<? extends Graphic> removed) {
+        boolean changed;
+        synchronized (lock) {
+            Graphic[] current = graphics;
+            Graphic[] next = without(current, removed);
+            changed = next != current;
+            graphics = next;
+        }
+        if (changed) {
+            postInvalidate();
+        }
+    }
 
-        this.text = text;
-        this.highlightString = highlighted;
-        this.filteredWords = filteredWords;
-        /*if (highlightString.contains(" ")){
-            Log.d(LiveTextRecognitionActivity.class.getSimpleName(), "Yes, string contains space...");
-        }else {
-            Log.d(LiveTextRecognitionActivity.class.getSimpleName(), "No, string doesn't contains space...");
-        }*/
-        Log.d(GraphicOverlay.class.getSimpleName(), "Result String : "+ highlightString);
-        invalidate(); // Trigger a redraw when the text changes
+    /**
+     * Returns {@code base} followed by those of {@code added} that are not in it yet, each once.
+     * Graphics are told apart by identity, through a hash set, so that adding hundreds at once
+     * stays linear.
+     */
+    static Graphic[] distinct(Graphic[] base, Collection<? extends Graphic> added) {
+        Set<Graphic> seen = identitySet(base.length + added.size());
+        Collections.addAll(seen, base);
+        Graphic[] result = Arrays.copyOf(base, base.length + added.size());
+        int count = base.length;
+        for (Graphic graphic : added) {
+            if (seen.add(graphic)) {
+                result[count++] = graphic;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
     }
 
-    /** Removes a graphic from the overlay. */
-    public void remove(Graphic graphic) {
+    /** Returns {@code base} without those of {@code removed}, or {@code base} if none are in it. */
+    static Graphic[] without(Graphic[] base, Collection<? extends Graphic> removed) {
+        Set<Graphic> gone = identitySet(removed.size());
+        gone.addAll(removed);
+        Graphic[] result = new Graphic[base.length];
+        int count = 0;
+        for (Graphic graphic : base) {
+            if (!gone.contains(graphic)) {
+                result[count++] = graphic;
+            }
+        }
+        return count == base.length ? base : Arrays.copyOf(result, count);
+    }
+
+    private static Set<Graphic> identitySet(int expectedSize) {
+        return Collections.newSetFromMap(new IdentityHashMap<Graphic, Boolean>(expectedSize));
+    }
+
+    /**
+     * Replaces the highlights drawn by this overlay. Safe to call from any thread; the highlights
+     * are expected to have been matched and mapped to view coordinates off the UI thread, see
+     * {@link HighlightExtractor}.
+     */
+    public void setHighlights(HighlightResult highlights) {
+        setTrackedHighlights(TrackedHighlights.fixed(highlights));
+    }
+
+    /**
+     * Replaces the highlights drawn by this overlay with tracked ones, which are moved along their
+     * velocity on every drawn frame until they expire, see {@link BoxTracker}. Safe to call from any
+     * thread.
+     */
+    public void setTrackedHighlights(TrackedHighlights highlights) {
+        setTrackedHighlights(highlights, NO_FRAME);
+    }
+
+    /**
+     * Like {@link #setTrackedHighlights(TrackedHighlights)} for highlights recognized in a new frame,
+     * captured at {@code frameStartNanos} on the {@code System.nanoTime()} clock. The first draw of
+     * the highlights is recorded as {@link PipelineMetrics.Stage#END_TO_END} latency.
+     *
+     * <p>Only the part of the overlay where the highlights differ from the current ones, as they
+     * would be drawn now, is invalidated, and nothing at all if they are the same, as they are while
+     * the scene holds still. No latency is recorded then, since nothing new is shown.
+     */
+    public void setTrackedHighlights(TrackedHighlights highlights, long frameStartNanos) {
+        EventTracer.getDefault().counter(EventTracer.Event.HIGHLIGHTS, highlights.size());
+        int left;
+        int top;
+        int right;
+        int bottom;
         synchronized (lock) {
-            graphics.remove(graphic);
+            boolean changed = changedRegion.diff(this.highlights, highlights,
+                    SystemClock.uptimeMillis());
+            this.highlights = highlights;
+            if (!changed) {
+                return;
+            }
+            pendingFrameStart = frameStartNanos;
+            left = changedRegion.getLeft();
+            top = changedRegion.getTop();
+            right = changedRegion.getRight();
+            bottom = changedRegion.getBottom();
         }
-        postInvalidate();
+        // Hardware accelerated windows work out the damaged area themselves and only take this as
+        // a hint, but they still skip the redraw when nothing is invalidated.
+        postInvalidate(left, top, right, bottom);
+    }
+
+    /** Removes a graphic from the overlay. */
+    public void remove(Graphic graphic) {
+        removeAll(Collections.singletonList(graphic));
     }
 
     /**
@@ -163,21 +294,60 @@ public class GraphicOverlay extends View {
      * coordinates later.
      */
     public void setCameraInfo(int previewWidth, int previewHeight) {
+        boolean changed;
         synchronized (lock) {
+            changed = previewWidth != this.previewWidth || previewHeight != this.previewHeight;
             this.previewWidth = previewWidth;
             this.previewHeight = previewHeight;
-            overlayWidth = previewWidth - 150;
-            overlayHeight = previewHeight + 150;
             //this.facing = facing;
         }
-        postInvalidate();
+        if (changed) {
+            postInvalidate();
+        }
+    }
+
+    /**
+     * Sets how coordinates of the recognized image map to this view, including any mirroring of a
+     * front-facing camera. See {@link AnalysisViewport#getImageToView()}.
+     */
+    public void setTransform(ViewTransform transform) {
+        this.transform = transform;
+    }
+
+    public ViewTransform getTransform() {
+        return transform;
+    }
+
+    /** Records draw and end-to-end latencies to the given metrics, or stops if it is null. */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /** Draws the highlights of {@link #renderer} on the canvas {@link #onDraw} is drawing. */
+    private final class CanvasTarget implements HighlightRenderer.Target {
+        Canvas canvas;
+
+        @Override
+        public void drawBox(float left, float top, float right, float bottom) {
+            canvas.drawRect(left, top, right, bottom, paint);
+        }
+
+        @Override
+        public void invalidateOnAnimation(int left, int top, int right, int bottom) {
+            postInvalidateOnAnimation(left, top, right, bottom);
+        }
+
+        @Override
+        public void invalidateDelayed(long delayMillis) {
+            postInvalidateDelayed(delayMillis);
+        }
     }
 
     private void init() {
         paint = new Paint();
         paint.setColor(TEXT_COLOR_GREEN);
         paint.setStyle(Paint.Style.FILL_AND_STROKE);
-        paint.setStrokeWidth(4.0f);
+        paint.setStrokeWidth(HIGHLIGHT_STROKE_WIDTH);
 
         rectPaint = new Paint();
 
@@ -194,85 +364,23 @@ public class GraphicOverlay extends View {
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
 
-        if (text != null) {
-            for (String textToHighlight : filteredWords) {
-                for (Text.TextBlock block : text.getTextBlocks()) {
-                    for (Text.Line line : block.getLines()) {
-                        if (!line.getText().isEmpty() && line.getText().length() != 0){
-                            String lineText = line.getText().toLowerCase();
-                            String[] words = lineText.split("[-\n\\s]+");
-                            for (int i = 0; i < words.length; i++) {
-                                String word = words[i].trim();
-                                if (!word.isEmpty() && similarity(words[i].toLowerCase(), textToHighlight.toLowerCase()) > 0.5) {
-                                    try {
-                                        Text.Element element = line.getElements().get(i);
-                                        Log.d(GraphicOverlay.class.getSimpleName(), "Highlighting element: " + element.getText());
-
-                                        Rect boundingBox = element.getBoundingBox();
-                                        float top = translateY(boundingBox.top);
-                                        float right = translateX(boundingBox.right);
-
-//                                        Path tickPath = new Path();
-//                                        tickPath.moveTo(top - 30.0f, right);
-//                                        tickPath.lineTo(top, right + 30.0f);
-//                                        tickPath.lineTo(top + 30.0f, right - 30.0f);
-//                                        canvas.drawPath(tickPath, paint);
-
-                                        // Draws the bounding box around the TextBlock.
-                                        RectF rect = new RectF(element.getBoundingBox());
-                                        rect.left = translateX(rect.left);
-                                        rect.top = translateY(rect.top);
-                                        rect.right = translateX(rect.right);
-                                        rect.bottom = translateY(rect.bottom);
-                                        // canvas.drawRect(rect, rectPaint);
-
-
-                                        float centerX = rect.right;
-
-                                        float centerY = rect.top;
-                                        Paint tickPaint = new Paint();
-
-                                        tickPaint.setColor(TICK_COLOR);  // Set your desired color for the tick
-
-                                        tickPaint.setStrokeWidth(5);     // Set the width of the tick lines
-
-
-// Draw the tick mark with rotation
-
-                                        float tickSize = 20;  // Adjust the size of the tick as needed
-
-                                        float rotationDegrees = 30; // Adjust the rotation angle as needed
-
-
-                                        canvas.save();  // Save the current canvas state
-
-//                                        canvas.rotate(rotationDegrees, centerX, centerY);  // Apply rotation
-
-
-// Draw the vertical line of the tick
-
-                                        canvas.drawRect(rect,paint);
-
-//                                        canvas.drawLine(centerX, centerY - tickSize, centerX, centerY + tickSize, tickPaint);
-
-
-// Draw the diagonal line of the tick
-
-//                                        canvas.drawLine(centerX - tickSize, centerY, centerX, centerY + tickSize, tickPaint);
-
-
-                                        canvas.restore();
-                                    } catch (Exception e) {
-                                        e.printStackTrace();
-                                    }
-                                }
-                            }
-                        }
-
-                    }
-                }
+        // Nothing in here allocates, see HighlightRenderer.
+        long drawStart = System.nanoTime();
+        for (Graphic graphic : graphics) {
+            graphic.draw(canvas);
+        }
+        PipelineMetrics metrics = this.metrics;
+        long frameStart = NO_FRAME;
+        if (metrics != null) {
+            frameStart = pendingFrameStart;
+            if (frameStart != NO_FRAME) {
+                pendingFrameStart = NO_FRAME;
             }
         }
+        canvasTarget.canvas = canvas;
+        renderer.draw(highlights, SystemClock.uptimeMillis(), canvasTarget, drawStart, frameStart,
+                metrics);
+        canvasTarget.canvas = null;
 
         /**without error word is highlighting but only for 0th position*/
         /*if (text != null) {
@@ -389,12 +497,16 @@ public class GraphicOverlay extends View {
 
     }
 
+    /**
+     * Maps an image x coordinate to the view. Like {@link #translateY(float)} this only applies to
+     * transforms that do not rotate; map whole rectangles with {@link ViewTransform#mapRects}.
+     */
     public float translateX(float x) {
-        return x * getWidth() / overlayWidth;
+        return transform.mapX(x, 0);
     }
 
     public float translateY(float y) {
-        return y * getHeight() / overlayHeight;
+        return transform.mapY(0, y);
     }
 
     public float translateX(float x, float overlayWidth) {
@@ -404,8 +516,6 @@ public class GraphicOverlay extends View {
     public float translateY(float y, float overlayHeight) {
         return y * getHeight() / overlayHeight;
     }
-    private int overlayWidth;
-    private int overlayHeight;
     /** Draws the overlay with its associated graphic objects. */
 /*   @Override
     protected void onDraw(Canvas canvas) {
@@ -476,86 +586,19 @@ public class GraphicOverlay extends View {
 
     }*/
 
+    /** See {@link Similarity#calculateSimilarity(String, String)}. */
     public static double calculateSimilarity(String s1, String s2) {
-        int maxLength = Math.max(s1.length(), s2.length());
-
-        if (maxLength == 0) {
-            return 1.0;  // Both strings are empty, so they are considered identical
-        }
-
-        int levenshteinDistance = calculateLevenshteinDistance(s1, s2);
-        return 1.0 - (double) levenshteinDistance / maxLength;
-    }
-
-    private static int calculateLevenshteinDistance(String s1, String s2) {
-        s1 = s1.toLowerCase();
-        s2 = s2.toLowerCase();
-
-        int[] costs = new int[s2.length() + 1];
-        for (int i = 0; i <= s1.length(); i++) {
-            int lastValue = i;
-            for (int j = 0; j <= s2.length(); j++) {
-                if (i == 0) {
-                    costs[j] = j;
-                } else {
-                    if (j > 0) {
-                        int newValue = costs[j - 1];
-                        if (s1.charAt(i - 1) != s2.charAt(j - 1)) {
-                            newValue = Math.min(Math.min(newValue, lastValue), costs[j]) + 1;
-                        }
-                        costs[j - 1] = lastValue;
-                        lastValue = newValue;
-                    }
-                }
-            }
-            if (i > 0) {
-                costs[s2.length()] = lastValue;
-            }
-        }
-        return costs[s2.length()];
+        return Similarity.calculateSimilarity(s1, s2);
     }
 
-
+    /** See {@link Similarity#similarity(String, String)}. */
     public static double similarity(String s1, String s2) {
-        String longer = s1, shorter = s2;
-        if (s1.length() < s2.length()) { // longer should always have greater length
-            longer = s2; shorter = s1;
-        }
-        int longerLength = longer.length();
-        if (longerLength == 0) { return 1.0; /* both strings are zero length */ }
-
-        double percentage =  (longerLength - editDistance(longer, shorter)) / (double) longerLength;
-        Log.d("similarity",percentage+"");
-        return percentage;
+        return Similarity.similarity(s1, s2);
     }
 
-    // Example implementation of the Levenshtein Edit Distance
-// See http://rosettacode.org/wiki/Levenshtein_distance#Java
+    /** See {@link Similarity#editDistance(String, String)}. */
     public static int editDistance(String s1, String s2) {
-        s1 = s1.toLowerCase();
-        s2 = s2.toLowerCase();
-
-        int[] costs = new int[s2.length() + 1];
-        for (int i = 0; i <= s1.length(); i++) {
-            int lastValue = i;
-            for (int j = 0; j <= s2.length(); j++) {
-                if (i == 0)
-                    costs[j] = j;
-                else {
-                    if (j > 0) {
-                        int newValue = costs[j - 1];
-                        if (s1.charAt(i - 1) != s2.charAt(j - 1))
-                            newValue = Math.min(Math.min(newValue, lastValue),
-                                    costs[j]) + 1;
-                        costs[j - 1] = lastValue;
-                        lastValue = newValue;
-                    }
-                }
-            }
-            if (i > 0)
-                costs[s2.length()] = lastValue;
-        }
-        return costs[s2.length()];
+        return Similarity.editDistance(s1, s2);
     }
 
 
@@ -0,0 +1,70 @@
+package com.text.recognition;
+
+import java.util.Arrays;
+
+/**
+ * The boxes of {@link TrackedHighlights} as of one drawn frame, packed into a reused buffer so that
+ * {@link HighlightRenderer} draws them in a single pass without allocating. The buffer only grows, so
+ * once it has held the most highlights on screen, drawing allocates nothing at all.
+ *
+ * <p>Also lays out the tick marks of {@link TextGraphic} as line segments for {@code
+ * Canvas.drawLines}, rotated in place rather than by rotating the canvas.
+ *
+ * <p>Instances are not thread safe; they are meant to be used from the UI thread only.
+ */
+public final class HighlightBatch {
+
+    /** Floats written by {@link #writeTick}: two segments of two points each. */
+    public static final int TICK_FLOATS = 8;
+    private static final double TICK_ROTATION = Math.toRadians(30);
+    private static final float TICK_COS = (float) Math.cos(TICK_ROTATION);
+    private static final float TICK_SIN = (float) Math.sin(TICK_ROTATION);
+
+    /** Packed {@code left, top, right, bottom} per box. */
+    private float[] rects = new float[64];
+    private int count;
+    private final float[] box = new float[4];
+
+    /** Fills the batch with the boxes of the unexpired highlights at {@code nowMillis}. */
+    public int fill(TrackedHighlights highlights, long nowMillis) {
+        count = 0;
+        for (int i = 0, size = highlights.size(); i < size; i++) {
+            if (!highlights.boxAt(i, nowMillis, box)) {
+                continue;
+            }
+            if (rects.length < (count + 1) * 4) {
+                rects = Arrays.copyOf(rects, Math.max(rects.length * 2, size * 4));
+            }
+            System.arraycopy(box, 0, rects, count * 4, 4);
+            count++;
+        }
+        return count;
+    }
+
+    /** Returns the number of boxes in the batch. */
+    public int size() {
+        return count;
+    }
+
+    /** Returns the packed boxes; the first {@code size() * 4} floats are valid until the next fill. */
+    public float[] rects() {
+        return rects;
+    }
+
+    /**
+     * Writes a tick mark anchored at {@code x, y} to {@code out} at {@code offset}: a vertical stroke
+     * of twice {@code size} and a diagonal one leading into its bottom, tilted together by 30 degrees.
+     */
+    public static void writeTick(float x, float y, float size, float[] out, int offset) {
+        // Vertical stroke, then the diagonal, as offsets from the anchor before the rotation.
+        rotate(x, y, 0, -size, out, offset);
+        rotate(x, y, 0, size, out, offset + 2);
+        rotate(x, y, -size, 0, out, offset + 4);
+        rotate(x, y, 0, size, out, offset + 6);
+    }
+
+    private static void rotate(float x, float y, float dx, float dy, float[] out, int offset) {
+        out[offset] = x + dx * TICK_COS - dy * TICK_SIN;
+        out[offset + 1] = y + dx * TICK_SIN + dy * TICK_COS;
+    }
+}
@@ -0,0 +1,179 @@
+package com.text.recognition;
+
+/**
+ * Turns a {@link RecognizedText} into a {@link HighlightResult}. This does all of the matching
+ * that used to happen in {@link GraphicOverlay#onDraw}, and is meant to run on the analysis
+ * executor right after recognition succeeds so the UI thread only has to draw the result. It has
+ * no Android dependencies, so recorded sessions replay through it on a plain JVM, see {@link
+ * SessionReplay}.
+ *
+ * <p>Highlights of other detectors run on the same frame, such as barcodes, are merged into the
+ * same result by collecting them between {@link #begin()} and {@link #finish(ViewTransform)}.
+ *
+ * <p>Instances reuse their matcher's scratch buffers and are not thread safe.
+ */
+public class HighlightExtractor {
+
+    private final TargetMatcher targetMatcher;
+    private final PhraseMatcher phraseMatcher;
+    private final HighlightResult.Builder builder = new HighlightResult.Builder();
+    /** The normalized elements of the text being added, shared by phrase and word matching. */
+    private final FrameTokens tokens = new FrameTokens();
+    private final float[] box = new float[4];
+
+    public HighlightExtractor(TargetMatcher targetMatcher) {
+        this(targetMatcher, PhraseMatcher.compile());
+    }
+
+    public HighlightExtractor(TargetMatcher targetMatcher, PhraseMatcher phraseMatcher) {
+        this.targetMatcher = targetMatcher;
+        this.phraseMatcher = phraseMatcher;
+    }
+
+    public TargetMatcher getTargetMatcher() {
+        return targetMatcher;
+    }
+
+    public PhraseMatcher getPhraseMatcher() {
+        return phraseMatcher;
+    }
+
+    /**
+     * Returns the target id that highlights of the given phrase carry. Phrase ids follow the word
+     * target ids, so that both share the id space of {@link HighlightResult#targetId(int)}.
+     */
+    public int phraseTargetId(int phraseId) {
+        return targetMatcher.targetCount() + phraseId;
+    }
+
+    /**
+     * Matches every line of {@code text} against the phrases and every remaining word against the
+     * targets, and maps the bounding boxes of the matches to view coordinates with {@code
+     * imageToView}, all in one batch at the end. A matched phrase is highlighted as one rectangle
+     * around all of its elements, and its words are not highlighted again on their own.
+     */
+    public HighlightResult extract(RecognizedText text, ViewTransform imageToView) {
+        begin();
+        addText(text);
+        return finish(imageToView);
+    }
+
+    /** Starts collecting the highlights of a frame. */
+    public void begin() {
+        builder.reset();
+    }
+
+    /**
+     * Adds the highlights of recognized text, as {@link #extract} finds them. Every element is
+     * normalized once, see {@link FrameTokens}, however many phrases and targets there are. An
+     * element holding several words, such as a hyphenated one, is highlighted if any of them
+     * matches a target.
+     */
+    public void addText(RecognizedText text) {
+        float[] box = this.box;
+        FrameTokens tokens = this.tokens.reset(text);
+        char[] chars = tokens.chars();
+        for (int line = 0, lineCount = tokens.lineCount(); line < lineCount; line++) {
+            int elementCount = tokens.elementCount(line);
+            if (elementCount == 0) {
+                continue;
+            }
+            int phraseCount = extractPhrases(text, line, elementCount);
+            int phrase = 0;
+            for (int i = 0; i < elementCount; i++) {
+                while (phrase < phraseCount && phraseMatcher.matchEnd(phrase) <= i) {
+                    phrase++;
+                }
+                if (phrase < phraseCount && phraseMatcher.matchStart(phrase) <= i) {
+                    continue;
+                }
+                int targetId = matchElement(chars, tokens.start(line, i), tokens.end(line, i));
+                if (targetId == TargetMatcher.NO_MATCH) {
+                    continue;
+                }
+                if (!text.elementBox(line, i, box)) {
+                    continue;
+                }
+                EventTracer.getDefault().instant(EventTracer.Event.HIGHLIGHT, targetId);
+                builder.add(box[0], box[1], box[2], box[3], targetId);
+            }
+        }
+    }
+
+    /**
+     * Adds a highlight for a decoded code, such as a barcode, if its value is one of the targets,
+     * see {@link TargetMatcher#matchExactly(String)}. The box is in image coordinates.
+     *
+     * @return whether the code matched a target
+     */
+    public boolean addCode(String value, float left, float top, float right, float bottom) {
+        int targetId = targetMatcher.matchExactly(value.trim());
+        if (targetId == TargetMatcher.NO_MATCH) {
+            return false;
+        }
+        EventTracer.getDefault().instant(EventTracer.Event.HIGHLIGHT, targetId);
+        builder.add(left, top, right, bottom, targetId);
+        return true;
+    }
+
+    /** Maps the highlights collected since {@link #begin()} to view coordinates, in one batch. */
+    public HighlightResult finish(ViewTransform imageToView) {
+        return builder.mapRects(imageToView).build();
+    }
+
+    /**
+     * Returns the target matched by the first word of the normalized element in {@code [start,
+     * end)} of {@code chars} that matches one, or {@link TargetMatcher#NO_MATCH}.
+     */
+    private int matchElement(char[] chars, int start, int end) {
+        int wordStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || chars[i] == ' ') {
+                if (i > wordStart) {
+                    int targetId = targetMatcher.matchNormalized(chars, wordStart, i - wordStart);
+                    if (targetId != TargetMatcher.NO_MATCH) {
+                        return targetId;
+                    }
+                }
+                wordStart = i + 1;
+            }
+        }
+        return TargetMatcher.NO_MATCH;
+    }
+
+    /** Highlights the phrases found in one line of {@link #tokens} and returns their number. */
+    private int extractPhrases(RecognizedText text, int line, int elementCount) {
+        if (phraseMatcher.phraseCount() == 0) {
+            return 0;
+        }
+        phraseMatcher.beginLine();
+        char[] chars = tokens.chars();
+        for (int i = 0; i < elementCount; i++) {
+            phraseMatcher.addNormalizedWord(chars, tokens.start(line, i), tokens.end(line, i));
+        }
+        int matchCount = phraseMatcher.findMatches();
+        float[] box = this.box;
+        for (int m = 0; m < matchCount; m++) {
+            float left = Float.MAX_VALUE;
+            float top = Float.MAX_VALUE;
+            float right = -Float.MAX_VALUE;
+            float bottom = -Float.MAX_VALUE;
+            for (int i = phraseMatcher.matchStart(m), end = phraseMatcher.matchEnd(m); i < end; i++) {
+                if (!text.elementBox(line, i, box)) {
+                    continue;
+                }
+                left = Math.min(left, box[0]);
+                top = Math.min(top, box[1]);
+                right = Math.max(right, box[2]);
+                bottom = Math.max(bottom, box[3]);
+            }
+            if (left > right) {
+                continue;
+            }
+            int targetId = phraseTargetId(phraseMatcher.matchPhrase(m));
+            EventTracer.getDefault().instant(EventTracer.Event.HIGHLIGHT, targetId);
+            builder.add(left, top, right, bottom, targetId);
+        }
+        return matchCount;
+    }
+}
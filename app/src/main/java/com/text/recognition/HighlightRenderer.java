@@ -0,0 +1,77 @@
+package com.text.recognition;
+
+/**
+ * Draws the highlights of {@link GraphicOverlay}: everything its {@code onDraw} does for them, from
+ * packing the boxes to recording the draw, with only the canvas and invalidation calls left to a
+ * {@link Target}. That keeps the drawing path, and its promise not to allocate, testable on a plain
+ * JVM.
+ *
+ * <p>Each box is filled with its own {@code drawRect}: the canvas has no call that fills many
+ * rectangles at once, and {@code drawLines} would only outline them.
+ *
+ * <p>Instances are not thread safe; they are meant to be used from the UI thread only.
+ */
+final class HighlightRenderer {
+
+    /** {@code frameStartNanos} of a draw that shows no newly recognized frame. */
+    static final long NO_FRAME = Long.MIN_VALUE;
+
+    /** Where the highlights go; implemented by the overlay on top of its canvas. */
+    interface Target {
+        void drawBox(float left, float top, float right, float bottom);
+
+        /** Redraws the given region on the next animation frame. */
+        void invalidateOnAnimation(int left, int top, int right, int bottom);
+
+        /** Redraws the whole view after the given delay. */
+        void invalidateDelayed(long delayMillis);
+    }
+
+    private final HighlightBatch batch = new HighlightBatch();
+    /** Region that moving highlights pass through. */
+    private final DirtyRegion movingRegion;
+
+    /** @param margin added around every box to the redrawn regions, e.g. half the stroke width */
+    HighlightRenderer(float margin) {
+        movingRegion = new DirtyRegion(margin);
+    }
+
+    /**
+     * Draws the unexpired {@code highlights} at {@code nowMillis}, schedules the next redraw they
+     * need, and records the draw, which started at {@code drawStartNanos}, to the tracer and to
+     * {@code metrics} if it is not null. A draw that shows a frame captured at {@code
+     * frameStartNanos} is also recorded as {@link PipelineMetrics.Stage#END_TO_END} latency.
+     *
+     * @return the number of boxes drawn
+     */
+    int draw(TrackedHighlights highlights, long nowMillis, Target target, long drawStartNanos,
+             long frameStartNanos, PipelineMetrics metrics) {
+        int drawn = batch.fill(highlights, nowMillis);
+        float[] rects = batch.rects();
+        for (int offset = 0, end = drawn * 4; offset < end; offset += 4) {
+            target.drawBox(rects[offset], rects[offset + 1], rects[offset + 2], rects[offset + 3]);
+        }
+        // Keep drawing where boxes move at display rate, and redraw once more when one expires.
+        if (movingRegion.sweep(highlights, nowMillis)) {
+            target.invalidateOnAnimation(movingRegion.getLeft(), movingRegion.getTop(),
+                    movingRegion.getRight(), movingRegion.getBottom());
+        } else {
+            long nextExpiry = highlights.nextExpiry(nowMillis);
+            if (nextExpiry != Long.MAX_VALUE) {
+                target.invalidateDelayed(nextExpiry - nowMillis);
+            }
+        }
+        long drawEnd = System.nanoTime();
+        EventTracer.getDefault().span(EventTracer.Event.DRAW, drawStartNanos, drawEnd, drawn);
+        if (metrics != null) {
+            metrics.record(PipelineMetrics.Stage.DRAW, drawEnd - drawStartNanos);
+            if (drawn > 0) {
+                metrics.onMilestone(PipelineMetrics.Milestone.FIRST_HIGHLIGHT, drawEnd);
+            }
+            if (frameStartNanos != NO_FRAME) {
+                metrics.record(PipelineMetrics.Stage.END_TO_END, drawEnd - frameStartNanos);
+            }
+        }
+        return drawn;
+    }
+}
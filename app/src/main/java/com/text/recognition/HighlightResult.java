@@ -0,0 +1,106 @@
+package com.text.recognition;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of highlight rectangles produced from one recognized frame. Rectangles are packed
+ * as {@code left, top, right, bottom} quadruples in view coordinates, each paired with the id of
+ * the target it matched, so that drawing them needs no further matching or allocation.
+ */
+public final class HighlightResult {
+
+    /** Result with no highlights. */
+    public static final HighlightResult EMPTY = new HighlightResult(new float[0], new int[0]);
+
+    private final float[] rects;
+    private final int[] targetIds;
+
+    private HighlightResult(float[] rects, int[] targetIds) {
+        this.rects = rects;
+        this.targetIds = targetIds;
+    }
+
+    /** Returns the number of highlighted rectangles. */
+    public int size() {
+        return targetIds.length;
+    }
+
+    public boolean isEmpty() {
+        return targetIds.length == 0;
+    }
+
+    public float left(int index) {
+        return rects[index * 4];
+    }
+
+    public float top(int index) {
+        return rects[index * 4 + 1];
+    }
+
+    public float right(int index) {
+        return rects[index * 4 + 2];
+    }
+
+    public float bottom(int index) {
+        return rects[index * 4 + 3];
+    }
+
+    /**
+     * Returns the id of the target the rectangle at {@code index} matched; phrases have ids of their
+     * own, see {@link HighlightExtractor#phraseTargetId(int)}.
+     */
+    public int targetId(int index) {
+        return targetIds[index];
+    }
+
+    /** Returns the packed rectangles. Callers must not modify the returned array. */
+    float[] packedRects() {
+        return rects;
+    }
+
+    /**
+     * Accumulates highlights for one frame. A builder can be reused across frames; {@link #build()}
+     * copies out exactly the rectangles added since the last {@link #reset()}.
+     */
+    public static final class Builder {
+        private float[] rects = new float[64];
+        private int[] targetIds = new int[16];
+        private int count;
+
+        public Builder add(float left, float top, float right, float bottom, int targetId) {
+            if (count == targetIds.length) {
+                targetIds = Arrays.copyOf(targetIds, count * 2);
+                rects = Arrays.copyOf(rects, count * 8);
+            }
+            int offset = count * 4;
+            rects[offset] = left;
+            rects[offset + 1] = top;
+            rects[offset + 2] = right;
+            rects[offset + 3] = bottom;
+            targetIds[count++] = targetId;
+            return this;
+        }
+
+        /**
+         * Maps the rectangles added since the last {@link #reset()} in place, in one batch, for
+         * callers that collect them in image coordinates.
+         */
+        public Builder mapRects(ViewTransform transform) {
+            transform.mapRects(rects, 0, count);
+            return this;
+        }
+
+        public Builder reset() {
+            count = 0;
+            return this;
+        }
+
+        public HighlightResult build() {
+            if (count == 0) {
+                return EMPTY;
+            }
+            return new HighlightResult(
+                    Arrays.copyOf(rects, count * 4), Arrays.copyOf(targetIds, count));
+        }
+    }
+}
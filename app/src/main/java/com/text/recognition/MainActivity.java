@@ -1,55 +1,92 @@
 package com.text.recognition;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.OptIn;
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.camera.core.Camera;
+import androidx.camera.core.AspectRatio;
 import androidx.camera.core.CameraSelector;
 import androidx.camera.core.ImageAnalysis;
-import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
+import androidx.constraintlayout.widget.ConstraintLayout;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.ViewModelProvider;
 
+import android.annotation.SuppressLint;
 import android.content.pm.PackageManager;
+import android.content.res.Configuration;
 import android.os.Bundle;
 import android.util.Log;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+import android.view.View;
+
+import com.google.android.gms.common.images.Size;
 
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.mlkit.vision.common.InputImage;
-import com.google.mlkit.vision.text.TextRecognition;
-import com.google.mlkit.vision.text.TextRecognizer;
-import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
 
-import java.util.Objects;
+import java.io.IOException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 public class MainActivity extends AppCompatActivity {
 
     private PreviewView textureView;
-    private Executor executor = Executors.newSingleThreadExecutor();
-    private TextRecognizer textRecognizer;
-    private TextRecognizerOptions options;
+    /**
+     * The detectors, targets and matching state, which outlive this activity across configuration
+     * changes; see {@link RecognitionPipeline}.
+     */
+    private RecognitionPipeline pipeline;
+    /** Requested as soon as the activity is created; null with the Camera1 backend. */
+    private ListenableFuture<ProcessCameraProvider> cameraProviderFuture;
+    /** CameraX state, only touched on the main thread. */
+    private ProcessCameraProvider cameraProvider;
+    private CameraSelector cameraSelector;
+    private ImageAnalysis imageAnalysis;
     private GraphicOverlay overlayView;
-
-    private String resultString = "NATIONAL INDUSTRIES LIMITED";
-    String[] filteredWords;
+    private SurfaceView legacySurfaceView;
+    /**
+     * Camera1 backend, used instead of CameraX where {@code use_legacy_camera} is set, e.g. on
+     * devices with a legacy camera HAL; null otherwise.
+     */
+    private CameraSource cameraSource;
+    /** The Camera1 preview surface while it exists; only touched on the main thread. */
+    private SurfaceHolder legacySurface;
+    private boolean cameraPermitted;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        long startup = System.nanoTime();
+        boolean legacyCamera = getResources().getBoolean(R.bool.use_legacy_camera);
+        if (!legacyCamera) {
+            // Camera provider initialization takes a while and needs no permission, so it runs
+            // alongside everything else here, the recognizer warm-up and the permission request.
+            cameraProviderFuture = ProcessCameraProvider.getInstance(this);
+        }
+        // Only created the first time; a recreated activity gets the pipeline of the previous one.
+        pipeline = new ViewModelProvider(this).get(RecognitionPipeline.class);
+        pipeline.getMetrics().onStartup(startup);
         setContentView(R.layout.activity_main);
-        filteredWords = resultString.split("[-\n\\s]+");
         textureView = findViewById(R.id.live_textureView);
         overlayView = findViewById(R.id.overlayContainer);
-        options = new TextRecognizerOptions.Builder().build();
-        // Initialize the TextRecognizer
-        textRecognizer = TextRecognition.getClient(options);
+        legacySurfaceView = findViewById(R.id.legacy_surfaceView);
+        View previewSurface;
+        if (legacyCamera) {
+            textureView.setVisibility(View.GONE);
+            legacySurfaceView.setVisibility(View.VISIBLE);
+            previewSurface = legacySurfaceView;
+            cameraSource = new CameraSource(this, overlayView);
+            // Every frame recognized in place holds on to a buffer.
+            cameraSource.setPreviewBufferCount(
+                    CameraSource.DEFAULT_PREVIEW_BUFFER_COUNT + pipeline.getConcurrency() - 1);
+            cameraSource.setFrameProcessor(pipeline.getLegacyFrameProcessor());
+            legacySurfaceView.getHolder().addCallback(new LegacySurfaceCallback());
+        } else {
+            previewSurface = textureView;
+        }
+        pipeline.attach(overlayView, previewSurface, this::bindAnalysis);
 
         if (ContextCompat.checkSelfPermission(this, android.Manifest.permission.CAMERA) != PackageManager.PERMISSION_GRANTED) {
             ActivityCompat.requestPermissions(this, new String[]{android.Manifest.permission.CAMERA}, 100);
@@ -58,62 +95,146 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    /** Returns the recognition pipeline, to set targets, record sessions or read metrics. */
+    public RecognitionPipeline getPipeline() {
+        return pipeline;
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        pipeline.dumpMetrics();
+        pipeline.stopRecording();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        pipeline.detach();
+        if (cameraSource != null) {
+            cameraSource.release();
+        }
+    }
+
     private void startCamera() {
+        if (cameraSource != null) {
+            cameraPermitted = true;
+            startLegacyCamera();
+            return;
+        }
 
 //
 //        CameraSourceCore cameraSourceCore = new CameraSourceCore(this, textureView, overlayView,textRecognizer);
 //        cameraSourceCore.startCamera(this);
-        ListenableFuture<ProcessCameraProvider> cameraProviderFuture = ProcessCameraProvider.getInstance(this);
-
         cameraProviderFuture.addListener(() -> {
             try {
-                ProcessCameraProvider cameraProvider = cameraProviderFuture.get();
+                cameraProvider = cameraProviderFuture.get();
 
-                Preview preview = new Preview.Builder().build();
-                CameraSelector cameraSelector = new CameraSelector.Builder()
-                        .requireLensFacing(CameraSelector.LENS_FACING_BACK)
+                // The same aspect ratio for preview and analysis keeps their fields of view equal,
+                // which AnalysisViewport relies on to map between them.
+                Preview preview = new Preview.Builder()
+                        .setTargetAspectRatio(AspectRatio.RATIO_4_3)
                         .build();
-                Camera camera = cameraProvider.bindToLifecycle((LifecycleOwner) this, cameraSelector, preview);
-
+                // With its surface provider set before binding, the preview's surface is part of
+                // the first capture session instead of reconfiguring it once it arrives.
                 preview.setSurfaceProvider(textureView.getSurfaceProvider());
-
-                ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
-                        .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                cameraSelector = new CameraSelector.Builder()
+                        .requireLensFacing(CameraSelector.LENS_FACING_BACK)
                         .build();
-
-                imageAnalysis.setAnalyzer(executor, this::processImage);
-
-                cameraProvider.bindToLifecycle((LifecycleOwner) this, cameraSelector, imageAnalysis);
-
+                // The tier the pipeline last chose, kept across configuration changes.
+                imageAnalysis = buildAnalysis(pipeline.getAnalysisTier());
+                // Both use cases at once, so the camera configures a single session for them.
+                cameraProvider.bindToLifecycle((LifecycleOwner) this, cameraSelector, preview,
+                        imageAnalysis);
+                pipeline.getMetrics().onMilestone(PipelineMetrics.Milestone.CAMERA_BOUND,
+                        System.nanoTime());
             } catch (ExecutionException | InterruptedException e) {
                 e.printStackTrace();
             }
         }, ContextCompat.getMainExecutor(this));
     }
 
-    @OptIn(markerClass = androidx.camera.core.ExperimentalGetImage.class)
-    private void processImage(@NonNull ImageProxy imageProxy) {
-        // Use the ImageProxy directly for text recognition
-        InputImage inputImage = InputImage.fromMediaImage(Objects.requireNonNull(imageProxy.getImage()),
-                imageProxy.getImageInfo().getRotationDegrees());
-
-//        resultString = "it was the best";
-//        filteredWords = resultString.split("[-\n\\s]+");
-
-        // Use ML Kit's Text Recognition API
-        textRecognizer.process(inputImage)
-                .addOnSuccessListener(text -> {
-                    overlayView.clear();
-                    overlayView.setText(text, resultString, filteredWords);
-                })
-                .addOnFailureListener(e -> {
-                    // Handle text recognition failure
-                })
-                .addOnCompleteListener(result -> {
-                    // Close the ImageProxy when processing is done
-                    imageProxy.close();
-                });
-        overlayView.setCameraInfo(imageProxy.getWidth(), imageProxy.getHeight());
+    /**
+     * Binds image analysis at the resolution of the given tier, replacing the current analysis.
+     * Frames are tagged with the tier they were captured at, so that the {@link
+     * ResolutionController} can tell them from those of the previous binding still in flight.
+     */
+    private void bindAnalysis(int tier) {
+        if (imageAnalysis == null) {
+            // Not bound yet; startCamera() picks up the pipeline's current tier.
+            return;
+        }
+        cameraProvider.unbind(imageAnalysis);
+        imageAnalysis = buildAnalysis(tier);
+        cameraProvider.bindToLifecycle((LifecycleOwner) this, cameraSelector, imageAnalysis);
+    }
+
+    /** Builds image analysis at the resolution of the given tier. */
+    private ImageAnalysis buildAnalysis(int tier) {
+        // Still 4:3 like the preview, in the orientation of the display.
+        int shortEdge = pipeline.analysisShortEdge(tier);
+        int longEdge = shortEdge * 4 / 3;
+        boolean portrait = getResources().getConfiguration().orientation
+                == Configuration.ORIENTATION_PORTRAIT;
+        ImageAnalysis analysis = new ImageAnalysis.Builder()
+                .setTargetResolution(portrait
+                        ? new android.util.Size(shortEdge, longEdge)
+                        : new android.util.Size(longEdge, shortEdge))
+                .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                .build();
+        analysis.setAnalyzer(pipeline.getAnalysisExecutor(),
+                image -> pipeline.analyze(image, tier));
+        return analysis;
+    }
+
+    /** Starts the Camera1 backend once both the camera permission and the preview surface are there. */
+    @SuppressLint("MissingPermission")
+    private void startLegacyCamera() {
+        if (!cameraPermitted || legacySurface == null) {
+            return;
+        }
+        try {
+            cameraSource.start(legacySurface);
+        } catch (IOException e) {
+            Log.e(MainActivity.class.getSimpleName(), "Could not start the camera", e);
+            return;
+        }
+        fitToPreview(cameraSource.getPreviewSize(), cameraSource.getRotationDegrees());
+    }
+
+    /**
+     * Gives the Camera1 preview, which a SurfaceView stretches to its bounds, and the overlay the
+     * upright frame's aspect ratio, so that the frame fills the view without cropping, as {@link
+     * AnalysisViewport} expects.
+     */
+    private void fitToPreview(Size previewSize, int rotationDegrees) {
+        String ratio = rotationDegrees % 180 == 0
+                ? previewSize.getWidth() + ":" + previewSize.getHeight()
+                : previewSize.getHeight() + ":" + previewSize.getWidth();
+        for (View view : new View[]{legacySurfaceView, overlayView}) {
+            ConstraintLayout.LayoutParams params = (ConstraintLayout.LayoutParams) view.getLayoutParams();
+            params.dimensionRatio = ratio;
+            view.setLayoutParams(params);
+        }
+    }
+
+    /** Starts and stops the Camera1 backend with its preview surface. */
+    private class LegacySurfaceCallback implements SurfaceHolder.Callback {
+        @Override
+        public void surfaceCreated(@NonNull SurfaceHolder holder) {
+            legacySurface = holder;
+            startLegacyCamera();
+        }
+
+        @Override
+        public void surfaceChanged(@NonNull SurfaceHolder holder, int format, int width, int height) {
+        }
+
+        @Override
+        public void surfaceDestroyed(@NonNull SurfaceHolder holder) {
+            legacySurface = null;
+            cameraSource.stop();
+        }
     }
 
     @Override
@@ -126,4 +247,4 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,60 @@
+package com.text.recognition;
+
+import android.graphics.Rect;
+
+import com.google.mlkit.vision.text.Text;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link RecognizedText} over ML Kit's {@link Text}. The lines of all blocks are collected into a
+ * reused list by {@link #reset(Text)}, so one instance serves every frame without allocating; it
+ * is not thread safe.
+ */
+public final class MlKitText implements RecognizedText {
+
+    private final List<Text.Line> lines = new ArrayList<>();
+
+    /** Points this view at the lines of {@code text} and returns it. */
+    public MlKitText reset(Text text) {
+        lines.clear();
+        for (Text.TextBlock block : text.getTextBlocks()) {
+            lines.addAll(block.getLines());
+        }
+        return this;
+    }
+
+    @Override
+    public int lineCount() {
+        return lines.size();
+    }
+
+    @Override
+    public String lineText(int line) {
+        return lines.get(line).getText();
+    }
+
+    @Override
+    public int elementCount(int line) {
+        return lines.get(line).getElements().size();
+    }
+
+    @Override
+    public String elementText(int line, int element) {
+        return lines.get(line).getElements().get(element).getText();
+    }
+
+    @Override
+    public boolean elementBox(int line, int element, float[] out) {
+        Rect boundingBox = lines.get(line).getElements().get(element).getBoundingBox();
+        if (boundingBox == null) {
+            return false;
+        }
+        out[0] = boundingBox.left;
+        out[1] = boundingBox.top;
+        out[2] = boundingBox.right;
+        out[3] = boundingBox.bottom;
+        return true;
+    }
+}
@@ -0,0 +1,152 @@
+package com.text.recognition;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decides whether a camera frame differs enough from the last recognized one to be worth running
+ * text recognition on. On a fixed-mount station the camera looks at the same label for minutes, and
+ * re-recognizing it on every frame only burns CPU and battery to redraw the same highlights.
+ *
+ * <p>Each frame is reduced to a signature of {@link #GRID_COLUMNS} x {@link #GRID_ROWS} luma
+ * averages, read from a few sample pixels of every cell of the Y plane, which costs well under a
+ * thousand byte reads however large the frame is. A frame counts as changed when the mean absolute
+ * difference between its signature and that of the last recognized frame exceeds the threshold. The
+ * difference of the two signature means is taken out first, so that auto exposure slowly adjusting
+ * the brightness of an unchanged scene does not count as motion. A recognition is forced at least
+ * every {@code maxSkippedFrames} frames, so that a missed or failed recognition is not kept forever.
+ *
+ * <p>A caller that only recognizes part of what a frame shows, like {@link DetectorScheduler} with
+ * detectors that do not all run on every frame, can {@link #keepOpen keep the gate open} until the
+ * rest has run. Frames then still tell through {@link #lastFrameChanged()} whether they show a new
+ * scene.
+ *
+ * <p>Instances keep the reference signature and are meant to be used from the analysis executor only.
+ */
+public final class MotionGate {
+
+    public static final int GRID_COLUMNS = 16;
+    public static final int GRID_ROWS = 12;
+
+    /** Mean absolute luma difference, out of 255, above which a frame counts as changed. */
+    public static final float DEFAULT_THRESHOLD = 6f;
+    public static final int DEFAULT_MAX_SKIPPED_FRAMES = 150;
+
+    /** Sample pixels per cell along each axis. */
+    private static final int SAMPLES_PER_AXIS = 3;
+
+    private final float threshold;
+    private final int maxSkippedFrames;
+
+    private final int[] signature = new int[GRID_COLUMNS * GRID_ROWS];
+    private final int[] reference = new int[GRID_COLUMNS * GRID_ROWS];
+    private boolean hasReference;
+    private boolean open;
+    private boolean changed;
+    private int skippedFrames;
+    private long totalSkippedFrames;
+
+    public MotionGate() {
+        this(DEFAULT_THRESHOLD, DEFAULT_MAX_SKIPPED_FRAMES);
+    }
+
+    public MotionGate(float threshold, int maxSkippedFrames) {
+        this.threshold = threshold;
+        this.maxSkippedFrames = maxSkippedFrames;
+    }
+
+    /**
+     * Returns whether the frame whose Y plane is given should be recognized: when it changed, or
+     * whatever it shows while the gate is {@link #keepOpen kept open}. When it returns true the
+     * frame becomes the new reference; when it returns false the caller should skip recognition
+     * and keep the current highlights.
+     *
+     * @param luma the Y plane; its position and limit are not changed
+     * @param rowStride bytes between the starts of two rows
+     * @param pixelStride bytes between two pixels of a row
+     */
+    public boolean shouldProcess(ByteBuffer luma, int rowStride, int pixelStride, int width, int height) {
+        computeSignature(luma, rowStride, pixelStride, width, height);
+        changed = !hasReference || skippedFrames >= maxSkippedFrames || difference() > threshold;
+        if (!changed && !open) {
+            skippedFrames++;
+            totalSkippedFrames++;
+            return false;
+        }
+        System.arraycopy(signature, 0, reference, 0, signature.length);
+        hasReference = true;
+        skippedFrames = 0;
+        return true;
+    }
+
+    /**
+     * Forgets the reference frame, so that the next frame is recognized whatever it shows. Call this
+     * when the recognition of an accepted frame fails, or when the targets change and the current
+     * highlights no longer apply.
+     */
+    public void invalidate() {
+        hasReference = false;
+    }
+
+    /**
+     * Keeps letting every frame through while {@code open}, without forgetting the reference, so
+     * that {@link #lastFrameChanged()} still tells new scenes from the one already seen.
+     */
+    public void keepOpen(boolean open) {
+        this.open = open;
+    }
+
+    /**
+     * Returns whether the frame last given to {@link #shouldProcess} differed from the reference,
+     * had none to compare with, or was a forced recognition. False means it was let through only
+     * because the gate is {@link #keepOpen kept open}, or that it was skipped.
+     */
+    public boolean lastFrameChanged() {
+        return changed;
+    }
+
+    /** Returns the number of frames skipped since this gate was created. */
+    public long getTotalSkippedFrames() {
+        return totalSkippedFrames;
+    }
+
+    private void computeSignature(ByteBuffer luma, int rowStride, int pixelStride, int width, int height) {
+        int cellWidth = width / GRID_COLUMNS;
+        int cellHeight = height / GRID_ROWS;
+        if (cellWidth == 0 || cellHeight == 0) {
+            // Too small to sample; treat every frame as changed.
+            hasReference = false;
+            return;
+        }
+        int base = luma.position();
+        for (int row = 0; row < GRID_ROWS; row++) {
+            for (int column = 0; column < GRID_COLUMNS; column++) {
+                int sum = 0;
+                for (int sy = 0; sy < SAMPLES_PER_AXIS; sy++) {
+                    // Sample the middle of each of the cell's horizontal and vertical thirds.
+                    int y = row * cellHeight + (2 * sy + 1) * cellHeight / (2 * SAMPLES_PER_AXIS);
+                    int rowStart = base + y * rowStride;
+                    for (int sx = 0; sx < SAMPLES_PER_AXIS; sx++) {
+                        int x = column * cellWidth + (2 * sx + 1) * cellWidth / (2 * SAMPLES_PER_AXIS);
+                        sum += luma.get(rowStart + x * pixelStride) & 0xff;
+                    }
+                }
+                signature[row * GRID_COLUMNS + column] = sum;
+            }
+        }
+    }
+
+    /** Returns the mean absolute difference of the signatures in luma levels, exposure compensated. */
+    private float difference() {
+        int cells = signature.length;
+        long offset = 0;
+        for (int i = 0; i < cells; i++) {
+            offset += signature[i] - reference[i];
+        }
+        float meanOffset = offset / (float) cells;
+        float total = 0;
+        for (int i = 0; i < cells; i++) {
+            total += Math.abs(signature[i] - reference[i] - meanOffset);
+        }
+        return total / cells / (SAMPLES_PER_AXIS * SAMPLES_PER_AXIS);
+    }
+}
@@ -0,0 +1,208 @@
+package com.text.recognition;
+
+import java.util.Arrays;
+
+/**
+ * Bit-parallel Levenshtein distance against one fixed pattern (Myers' algorithm in Hyyro's
+ * formulation for global edit distance).
+ *
+ * <p>The pattern's match masks are computed once, when the engine is created. Scoring a text then
+ * takes one pass over the text with a handful of word operations per char, instead of the O(n*m)
+ * char comparisons of the dynamic-programming loop in {@link Similarity#editDistance}. Patterns
+ * of up to 64 chars fit in a single {@code long}; longer patterns are split into 64-char blocks
+ * that pass their horizontal deltas down to the next block.
+ *
+ * <p>Chars are compared exactly; callers are expected to normalize case beforehand. Instances are
+ * immutable and thread safe, and scoring a {@code char[]} against a pattern of up to 64 chars
+ * allocates nothing.
+ */
+public final class MyersEditDistance {
+
+    private static final int WORD_SIZE = 64;
+    private static final int ASCII_SIZE = 128;
+
+    private int patternLength;
+    private int blockCount;
+    /** Bit of the last block that corresponds to the last pattern char. */
+    private long lastBit;
+    /** Match masks of the ASCII chars, {@code blockCount} words per char. */
+    private long[] asciiMasks;
+    /** Sorted non-ASCII chars of the pattern, and their masks laid out as in {@link #asciiMasks}. */
+    private char[] otherChars;
+    private int otherCount;
+    private long[] otherMasks;
+
+    public MyersEditDistance(CharSequence pattern) {
+        char[] chars = new char[pattern.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = pattern.charAt(i);
+        }
+        compile(chars, chars.length);
+    }
+
+    private void compile(char[] pattern, int length) {
+        patternLength = length;
+        blockCount = Math.max(1, (length + WORD_SIZE - 1) / WORD_SIZE);
+        lastBit = length == 0 ? 0 : 1L << ((length - 1) % WORD_SIZE);
+        asciiMasks = new long[ASCII_SIZE * blockCount];
+        otherChars = new char[0];
+        otherMasks = new long[0];
+        otherCount = 0;
+        for (int i = 0; i < length; i++) {
+            char c = pattern[i];
+            int block = i / WORD_SIZE;
+            long bit = 1L << (i % WORD_SIZE);
+            if (c < ASCII_SIZE) {
+                asciiMasks[c * blockCount + block] |= bit;
+            } else if (blockCount == 1) {
+                addOtherMask(c, bit);
+            } else {
+                addOtherMask(c, 0L);
+                otherMasks[Arrays.binarySearch(otherChars, 0, otherCount, c) * blockCount + block] |= bit;
+            }
+        }
+    }
+
+    /** Ors {@code bit} into the first-block mask of non-ASCII char {@code c}, adding it if needed. */
+    private void addOtherMask(char c, long bit) {
+        int index = Arrays.binarySearch(otherChars, 0, otherCount, c);
+        if (index < 0) {
+            index = -index - 1;
+            if (otherCount == otherChars.length) {
+                otherChars = Arrays.copyOf(otherChars, Math.max(4, otherCount * 2));
+                otherMasks = Arrays.copyOf(otherMasks, otherChars.length * blockCount);
+            }
+            System.arraycopy(otherChars, index, otherChars, index + 1, otherCount - index);
+            System.arraycopy(otherMasks, index * blockCount, otherMasks, (index + 1) * blockCount,
+                    (otherCount - index) * blockCount);
+            Arrays.fill(otherMasks, index * blockCount, (index + 1) * blockCount, 0L);
+            otherChars[index] = c;
+            otherCount++;
+        }
+        otherMasks[index * blockCount] |= bit;
+    }
+
+    /** Returns the length of the pattern this engine was built for. */
+    public int patternLength() {
+        return patternLength;
+    }
+
+    /** Returns the edit distance between the pattern and the first {@code length} chars of {@code text}. */
+    public int distance(char[] text, int length) {
+        return distance(text, length, Integer.MAX_VALUE - 1);
+    }
+
+    /** Returns the edit distance between the pattern and {@code text}. */
+    public int distance(CharSequence text) {
+        int length = text.length();
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = text.charAt(i);
+        }
+        return distance(chars, length);
+    }
+
+    /**
+     * Returns the edit distance between the pattern and the first {@code length} chars of {@code
+     * text}, or {@code maxDistance + 1} as soon as the distance is known to exceed {@code
+     * maxDistance}.
+     */
+    public int distance(char[] text, int length, int maxDistance) {
+        return distance(text, 0, length, maxDistance);
+    }
+
+    /**
+     * Same as {@link #distance(char[], int, int)} for the {@code length} chars of {@code text}
+     * starting at {@code offset}.
+     */
+    public int distance(char[] text, int offset, int length, int maxDistance) {
+        if (Math.abs(length - patternLength) > maxDistance) {
+            return maxDistance + 1;
+        }
+        if (patternLength == 0) {
+            return length;
+        }
+        return blockCount == 1
+                ? singleBlockDistance(text, offset, length, maxDistance)
+                : blockedDistance(text, offset, length, maxDistance);
+    }
+
+    private int singleBlockDistance(char[] text, int offset, int length, int maxDistance) {
+        long pv = -1L;
+        long mv = 0L;
+        int score = patternLength;
+        for (int j = 0; j < length; j++) {
+            long eq = mask(text[offset + j], 0);
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+            if ((ph & lastBit) != 0) {
+                score++;
+            } else if ((mh & lastBit) != 0) {
+                score--;
+            }
+            // The top row of the matrix grows by one per text char.
+            ph = (ph << 1) | 1L;
+            mh <<= 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+            // The last row can shrink by at most one per remaining text char.
+            if (score - (length - j - 1) > maxDistance) {
+                return maxDistance + 1;
+            }
+        }
+        return score;
+    }
+
+    private int blockedDistance(char[] text, int offset, int length, int maxDistance) {
+        // Vertical deltas of every block. Only patterns longer than 64 chars get here, so the
+        // per-call allocation stays off the common path.
+        long[] pvs = new long[blockCount];
+        long[] mvs = new long[blockCount];
+        Arrays.fill(pvs, -1L);
+        int score = patternLength;
+        int lastBlock = blockCount - 1;
+        for (int j = 0; j < length; j++) {
+            char c = text[offset + j];
+            int hin = 1;
+            for (int b = 0; b < blockCount; b++) {
+                long pv = pvs[b];
+                long mv = mvs[b];
+                long eq = mask(c, b);
+                long xv = eq | mv;
+                if (hin < 0) {
+                    eq |= 1L;
+                }
+                long xh = (((eq & pv) + pv) ^ pv) | eq;
+                long ph = mv | ~(xh | pv);
+                long mh = pv & xh;
+                long outBit = b == lastBlock ? lastBit : Long.MIN_VALUE;
+                int hout = (ph & outBit) != 0 ? 1 : (mh & outBit) != 0 ? -1 : 0;
+                ph <<= 1;
+                mh <<= 1;
+                if (hin < 0) {
+                    mh |= 1L;
+                } else if (hin > 0) {
+                    ph |= 1L;
+                }
+                pvs[b] = mh | ~(xv | ph);
+                mvs[b] = ph & xv;
+                hin = hout;
+            }
+            score += hin;
+            if (score - (length - j - 1) > maxDistance) {
+                return maxDistance + 1;
+            }
+        }
+        return score;
+    }
+
+    private long mask(char c, int block) {
+        if (c < ASCII_SIZE) {
+            return asciiMasks[c * blockCount + block];
+        }
+        int index = Arrays.binarySearch(otherChars, 0, otherCount, c);
+        return index < 0 ? 0L : otherMasks[index * blockCount + block];
+    }
+}
@@ -0,0 +1,281 @@
+package com.text.recognition;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Finds multi-word target phrases in the words of a recognized line, so that a phrase lights up as
+ * a unit rather than word by word.
+ *
+ * <p>A line is fed in one word at a time, see {@link #beginLine()} and {@link #addWord(CharSequence)},
+ * and is normalized into a single reused buffer with one space between words. {@link #findMatches()}
+ * then walks the words once: for every start word it scores each phrase against the windows of
+ * consecutive words starting there, which are slices of that buffer and need no concatenation. A
+ * window spans as many words as the phrase has, or one more or fewer, since recognition regularly
+ * merges two words into one element or splits one. Each phrase is compiled into a {@link
+ * MyersEditDistance} engine and the distance is bounded by the similarity cutoff, so windows whose
+ * length is already out of range cost nothing. The work per line is linear in its number of words.
+ *
+ * <p>Matches never overlap. Where two windows overlap, the one that starts first is kept unless the
+ * window starting at the next word is more similar.
+ *
+ * <p>Instances keep scratch state and are not thread safe.
+ */
+public final class PhraseMatcher {
+
+    /**
+     * A window has to be strictly more similar than this to a phrase to match it. Higher than
+     * {@link TargetMatcher#MIN_SIMILARITY}: a long phrase would otherwise match with whole words
+     * missing, which defeats matching it as a unit.
+     */
+    public static final double MIN_SIMILARITY = 0.8;
+
+    private final String[] phrases;
+    private final int[] phraseWordCounts;
+    private final MyersEditDistance[] engines;
+
+    /** Normalized words of the current line, separated by single spaces. */
+    private char[] lineBuffer = new char[128];
+    private int lineLength;
+    /** Word {@code w} of the current line spans {@code [wordStarts[w], wordEnds[w])} of the buffer. */
+    private int[] wordStarts = new int[16];
+    private int[] wordEnds = new int[16];
+    private int wordCount;
+
+    /** Best match of a window starting at each word: phrase, end word (exclusive) and similarity. */
+    private int[] bestPhrases = new int[16];
+    private int[] bestEnds = new int[16];
+    private double[] bestSimilarities = new double[16];
+
+    /** Matches found by the last {@link #findMatches()}, packed as phrase, start word, end word. */
+    private int[] matches = new int[12];
+    private int matchCount;
+
+    private PhraseMatcher(String[] phrases) {
+        this.phrases = phrases;
+        phraseWordCounts = new int[phrases.length];
+        engines = new MyersEditDistance[phrases.length];
+        for (int i = 0; i < phrases.length; i++) {
+            String normalized = normalize(phrases[i]);
+            engines[i] = new MyersEditDistance(normalized);
+            phraseWordCounts[i] = normalized.isEmpty() ? 0 : countWords(normalized);
+        }
+    }
+
+    /**
+     * Compiles the given phrases. Words may be separated by any run of whitespace or hyphens, the
+     * same separators recognized elements are split on, see {@link TextNormalizer}.
+     */
+    public static PhraseMatcher compile(String... phrases) {
+        return new PhraseMatcher(phrases.clone());
+    }
+
+    /** Compiles the given phrases. Phrase ids are their positions in the collection's iteration order. */
+    public static PhraseMatcher compile(Collection<String> phrases) {
+        return new PhraseMatcher(phrases.toArray(new String[0]));
+    }
+
+    /** See {@link TextNormalizer#normalize(String)}. */
+    static String normalize(String text) {
+        return TextNormalizer.normalize(text);
+    }
+
+    private static int countWords(String normalized) {
+        int count = 1;
+        for (int i = 0; i < normalized.length(); i++) {
+            if (normalized.charAt(i) == ' ') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /** Returns the number of compiled phrases. */
+    public int phraseCount() {
+        return phrases.length;
+    }
+
+    /** Returns the phrase with the given id, as it was supplied to {@link #compile(String...)}. */
+    public String phrase(int phraseId) {
+        return phrases[phraseId];
+    }
+
+    /** Starts a new line, discarding the words and matches of the previous one. */
+    public void beginLine() {
+        lineLength = 0;
+        wordCount = 0;
+        matchCount = 0;
+    }
+
+    /**
+     * Appends the next word of the current line, typically the text of a {@code Text.Element}. A
+     * word that normalizes to nothing still takes up a position, so word indexes keep lining up
+     * with the elements they came from.
+     */
+    public void addWord(CharSequence word) {
+        int start = reserveWord(word.length());
+        endWord(start, TextNormalizer.appendNormalized(word, lineBuffer, start));
+    }
+
+    /**
+     * Like {@link #addWord(CharSequence)} for a word that is already normalized, the chars of
+     * {@code chars} from {@code start} to {@code end}, such as an element of {@link FrameTokens}.
+     */
+    public void addNormalizedWord(char[] chars, int start, int end) {
+        int wordStart = reserveWord(end - start);
+        System.arraycopy(chars, start, lineBuffer, wordStart, end - start);
+        endWord(wordStart, wordStart + end - start);
+    }
+
+    /** Makes room for a word of up to {@code length} chars and returns where it goes in the buffer. */
+    private int reserveWord(int length) {
+        int needed = lineLength + 1 + length;
+        if (needed > lineBuffer.length) {
+            lineBuffer = Arrays.copyOf(lineBuffer, Math.max(needed, lineBuffer.length * 2));
+        }
+        if (wordCount == wordStarts.length) {
+            int capacity = wordCount * 2;
+            wordStarts = Arrays.copyOf(wordStarts, capacity);
+            wordEnds = Arrays.copyOf(wordEnds, capacity);
+        }
+        return lineLength == 0 ? 0 : lineLength + 1;
+    }
+
+    /** Records the word just written to {@code [start, end)} of the buffer. */
+    private void endWord(int start, int end) {
+        if (end == start) {
+            wordStarts[wordCount] = lineLength;
+            wordEnds[wordCount] = lineLength;
+        } else {
+            if (start > 0) {
+                lineBuffer[lineLength] = ' ';
+            }
+            wordStarts[wordCount] = start;
+            wordEnds[wordCount] = end;
+            lineLength = end;
+        }
+        wordCount++;
+    }
+
+    /**
+     * Finds the phrases in the current line and returns the number of matches, which are then
+     * available through {@link #matchPhrase(int)}, {@link #matchStart(int)} and {@link
+     * #matchEnd(int)} in the order they appear in the line.
+     */
+    public int findMatches() {
+        matchCount = 0;
+        if (wordCount == 0 || phrases.length == 0) {
+            return 0;
+        }
+        if (bestPhrases.length < wordCount) {
+            bestPhrases = new int[wordCount];
+            bestEnds = new int[wordCount];
+            bestSimilarities = new double[wordCount];
+        }
+        for (int start = 0; start < wordCount; start++) {
+            scoreWindowsAt(start);
+        }
+
+        int start = 0;
+        while (start < wordCount) {
+            double similarity = bestSimilarities[start];
+            int end = bestEnds[start];
+            if (similarity <= MIN_SIMILARITY) {
+                start++;
+                continue;
+            }
+            int next = start + 1;
+            if (next < end && next < wordCount && bestSimilarities[next] > similarity) {
+                start = next;
+                continue;
+            }
+            addMatch(bestPhrases[start], start, end);
+            start = end;
+        }
+        return matchCount;
+    }
+
+    /** Returns the id of the phrase of match {@code index}. */
+    public int matchPhrase(int index) {
+        return matches[index * 3];
+    }
+
+    /** Returns the index of the first word of match {@code index}. */
+    public int matchStart(int index) {
+        return matches[index * 3 + 1];
+    }
+
+    /** Returns the index after the last word of match {@code index}. */
+    public int matchEnd(int index) {
+        return matches[index * 3 + 2];
+    }
+
+    private void scoreWindowsAt(int start) {
+        int bestPhrase = TargetMatcher.NO_MATCH;
+        int bestEnd = start + 1;
+        double bestSimilarity = MIN_SIMILARITY;
+        int remaining = wordCount - start;
+        if (isEmptyWord(start)) {
+            // A window that starts or ends with an empty word covers the same text as a shorter one.
+            remaining = 0;
+        }
+        for (int phrase = 0; phrase < phrases.length; phrase++) {
+            int words = phraseWordCounts[phrase];
+            if (words == 0) {
+                continue;
+            }
+            // Try the phrase's own word count first so that it wins ties.
+            for (int attempt = 0; attempt < 3; attempt++) {
+                int windowWords = attempt == 0 ? words : attempt == 1 ? words - 1 : words + 1;
+                if (windowWords < 1 || windowWords > remaining) {
+                    continue;
+                }
+                int end = start + windowWords;
+                if (isEmptyWord(end - 1)) {
+                    continue;
+                }
+                double similarity = similarity(phrase, wordStarts[start], wordEnds[end - 1]);
+                if (similarity > bestSimilarity) {
+                    bestSimilarity = similarity;
+                    bestPhrase = phrase;
+                    bestEnd = end;
+                }
+            }
+        }
+        bestPhrases[start] = bestPhrase;
+        bestEnds[start] = bestEnd;
+        bestSimilarities[start] = bestPhrase == TargetMatcher.NO_MATCH ? 0 : bestSimilarity;
+    }
+
+    private boolean isEmptyWord(int word) {
+        return wordStarts[word] == wordEnds[word];
+    }
+
+    /** Returns the similarity of the phrase to the slice of the line buffer, or 0 if it is too low. */
+    private double similarity(int phrase, int from, int to) {
+        MyersEditDistance engine = engines[phrase];
+        int length = to - from;
+        int longerLength = Math.max(length, engine.patternLength());
+        if (longerLength == 0) {
+            return 0;
+        }
+        // similarity > MIN_SIMILARITY <=> distance < longerLength * (1 - MIN_SIMILARITY).
+        int maxDistance = (int) Math.ceil(longerLength * (1 - MIN_SIMILARITY)) - 1;
+        int distance = engine.distance(lineBuffer, from, length, maxDistance);
+        if (distance > maxDistance) {
+            return 0;
+        }
+        return (longerLength - distance) / (double) longerLength;
+    }
+
+    private void addMatch(int phrase, int start, int end) {
+        int offset = matchCount * 3;
+        if (offset == matches.length) {
+            matches = Arrays.copyOf(matches, offset * 2);
+        }
+        matches[offset] = phrase;
+        matches[offset + 1] = start;
+        matches[offset + 2] = end;
+        matchCount++;
+    }
+}
@@ -0,0 +1,353 @@
+package com.text.recognition;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histograms per pipeline stage and frame counters, to see where the time of a frame goes
+ * and how many frames never make it to recognition.
+ *
+ * <p>All memory is allocated up front and recording is lock free (see {@link LatencyHistogram}),
+ * so the analysis executor and the UI thread can record at full frame rate. Latencies are passed
+ * in nanoseconds. {@link Stage#QUEUE} and {@link Stage#END_TO_END} start at the camera's frame
+ * timestamp, which is on the {@code SystemClock.elapsedRealtimeNanos()} clock on devices with
+ * realtime sensor timestamps and on the {@code System.nanoTime()} clock on the others; see {@link
+ * #frameAge} for measuring against the right one.
+ *
+ * <p>Startup is timed separately, as the time from {@link #onStartup} to the first time each
+ * {@link Milestone} is reached, in particular the first frame and the first highlight drawn.
+ *
+ * <p>{@link #snapshot()} copies everything for display or export, and {@link
+ * Snapshot#writeTo(File)} dumps it to a local file.
+ */
+public final class PipelineMetrics {
+
+    /** Stages of a frame, in pipeline order. */
+    public enum Stage {
+        /** From the frame's sensor timestamp until the analyzer gets it. */
+        QUEUE,
+        /** Cropping the visible region out of the frame. */
+        CROP,
+        /** From handing the image to the recognizer until its result is delivered. */
+        RECOGNIZE,
+        /** Matching the recognized text and mapping the highlights. */
+        MATCH,
+        /** One {@code onDraw} of the overlay. */
+        DRAW,
+        /** From the frame's sensor timestamp until its highlights are first drawn. */
+        END_TO_END
+    }
+
+    /** Points in the startup of the pipeline, in the order they are usually reached. */
+    public enum Milestone {
+        /** Every recognizer has processed its warm-up image. */
+        RECOGNIZER_READY,
+        /** The camera's use cases are bound. */
+        CAMERA_BOUND,
+        /** The first frame the analyzer got was captured, as far as its timestamp tells. */
+        FIRST_FRAME,
+        /** The overlay first drew a highlight. */
+        FIRST_HIGHLIGHT
+    }
+
+    /** Milestones not reached yet, and startup before it is known. */
+    private static final long NOT_REACHED = -1;
+
+    /** Frames between re-estimates of the camera's frame interval. */
+    private static final int INTERVAL_WINDOW = 32;
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final Milestone[] MILESTONES = Milestone.values();
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong recognized = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong stale = new AtomicLong();
+    private final AtomicLong late = new AtomicLong();
+    private volatile long startupNanos = NOT_REACHED;
+    /** Per milestone, when it was first reached, in nanoseconds since startup. */
+    private final AtomicLongArray milestones = new AtomicLongArray(MILESTONES.length);
+
+    /** Only touched by {@link #onFrameReceived}. */
+    private long lastFrameTimestamp = Long.MIN_VALUE;
+    private long frameInterval;
+    private long windowMinInterval = Long.MAX_VALUE;
+    private int windowFrames;
+
+    public PipelineMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < MILESTONES.length; i++) {
+            milestones.set(i, NOT_REACHED);
+        }
+    }
+
+    /**
+     * Starts timing startup at {@code nanos}, on the {@code System.nanoTime()} clock, and forgets the
+     * milestones of any earlier startup.
+     */
+    public void onStartup(long nanos) {
+        for (int i = 0; i < MILESTONES.length; i++) {
+            milestones.set(i, NOT_REACHED);
+        }
+        startupNanos = nanos;
+    }
+
+    /**
+     * Records that {@code milestone} was reached at {@code nanos}, on the {@code System.nanoTime()}
+     * clock, unless it was reached before. Cheap enough to call on every frame or draw.
+     */
+    public void onMilestone(Milestone milestone, long nanos) {
+        long startup = startupNanos;
+        int index = milestone.ordinal();
+        if (startup != NOT_REACHED && milestones.get(index) == NOT_REACHED) {
+            milestones.compareAndSet(index, NOT_REACHED, Math.max(0, nanos - startup));
+        }
+    }
+
+    /**
+     * Counts a frame handed to the analyzer and records its {@link Stage#QUEUE} latency. Frames the
+     * camera produced in between were dropped by the analyzer's back-pressure strategy; they are
+     * counted from gaps in the sensor timestamps, relative to the shortest recent frame interval.
+     * Must be called from one thread at a time, in frame order.
+     *
+     * @param frameTimestampNanos the frame's {@code ImageInfo.getTimestamp()}
+     * @param ageNanos how long ago the frame was captured, see {@link #frameAge}
+     */
+    public void onFrameReceived(long frameTimestampNanos, long ageNanos) {
+        received.incrementAndGet();
+        histograms[Stage.QUEUE.ordinal()].record(ageNanos);
+
+        long last = lastFrameTimestamp;
+        lastFrameTimestamp = frameTimestampNanos;
+        if (last == Long.MIN_VALUE) {
+            return;
+        }
+        long delta = frameTimestampNanos - last;
+        if (delta <= 0) {
+            return;
+        }
+        if (frameInterval > 0) {
+            long missed = (delta + frameInterval / 2) / frameInterval - 1;
+            if (missed > 0) {
+                dropped.addAndGet(missed);
+            }
+        }
+        // The interval is re-estimated from a window's shortest gap, so that the estimate follows
+        // the camera when it lowers its frame rate, e.g. in low light.
+        windowMinInterval = Math.min(windowMinInterval, delta);
+        if (++windowFrames >= INTERVAL_WINDOW || frameInterval == 0) {
+            frameInterval = windowMinInterval;
+            windowMinInterval = Long.MAX_VALUE;
+            windowFrames = 0;
+        }
+    }
+
+    /**
+     * Returns how long ago a frame with the given sensor timestamp was captured, given the current
+     * time on both clocks the timestamp may be on. The timestamp lies in the past of its own clock,
+     * and the realtime clock is never behind the monotonic one, so the smaller non-negative age is
+     * the right one; -1 if neither is, which {@link #record} ignores.
+     */
+    public static long frameAge(long frameTimestampNanos, long realtimeNanos, long monotonicNanos) {
+        long realtimeAge = realtimeNanos - frameTimestampNanos;
+        long monotonicAge = monotonicNanos - frameTimestampNanos;
+        if (monotonicAge >= 0) {
+            return realtimeAge >= 0 ? Math.min(realtimeAge, monotonicAge) : monotonicAge;
+        }
+        return realtimeAge >= 0 ? realtimeAge : -1;
+    }
+
+    /**
+     * Counts a frame closed unprocessed because recognition ran too recently, or because as many
+     * frames as allowed are being recognized already.
+     */
+    public void onFrameThrottled() {
+        throttled.incrementAndGet();
+    }
+
+    /** Counts a frame closed unprocessed because the scene had not changed, see {@link MotionGate}. */
+    public void onFrameUnchanged() {
+        unchanged.incrementAndGet();
+    }
+
+    public void onFrameRecognized() {
+        recognized.incrementAndGet();
+    }
+
+    public void onRecognitionFailed() {
+        failed.incrementAndGet();
+    }
+
+    /** Counts a result dropped because a newer frame's result was already shown. */
+    public void onResultStale() {
+        stale.incrementAndGet();
+    }
+
+    /** Counts a result dropped because its frame was older than the deadline. */
+    public void onResultLate() {
+        late.incrementAndGet();
+    }
+
+    /** Records the latency of one stage, in nanoseconds. */
+    public void record(Stage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    /** Clears all histograms and counters. Startup milestones are kept. */
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        received.set(0);
+        throttled.set(0);
+        unchanged.set(0);
+        dropped.set(0);
+        recognized.set(0);
+        failed.set(0);
+        stale.set(0);
+        late.set(0);
+    }
+
+    public Snapshot snapshot() {
+        LatencyHistogram.Snapshot[] stages = new LatencyHistogram.Snapshot[STAGES.length];
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = histograms[i].snapshot();
+        }
+        long[] reached = new long[MILESTONES.length];
+        for (int i = 0; i < reached.length; i++) {
+            reached[i] = milestones.get(i);
+        }
+        return new Snapshot(stages, received.get(), throttled.get(), unchanged.get(),
+                dropped.get(), recognized.get(), failed.get(), stale.get(), late.get(), reached);
+    }
+
+    /** Immutable copy of the metrics. */
+    public static final class Snapshot {
+        private final LatencyHistogram.Snapshot[] stages;
+        private final long received;
+        private final long throttled;
+        private final long unchanged;
+        private final long dropped;
+        private final long recognized;
+        private final long failed;
+        private final long stale;
+        private final long late;
+        private final long[] milestones;
+
+        Snapshot(LatencyHistogram.Snapshot[] stages, long received, long throttled, long unchanged,
+                 long dropped, long recognized, long failed, long stale, long late,
+                 long[] milestones) {
+            this.stages = stages;
+            this.received = received;
+            this.throttled = throttled;
+            this.unchanged = unchanged;
+            this.dropped = dropped;
+            this.recognized = recognized;
+            this.failed = failed;
+            this.stale = stale;
+            this.late = late;
+            this.milestones = milestones;
+        }
+
+        public LatencyHistogram.Snapshot getStage(Stage stage) {
+            return stages[stage.ordinal()];
+        }
+
+        /** Frames handed to the analyzer. */
+        public long getFramesReceived() {
+            return received;
+        }
+
+        /** Received frames skipped because recognition ran too recently. */
+        public long getFramesThrottled() {
+            return throttled;
+        }
+
+        /** Received frames skipped because the scene had not changed. */
+        public long getFramesUnchanged() {
+            return unchanged;
+        }
+
+        /** Frames the camera produced that never reached the analyzer. */
+        public long getFramesDropped() {
+            return dropped;
+        }
+
+        public long getFramesRecognized() {
+            return recognized;
+        }
+
+        public long getRecognitionFailures() {
+            return failed;
+        }
+
+        /** Recognized frames whose result was dropped because a newer one was already shown. */
+        public long getResultsStale() {
+            return stale;
+        }
+
+        /** Recognized frames whose result was dropped because it came after the deadline. */
+        public long getResultsLate() {
+            return late;
+        }
+
+        /**
+         * Returns the time from startup until {@code milestone} was first reached, in nanoseconds,
+         * or -1 if it has not been.
+         */
+        public long getMilestoneNanos(Milestone milestone) {
+            return milestones[milestone.ordinal()];
+        }
+
+        /**
+         * Writes the counters, the startup milestones in microseconds (-1 if not reached) and,
+         * per stage, the count and the mean, median, 90th and 99th percentile and maximum latency
+         * in microseconds, as tab separated lines.
+         */
+        public void writeTo(Writer writer) throws IOException {
+            writer.write("frames_received\t" + received + '\n');
+            writer.write("frames_throttled\t" + throttled + '\n');
+            writer.write("frames_unchanged\t" + unchanged + '\n');
+            writer.write("frames_dropped\t" + dropped + '\n');
+            writer.write("frames_recognized\t" + recognized + '\n');
+            writer.write("recognition_failures\t" + failed + '\n');
+            writer.write("results_stale\t" + stale + '\n');
+            writer.write("results_late\t" + late + '\n');
+            for (Milestone milestone : MILESTONES) {
+                long nanos = milestones[milestone.ordinal()];
+                writer.write(milestone.name().toLowerCase(Locale.US) + "_us\t"
+                        + (nanos == NOT_REACHED ? NOT_REACHED : nanos / 1000) + '\n');
+            }
+            writer.write("stage\tcount\tmean_us\tp50_us\tp90_us\tp99_us\tmax_us\n");
+            for (Stage stage : STAGES) {
+                LatencyHistogram.Snapshot histogram = stages[stage.ordinal()];
+                writer.write(String.format(Locale.US, "%s\t%d\t%.1f\t%d\t%d\t%d\t%d\n",
+                        stage.name().toLowerCase(Locale.US), histogram.getCount(),
+                        histogram.getMeanMicros(), histogram.percentileMicros(0.5),
+                        histogram.percentileMicros(0.9), histogram.percentileMicros(0.99),
+                        histogram.getMaxMicros()));
+            }
+        }
+
+        /** Writes the snapshot to a file as {@link #writeTo(Writer)} does, replacing its contents. */
+        public void writeTo(File file) throws IOException {
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(file),
+                    Charset.forName("UTF-8"))) {
+                writeTo(writer);
+            }
+        }
+    }
+}
@@ -0,0 +1,919 @@
+package com.text.recognition;
+
+import androidx.annotation.NonNull;
+import androidx.camera.core.ImageProxy;
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.AndroidViewModel;
+
+import android.app.Application;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.Resources;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.mlkit.vision.barcode.BarcodeScanner;
+import com.google.mlkit.vision.barcode.BarcodeScannerOptions;
+import com.google.mlkit.vision.barcode.BarcodeScanning;
+import com.google.mlkit.vision.barcode.common.Barcode;
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.text.Text;
+import com.google.mlkit.vision.text.TextRecognition;
+import com.google.mlkit.vision.text.TextRecognizer;
+import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The recognition pipeline behind {@link MainActivity}: the detectors and the threads they run on,
+ * the targets, and the state that carries over from frame to frame. It is scoped to the activity's
+ * task rather than to the activity, so that a configuration change such as a rotation neither loads
+ * the models again nor compiles the targets again; the recreated activity just {@link #attach
+ * attaches} its views. Everything is shut down once the activity finishes for good.
+ */
+public class RecognitionPipeline extends AndroidViewModel {
+
+    /** Told about analysis resolution changes, on the main thread. */
+    public interface AnalysisTierListener {
+        /** Rebinds image analysis at the given tier; see {@link #analyze(ImageProxy, int)}. */
+        void onAnalysisTierChanged(int tier);
+    }
+
+    /**
+     * Analysis runs here. Work arriving once the pipeline has shut down is discarded, except that
+     * the frames of rejected {@link FrameTask}s are released; see {@link FrameRejectionPolicy}.
+     */
+    private final ExecutorService executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), new FrameRejectionPolicy());
+    /**
+     * Hands CameraX's analysis calls to {@link #executor}, and throws them back once it has shut
+     * down, so that CameraX closes the frames they hold itself.
+     */
+    private final Executor analysisExecutor = analysis -> executor.execute(new FrameTask(analysis,
+            () -> {
+                throw new RejectedExecutionException("The recognition pipeline was cleared");
+            }));
+    private final ExecutorService recognitionExecutor;
+    /** Runs {@link #tileRecognizers}; null if frames are not tiled. */
+    private final ExecutorService tileExecutor;
+    private final Executor mainExecutor;
+    /** One per frame that may be recognized at once; see {@code recognition_concurrency}. */
+    private final RecognitionSlot[] recognitionSlots;
+    /**
+     * Recognize the tiles of frames larger than {@code tile_size}, shared by all slots; null if
+     * frames are not tiled.
+     */
+    private final TextRecognizer[] tileRecognizers;
+    private final boolean textDetection;
+    private final boolean barcodeDetection;
+    /** Set once the warm-up of the detectors is done. */
+    private volatile boolean detectorsReady;
+    /** Only touched on the main thread. */
+    private boolean warmUpStarted;
+    /** The views of the attached activity, null while none is. */
+    private volatile GraphicOverlay overlayView;
+    /** The view showing the preview of whichever camera backend is in use. */
+    private volatile View previewSurface;
+    /** Only touched on the main thread. */
+    private AnalysisTierListener tierListener;
+    private volatile int analysisTier = INITIAL_ANALYSIS_TIER;
+    /** Camera1 frames handed to the executor and not yet released. */
+    private final AtomicInteger legacyFramesHeld = new AtomicInteger();
+    private final CameraSource.FrameProcessor legacyFrameProcessor = new LegacyFrameProcessor();
+
+    private static final String METRICS_FILE = "pipeline-metrics.tsv";
+    private static final String TRACE_FILE = "pipeline-trace.json";
+    /** Target index compiled by {@link TargetIndexCompiler}, optionally bundled with the app. */
+    private static final String TARGET_INDEX_ASSET = "targets.idx";
+    /** Edge of the blank image the detectors are warmed up with, in pixels. */
+    private static final int WARM_UP_SIZE = 32;
+    /** Results of frames older than this are not shown; see {@link ResultSequencer}. */
+    private static final long RESULT_DEADLINE_MS = 1000;
+    /** Short edges of the 4:3 analysis resolutions to choose from; see {@link ResolutionController}. */
+    private static final int[] ANALYSIS_TIERS = {480, 960, 1440};
+    /** 640x480, CameraX's default analysis resolution. */
+    private static final int INITIAL_ANALYSIS_TIER = 0;
+
+    private String resultString = "NATIONAL INDUSTRIES LIMITED";
+    String[] filteredWords;
+    private TargetMatcher targetMatcher;
+    private PhraseMatcher phraseMatcher = PhraseMatcher.compile();
+    private HighlightExtractor highlightExtractor;
+    /** Only touched on {@link #executor}. */
+    private final MotionGate motionGate = new MotionGate();
+    private final AnalysisViewport viewport = new AnalysisViewport();
+    private final ResultSequencer resultSequencer =
+            new ResultSequencer(RESULT_DEADLINE_MS * 1_000_000L);
+    private final BoxTracker boxTracker = new BoxTracker();
+    private final FrameInput frameInput = new FrameInput();
+    private final DetectorScheduler detectorScheduler;
+    private final ResolutionController resolutionController =
+            new ResolutionController(ANALYSIS_TIERS, INITIAL_ANALYSIS_TIER);
+    private final PipelineMetrics metrics = new PipelineMetrics();
+    private final EventTracer tracer = EventTracer.getDefault();
+    private final MlKitText recognizedText = new MlKitText();
+    private final MlKitText tileText = new MlKitText();
+    /** Current targets and phrases, kept for {@link #recorder}. */
+    private List<String> targets = Collections.emptyList();
+    private List<String> phrases = Collections.emptyList();
+    /** Records the session while not null; see {@link #startRecording(File)}. */
+    private SessionRecorder recorder;
+    /** Region of interest in preview view coordinates, or null to recognize all that is visible. */
+    private volatile float[] regionOfInterest;
+
+    public RecognitionPipeline(@NonNull Application application) {
+        super(application);
+        Resources resources = application.getResources();
+        mainExecutor = ContextCompat.getMainExecutor(application);
+        // Each slot gets its own thread, so that the frames in flight are recognized in parallel.
+        int concurrency = resources.getInteger(R.integer.recognition_concurrency);
+        int tileSize = resources.getInteger(R.integer.tile_size);
+        recognitionExecutor = Executors.newFixedThreadPool(concurrency);
+        recognitionSlots = new RecognitionSlot[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            TextRecognizerOptions options = new TextRecognizerOptions.Builder()
+                    .setExecutor(recognitionExecutor)
+                    .build();
+            BarcodeScannerOptions barcodeOptions = new BarcodeScannerOptions.Builder()
+                    .setExecutor(recognitionExecutor)
+                    .build();
+            recognitionSlots[i] = new RecognitionSlot(TextRecognition.getClient(options),
+                    BarcodeScanning.getClient(barcodeOptions), tileSize > 0
+                    ? new TileMerger(tileSize, resources.getInteger(R.integer.tile_overlap))
+                    : null);
+        }
+        if (tileSize > 0) {
+            // The tiles of a frame are recognized in parallel, by as many recognizers as there are
+            // threads to run them.
+            int tileWorkers = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+            tileExecutor = Executors.newFixedThreadPool(tileWorkers);
+            tileRecognizers = new TextRecognizer[tileWorkers];
+            for (int i = 0; i < tileWorkers; i++) {
+                tileRecognizers[i] = TextRecognition.getClient(new TextRecognizerOptions.Builder()
+                        .setExecutor(tileExecutor)
+                        .build());
+            }
+        } else {
+            tileExecutor = null;
+            tileRecognizers = null;
+        }
+        int textPeriod = resources.getInteger(R.integer.text_detection_period);
+        int barcodePeriod = resources.getInteger(R.integer.barcode_detection_period);
+        textDetection = textPeriod > 0;
+        barcodeDetection = barcodePeriod > 0;
+        // Text recognition starts at most once per recognition_interval_ms shared by the slots, so
+        // that a second frame goes into flight while the first is still being recognized. Barcodes
+        // are scanned at the camera rate.
+        detectorScheduler = new DetectorScheduler(textPeriod, barcodePeriod,
+                resources.getInteger(R.integer.recognition_interval_ms) / concurrency);
+        // Last, as the swaps touch the scheduler on the executor.
+        filteredWords = TextNormalizer.words(resultString).toArray(new String[0]);
+        setTargets(Arrays.asList(filteredWords));
+        setPhrases(Collections.singletonList(resultString));
+        loadBundledTargets();
+    }
+
+    /**
+     * Attaches the views of a newly created activity, replacing those of the previous one. Call it
+     * from {@code onCreate}, after {@link PipelineMetrics#onStartup}, and {@link #detach()} from
+     * {@code onDestroy}. The highlights and the scene of the previous views are dropped, so the
+     * first frame of the new camera binding is recognized straight away.
+     */
+    public void attach(GraphicOverlay overlay, View previewSurface, AnalysisTierListener listener) {
+        overlay.setMetrics(metrics);
+        this.previewSurface = previewSurface;
+        tierListener = listener;
+        overlayView = overlay;
+        if (!warmUpStarted) {
+            warmUpStarted = true;
+            warmUpDetectors();
+        } else if (detectorsReady) {
+            metrics.onMilestone(PipelineMetrics.Milestone.RECOGNIZER_READY, System.nanoTime());
+        }
+        executor.execute(() -> {
+            boxTracker.clear();
+            motionGate.invalidate();
+            detectorScheduler.reset();
+        });
+    }
+
+    /** Detaches the views attached last; frames are skipped until others are attached. */
+    public void detach() {
+        overlayView = null;
+        previewSurface = null;
+        tierListener = null;
+    }
+
+    /** Returns the executor that {@link #analyze(ImageProxy, int)} is meant to be called on. */
+    public Executor getAnalysisExecutor() {
+        return analysisExecutor;
+    }
+
+    /**
+     * Returns the analysis tier to bind image analysis at, the one last chosen by the {@link
+     * ResolutionController}, which a recreated activity starts from.
+     */
+    public int getAnalysisTier() {
+        return analysisTier;
+    }
+
+    /** Returns the short edge of the given tier's 4:3 analysis resolution. */
+    public int analysisShortEdge(int tier) {
+        return ANALYSIS_TIERS[tier];
+    }
+
+    /** Returns the frame processor to hand Camera1 frames to; see {@link LegacyFrameProcessor}. */
+    public CameraSource.FrameProcessor getLegacyFrameProcessor() {
+        return legacyFrameProcessor;
+    }
+
+    /** Returns how many frames may be recognized at once. */
+    public int getConcurrency() {
+        return recognitionSlots.length;
+    }
+
+    @Override
+    protected void onCleared() {
+        // Queued behind the frames still being analyzed.
+        executor.execute(() -> {
+            closeRecorder();
+            for (RecognitionSlot slot : recognitionSlots) {
+                slot.recognizer.close();
+                slot.barcodeScanner.close();
+            }
+            if (tileRecognizers != null) {
+                for (TextRecognizer recognizer : tileRecognizers) {
+                    recognizer.close();
+                }
+                tileExecutor.shutdown();
+            }
+            recognitionExecutor.shutdown();
+        });
+        // Frames and detector completions arriving from now on are released rather than run.
+        executor.shutdown();
+    }
+
+    /**
+     * Runs every detector the {@link #detectorScheduler} uses once on a tiny blank image, so that
+     * the first camera frame does not pay for loading their models as well. They run on their own
+     * executors, while the camera starts.
+     */
+    private void warmUpDetectors() {
+        InputImage blank = InputImage.fromByteArray(new byte[WARM_UP_SIZE * WARM_UP_SIZE * 3 / 2],
+                WARM_UP_SIZE, WARM_UP_SIZE, 0, InputImage.IMAGE_FORMAT_NV21);
+        List<Task<?>> tasks = new ArrayList<>();
+        for (RecognitionSlot slot : recognitionSlots) {
+            if (textDetection) {
+                tasks.add(slot.recognizer.process(blank));
+            }
+            if (barcodeDetection) {
+                tasks.add(slot.barcodeScanner.process(blank));
+            }
+        }
+        if (textDetection && tileRecognizers != null) {
+            for (TextRecognizer recognizer : tileRecognizers) {
+                tasks.add(recognizer.process(blank));
+            }
+        }
+        Tasks.whenAllComplete(tasks).addOnCompleteListener(executor, all -> {
+            detectorsReady = true;
+            metrics.onMilestone(PipelineMetrics.Milestone.RECOGNIZER_READY, System.nanoTime());
+        });
+    }
+
+    /**
+     * Replaces the words to highlight, for example with a whole catalogue of names or part numbers.
+     * Large target sets take a while to index, so they are compiled on the analysis executor, which
+     * also serializes the swap with the matching of in-flight frames.
+     */
+    public void setTargets(Collection<String> targets) {
+        List<String> snapshot = new ArrayList<>(targets);
+        executor.execute(() -> swapTargets(TargetMatcher.compile(snapshot), snapshot));
+    }
+
+    /**
+     * Replaces the words to highlight with those of an index compiled ahead of time by {@link
+     * TargetIndexCompiler}, typically one mapped with {@link FuzzyIndex#map(File)}, which takes no
+     * time to open however many targets it holds.
+     */
+    public void setTargets(FuzzyIndex index) {
+        executor.execute(() -> swapTargets(TargetMatcher.forIndex(index), index.targets()));
+    }
+
+    /** Only called on {@link #executor}. */
+    private void swapTargets(TargetMatcher matcher, List<String> targets) {
+        targetMatcher = matcher;
+        highlightExtractor = new HighlightExtractor(targetMatcher, phraseMatcher);
+        this.targets = targets;
+        recordTargets();
+        motionGate.invalidate();
+        detectorScheduler.reset();
+        boxTracker.clear();
+    }
+
+    /**
+     * Maps the target index bundled as {@link #TARGET_INDEX_ASSET}, if there is one, in place of the
+     * words of {@link #resultString}. The asset is stored uncompressed, so the index is mapped
+     * straight out of the APK.
+     */
+    private void loadBundledTargets() {
+        executor.execute(() -> {
+            try (AssetFileDescriptor descriptor =
+                         getApplication().getAssets().openFd(TARGET_INDEX_ASSET);
+                 FileInputStream in = descriptor.createInputStream()) {
+                FuzzyIndex index = FuzzyIndex.map(in.getChannel(), descriptor.getStartOffset(),
+                        descriptor.getLength());
+                swapTargets(TargetMatcher.forIndex(index), index.targets());
+            } catch (FileNotFoundException e) {
+                // No bundled index.
+            } catch (IOException e) {
+                Log.w(RecognitionPipeline.class.getSimpleName(), "Could not map " + TARGET_INDEX_ASSET, e);
+            }
+        });
+    }
+
+    /**
+     * Replaces the phrases to highlight as a unit, like {@link #resultString}. Single words of a
+     * phrase are still highlighted on their own when the whole phrase is not in view, as long as
+     * they are also targets.
+     */
+    public void setPhrases(Collection<String> phrases) {
+        List<String> snapshot = new ArrayList<>(phrases);
+        executor.execute(() -> {
+            phraseMatcher = PhraseMatcher.compile(snapshot);
+            if (targetMatcher != null) {
+                highlightExtractor = new HighlightExtractor(targetMatcher, phraseMatcher);
+            }
+            this.phrases = snapshot;
+            recordTargets();
+            motionGate.invalidate();
+            detectorScheduler.reset();
+            boxTracker.clear();
+        });
+    }
+
+    /**
+     * Restricts recognition to the given rectangle of the preview, in view coordinates, or lifts the
+     * restriction if it is null.
+     */
+    public void setRegionOfInterest(RectF roi) {
+        regionOfInterest = roi == null ? null : new float[]{roi.left, roi.top, roi.right, roi.bottom};
+    }
+
+    /**
+     * Starts recording the frames handed to the recognizer, only their luma to keep the file small,
+     * and the text recognized in them to {@code file}, replacing any recording in progress. Replay
+     * it off the device with {@link SessionReplay}.
+     */
+    public void startRecording(File file) {
+        executor.execute(() -> {
+            closeRecorder();
+            try {
+                recorder = new SessionRecorder(file);
+                recordTargets();
+            } catch (IOException e) {
+                Log.w(RecognitionPipeline.class.getSimpleName(), "Could not record to " + file, e);
+                recorder = null;
+            }
+        });
+    }
+
+    public void stopRecording() {
+        executor.execute(this::closeRecorder);
+    }
+
+    /** Only called on {@link #executor}. */
+    private void closeRecorder() {
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.close();
+        } catch (IOException e) {
+            Log.w(RecognitionPipeline.class.getSimpleName(), "Could not finish recording", e);
+        }
+        recorder = null;
+    }
+
+    /** Only called on {@link #executor}. */
+    private void recordTargets() {
+        if (recorder != null) {
+            try {
+                recorder.recordTargets(targets, phrases);
+            } catch (IOException e) {
+                onRecordingFailed(e);
+            }
+        }
+    }
+
+    /** Only called on {@link #executor}. */
+    private void onRecordingFailed(IOException e) {
+        Log.w(RecognitionPipeline.class.getSimpleName(), "Recording failed, stopped", e);
+        closeRecorder();
+    }
+
+    /** Returns the live latency and frame metrics of the recognition pipeline. */
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Writes a snapshot of {@link #getMetrics()} to {@code pipeline-metrics.tsv} in the app's files
+     * directory, off the UI thread.
+     */
+    public void dumpMetrics() {
+        PipelineMetrics.Snapshot snapshot = metrics.snapshot();
+        File file = new File(getApplication().getFilesDir(), METRICS_FILE);
+        executor.execute(() -> {
+            try {
+                snapshot.writeTo(file);
+            } catch (IOException e) {
+                Log.w(RecognitionPipeline.class.getSimpleName(), "Could not write " + file, e);
+            }
+        });
+    }
+
+    /**
+     * Writes the trace events of the last {@code windowMillis} to {@code pipeline-trace.json} in the
+     * app's files directory, off the UI thread. Load it in ui.perfetto.dev or chrome://tracing.
+     */
+    public void dumpTrace(long windowMillis) {
+        File file = new File(getApplication().getFilesDir(), TRACE_FILE);
+        executor.execute(() -> {
+            try {
+                EventTracer.getDefault().writeChromeTrace(file, windowMillis * 1_000_000L);
+            } catch (IOException e) {
+                Log.w(RecognitionPipeline.class.getSimpleName(), "Could not write " + file, e);
+            }
+        });
+    }
+
+    /**
+     * Hands Camera1 frames to the analysis executor without copying them. Like CameraX's {@code
+     * STRATEGY_KEEP_ONLY_LATEST}, frames arriving while as many as can be recognized at once are
+     * still held are skipped; their buffers go straight back to the camera.
+     */
+    private class LegacyFrameProcessor implements CameraSource.FrameProcessor {
+        @Override
+        public void process(CameraSource.Frame frame) {
+            if (legacyFramesHeld.incrementAndGet() > recognitionSlots.length) {
+                legacyFramesHeld.decrementAndGet();
+                frame.release();
+                return;
+            }
+            Runnable release = () -> {
+                frame.release();
+                legacyFramesHeld.decrementAndGet();
+            };
+            executor.execute(new FrameTask(() -> {
+                frameInput.setNv21(frame.getData(), frame.getWidth(), frame.getHeight(),
+                        frame.getRotationDegrees(), frame.getTimestampNanos());
+                analyzeFrame(frameInput, release);
+            }, release));
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+
+    /**
+     * Analyzes a CameraX frame captured at the given {@link #getAnalysisTier() tier}, on {@link
+     * #getAnalysisExecutor()}.
+     */
+    public void analyze(@NonNull ImageProxy imageProxy, int tier) {
+        frameInput.setImage(imageProxy, tier);
+        analyzeFrame(frameInput, imageProxy::close);
+    }
+
+    /**
+     * Recognizes a frame of either backend, on {@link #executor}, and runs {@code release} once the
+     * frame's buffers are no longer needed.
+     *
+     * <p>Up to one frame per {@link RecognitionSlot} is recognized at once. Frames are copied into
+     * their slot's crop buffer and released right away, so the camera can deliver the next one,
+     * unless they are recognized in place. Results arrive in any order; {@link #resultSequencer}
+     * only lets through those that are newer than the last one shown and not past the deadline.
+     *
+     * <p>The {@link #detectorScheduler} picks the detectors for each frame. They all run on the same
+     * {@code InputImage}, and their highlights are merged into one overlay update.
+     *
+     * <p>Text in frames larger than {@code tile_size} is recognized in overlapping tiles instead, by
+     * {@link #tileRecognizers} in parallel, and the slot's {@link TileMerger} puts the text of the
+     * tiles back together in the coordinates of the whole frame.
+     */
+    private void analyzeFrame(FrameInput frame, Runnable release) {
+        // Convert the sensor timestamp once, so that all later stages can use System.nanoTime().
+        long frameTimestamp = frame.timestampNanos;
+        int frameTier = frame.tier;
+        long frameAge = PipelineMetrics.frameAge(frameTimestamp,
+                SystemClock.elapsedRealtimeNanos(), System.nanoTime());
+        long frameStart = System.nanoTime() - Math.max(frameAge, 0);
+        metrics.onFrameReceived(frameTimestamp, frameAge);
+        metrics.onMilestone(PipelineMetrics.Milestone.FIRST_FRAME, frameStart);
+        tracer.instant(EventTracer.Event.FRAME, frameTimestamp);
+        GraphicOverlay overlayView = this.overlayView;
+        View previewSurface = this.previewSurface;
+        if (overlayView == null) {
+            // Between activities; frames of the previous camera binding may still trickle in.
+            metrics.onFrameThrottled();
+            release.run();
+            return;
+        }
+
+        long frameTime = SystemClock.uptimeMillis();
+        RecognitionSlot slot = freeRecognitionSlot();
+        if (slot == null) {
+            metrics.onFrameThrottled();
+            release.run();
+            return;
+        }
+
+        // Skip recognition while the scene is static and keep showing the current highlights.
+        if (!motionGate.shouldProcess(frame.yPlane, frame.yRowStride, frame.yPixelStride,
+                frame.width, frame.height)) {
+            metrics.onFrameUnchanged();
+            overlayView.setTrackedHighlights(boxTracker.hold(frameTime));
+            release.run();
+            return;
+        }
+        // Recognize text a few times a second; the box tracker moves the highlights in between.
+        int detectors = detectorScheduler.next(motionGate, frameTime);
+        if (detectors == 0) {
+            metrics.onFrameThrottled();
+            release.run();
+            return;
+        }
+
+        // Only recognize what is visible in the preview, and within the region of interest if set.
+        int rotationDegrees = frame.rotationDegrees;
+        viewport.update(frame.width, frame.height, rotationDegrees,
+                previewSurface.getWidth(), previewSurface.getHeight(), regionOfInterest);
+        if (viewport.isEmpty()) {
+            boxTracker.clear();
+            overlayView.setHighlights(HighlightResult.EMPTY);
+            release.run();
+            return;
+        }
+        long cropStart = System.nanoTime();
+        TileMerger tileMerger = slot.tileMerger;
+        boolean tiled = (detectors & DetectorScheduler.TEXT) != 0 && tileMerger != null
+                && tileMerger.needsTiles(viewport.getCropWidth(), viewport.getCropHeight());
+        List<InputImage> tileImages = null;
+        if (tiled) {
+            frame.sliceChroma();
+            int tiles = tileMerger.layout(viewport.getCropWidth(), viewport.getCropHeight(),
+                    rotationDegrees);
+            tileImages = new ArrayList<>(tiles);
+            for (int tile = 0; tile < tiles; tile++) {
+                if (slot.tileCroppers.size() == tile) {
+                    slot.tileCroppers.add(new FrameCropper());
+                }
+                int width = tileMerger.tileWidth(tile);
+                int height = tileMerger.tileHeight(tile);
+                byte[] tileNv21 = slot.tileCroppers.get(tile).crop(
+                        frame.yPlane, frame.yRowStride, frame.uPlane, frame.vPlane,
+                        frame.uvRowStride, frame.uvPixelStride,
+                        viewport.getCropLeft() + tileMerger.tileLeft(tile),
+                        viewport.getCropTop() + tileMerger.tileTop(tile), width, height);
+                tileImages.add(InputImage.fromByteArray(tileNv21, width, height, rotationDegrees,
+                        InputImage.IMAGE_FORMAT_NV21));
+            }
+        }
+        byte[] nv21;
+        InputImage inputImage;
+        Runnable releaseWhenRecognized;
+        if (tiled && (detectors & DetectorScheduler.BARCODE) == 0 && recorder == null) {
+            // The tiles are all there is to recognize, so the whole crop is not needed.
+            nv21 = null;
+            inputImage = null;
+            releaseWhenRecognized = null;
+        } else if (frame.nv21 != null && viewport.getCropWidth() == frame.width
+                && viewport.getCropHeight() == frame.height) {
+            // The whole frame is visible and already NV21, so recognize the camera's own buffer.
+            nv21 = frame.nv21.array();
+            inputImage = InputImage.fromByteBuffer(frame.nv21, frame.width, frame.height,
+                    rotationDegrees, InputImage.IMAGE_FORMAT_NV21);
+            releaseWhenRecognized = release;
+        } else {
+            frame.sliceChroma();
+            nv21 = slot.cropper.crop(
+                    frame.yPlane, frame.yRowStride, frame.uPlane, frame.vPlane,
+                    frame.uvRowStride, frame.uvPixelStride,
+                    viewport.getCropLeft(), viewport.getCropTop(),
+                    viewport.getCropWidth(), viewport.getCropHeight());
+            inputImage = InputImage.fromByteArray(nv21,
+                    viewport.getCropWidth(), viewport.getCropHeight(), rotationDegrees,
+                    InputImage.IMAGE_FORMAT_NV21);
+            releaseWhenRecognized = null;
+        }
+        long cropEnd = System.nanoTime();
+        metrics.record(PipelineMetrics.Stage.CROP, cropEnd - cropStart);
+        tracer.span(EventTracer.Event.CROP, cropStart, cropEnd, frameTimestamp);
+        if (recorder != null) {
+            try {
+                recorder.recordFrame(frameTimestamp, rotationDegrees, viewport.getCropWidth(),
+                        viewport.getCropHeight(), nv21, false);
+            } catch (IOException e) {
+                onRecordingFailed(e);
+            }
+        }
+        if (releaseWhenRecognized == null) {
+            release.run();
+        }
+
+//        resultString = "it was the best";
+//        filteredWords = resultString.split("[-\n\\s]+");
+//        setTargets(Arrays.asList(filteredWords));
+        overlayView.setCameraInfo(frame.width, frame.height);
+        // Only rebuilt when the frame size, view size, rotation or ROI change.
+        ViewTransform imageToView = viewport.getImageToView();
+
+        // Run the scheduled detectors on the same image. Matching runs on the analysis executor so
+        // the overlay only has to draw the precomputed highlights, of all detectors in one update.
+        // The slot's crop buffer is reused, so the slot only takes the next frame once the
+        // detectors are done with this one.
+        long sequence = resultSequencer.begin();
+        slot.busy = true;
+        tracer.counter(EventTracer.Event.IN_FLIGHT, resultSequencer.getInFlight());
+        long recognizeStart = System.nanoTime();
+        // One text task for the whole image, or one per tile.
+        List<Task<Text>> textTasks;
+        if (tiled) {
+            textTasks = new ArrayList<>(tileImages.size());
+            for (int tile = 0; tile < tileImages.size(); tile++) {
+                textTasks.add(tileRecognizers[tile % tileRecognizers.length]
+                        .process(tileImages.get(tile)));
+            }
+        } else if ((detectors & DetectorScheduler.TEXT) != 0) {
+            textTasks = Collections.singletonList(slot.recognizer.process(inputImage));
+        } else {
+            textTasks = null;
+        }
+        Task<List<Barcode>> barcodeTask = (detectors & DetectorScheduler.BARCODE) != 0
+                ? slot.barcodeScanner.process(inputImage) : null;
+        List<Task<?>> tasks = new ArrayList<>(2);
+        if (textTasks != null) {
+            tasks.addAll(textTasks);
+        }
+        if (barcodeTask != null) {
+            tasks.add(barcodeTask);
+        }
+        // Should the pipeline shut down before the detectors are done, the completion is rejected
+        // and only frees the slot and the frame.
+        Runnable releaseSlot = () -> {
+            slot.busy = false;
+            // Release a frame recognized in place now that the detectors are done with it.
+            if (releaseWhenRecognized != null) {
+                releaseWhenRecognized.run();
+            }
+        };
+        Executor completionExecutor =
+                completion -> executor.execute(new FrameTask(completion, releaseSlot));
+        Tasks.whenAllComplete(tasks).addOnCompleteListener(completionExecutor, all -> {
+            releaseSlot.run();
+            long matchStart = System.nanoTime();
+            metrics.record(PipelineMetrics.Stage.RECOGNIZE, matchStart - recognizeStart);
+            tracer.span(EventTracer.Event.RECOGNIZE, recognizeStart, matchStart, frameTimestamp);
+            // Text is only found if all tiles were recognized, lest the highlights of a tile vanish.
+            boolean textFound = textTasks != null && allSuccessful(textTasks);
+            boolean barcodesFound = barcodeTask != null && barcodeTask.isSuccessful();
+            if (textFound || barcodesFound) {
+                metrics.onFrameRecognized();
+            }
+            if (textFound != (textTasks != null) || barcodesFound != (barcodeTask != null)) {
+                metrics.onRecognitionFailed();
+                // Recognize the next frame even if the scene has not changed.
+                motionGate.invalidate();
+            }
+            if (!textFound && !barcodesFound) {
+                resultSequencer.fail(sequence);
+                tracer.counter(EventTracer.Event.IN_FLIGHT, resultSequencer.getInFlight());
+                return;
+            }
+            ResultSequencer.Verdict verdict =
+                    resultSequencer.complete(sequence, frameStart, matchStart);
+            tracer.counter(EventTracer.Event.IN_FLIGHT, resultSequencer.getInFlight());
+            if (verdict == ResultSequencer.Verdict.STALE) {
+                metrics.onResultStale();
+                return;
+            } else if (verdict == ResultSequencer.Verdict.LATE) {
+                metrics.onResultLate();
+                return;
+            }
+            if (overlayView != this.overlayView) {
+                // The views were replaced while recognizing, so the result is in the wrong place.
+                return;
+            }
+            overlayView.setTransform(imageToView);
+            highlightExtractor.begin();
+            RecognizedText recognized = null;
+            if (textFound && tiled) {
+                for (int tile = 0; tile < textTasks.size(); tile++) {
+                    tileMerger.addTile(tile, tileText.reset(textTasks.get(tile).getResult()));
+                }
+                recognized = tileMerger.merge();
+                highlightExtractor.addText(recognized);
+            } else if (textFound) {
+                recognized = recognizedText.reset(textTasks.get(0).getResult());
+                highlightExtractor.addText(recognized);
+            }
+            if (barcodesFound) {
+                for (Barcode barcode : barcodeTask.getResult()) {
+                    Rect box = barcode.getBoundingBox();
+                    String value = barcode.getRawValue();
+                    if (box != null && value != null) {
+                        highlightExtractor.addCode(value, box.left, box.top, box.right, box.bottom);
+                    }
+                }
+            }
+            HighlightResult highlights = highlightExtractor.finish(imageToView);
+            TrackedHighlights tracked = boxTracker.update(highlights, frameTime);
+            if (recognized != null) {
+                int nextTier = resolutionController.onRecognized(frameTier, recognized);
+                if (nextTier >= 0) {
+                    analysisTier = nextTier;
+                    mainExecutor.execute(() -> {
+                        if (tierListener != null) {
+                            tierListener.onAnalysisTierChanged(nextTier);
+                        }
+                    });
+                }
+            }
+            long matchEnd = System.nanoTime();
+            metrics.record(PipelineMetrics.Stage.MATCH, matchEnd - matchStart);
+            tracer.span(EventTracer.Event.MATCH, matchStart, matchEnd, frameTimestamp);
+            overlayView.setTrackedHighlights(tracked, frameStart);
+            if (recorder != null && recognized != null) {
+                try {
+                    recorder.recordText(frameTimestamp, imageToView, recognized);
+                } catch (IOException e) {
+                    onRecordingFailed(e);
+                }
+            }
+        });
+    }
+
+    private static boolean allSuccessful(List<? extends Task<?>> tasks) {
+        for (Task<?> task : tasks) {
+            if (!task.isSuccessful()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns a slot that is not recognizing a frame, or null if all are. */
+    private RecognitionSlot freeRecognitionSlot() {
+        for (RecognitionSlot slot : recognitionSlots) {
+            if (!slot.busy) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Work on {@link #executor} that holds on to a camera frame, with what to do instead of it if
+     * the executor has shut down, lest the frame never go back to the camera.
+     */
+    private static final class FrameTask implements Runnable {
+        final Runnable task;
+        /** Run in place of {@link #task} on the thread it was handed to the executor on. */
+        final Runnable onRejected;
+
+        FrameTask(Runnable task, Runnable onRejected) {
+            this.task = task;
+            this.onRejected = onRejected;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+
+    /**
+     * Discards work handed to {@link #executor} once it has shut down, like {@link
+     * ThreadPoolExecutor.DiscardPolicy}, but runs {@link FrameTask#onRejected} of frame tasks.
+     */
+    private static final class FrameRejectionPolicy implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (task instanceof FrameTask) {
+                ((FrameTask) task).onRejected.run();
+            }
+        }
+    }
+
+    /**
+     * The detectors and the buffers frames are cropped into for them, for one frame at a time. Only
+     * touched on {@link #executor}.
+     */
+    private static final class RecognitionSlot {
+        final TextRecognizer recognizer;
+        final BarcodeScanner barcodeScanner;
+        final FrameCropper cropper = new FrameCropper();
+        /** Lays out and merges the tiles of large frames, or null if frames are not tiled. */
+        final TileMerger tileMerger;
+        /** One per tile, added as frames need them. */
+        final List<FrameCropper> tileCroppers = new ArrayList<>();
+        boolean busy;
+
+        RecognitionSlot(TextRecognizer recognizer, BarcodeScanner barcodeScanner,
+                        TileMerger tileMerger) {
+            this.recognizer = recognizer;
+            this.barcodeScanner = barcodeScanner;
+            this.tileMerger = tileMerger;
+        }
+    }
+
+    /**
+     * The planes and metadata of one camera frame, as either backend delivers it. Reused from frame
+     * to frame; only touched on {@link #executor}.
+     */
+    private static final class FrameInput {
+        /** The {@link #ANALYSIS_TIERS analysis tier}, or -1 for Camera1 frames. */
+        int tier;
+        long timestampNanos;
+        int width;
+        int height;
+        int rotationDegrees;
+        ByteBuffer yPlane;
+        ByteBuffer uPlane;
+        ByteBuffer vPlane;
+        int yRowStride;
+        int yPixelStride;
+        int uvRowStride;
+        int uvPixelStride;
+        /** The whole frame in one NV21 buffer, which can be recognized without a copy, or null. */
+        ByteBuffer nv21;
+
+        void setImage(ImageProxy image, int tier) {
+            ImageProxy.PlaneProxy[] planes = image.getPlanes();
+            this.tier = tier;
+            timestampNanos = image.getImageInfo().getTimestamp();
+            width = image.getWidth();
+            height = image.getHeight();
+            rotationDegrees = image.getImageInfo().getRotationDegrees();
+            yPlane = planes[0].getBuffer();
+            yRowStride = planes[0].getRowStride();
+            yPixelStride = planes[0].getPixelStride();
+            uPlane = planes[1].getBuffer();
+            vPlane = planes[2].getBuffer();
+            uvRowStride = planes[1].getRowStride();
+            uvPixelStride = planes[1].getPixelStride();
+            nv21 = null;
+        }
+
+        void setNv21(ByteBuffer data, int width, int height, int rotationDegrees, long timestampNanos) {
+            this.timestampNanos = timestampNanos;
+            tier = -1;
+            this.width = width;
+            this.height = height;
+            this.rotationDegrees = rotationDegrees;
+            yPlane = data;
+            yRowStride = width;
+            yPixelStride = 1;
+            uPlane = null;
+            vPlane = null;
+            uvRowStride = width;
+            uvPixelStride = 2;
+            nv21 = data;
+        }
+
+        /** Points the chroma planes into the NV21 buffer, where V comes first, unless they are set. */
+        void sliceChroma() {
+            if (uPlane != null) {
+                return;
+            }
+            int lumaSize = width * height;
+            vPlane = nv21.duplicate();
+            vPlane.position(lumaSize);
+            uPlane = nv21.duplicate();
+            uPlane.position(lumaSize + 1);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.text.recognition;
+
+/**
+ * Read-only view of a recognized page as lines of elements (words) with their bounding boxes in
+ * image coordinates. {@link HighlightExtractor} matches against this instead of ML Kit's {@code
+ * Text} directly, so that the same matching runs on the device ({@link MlKitText}), over recorded
+ * sessions ({@link CapturedText}) and in benchmarks on a plain JVM.
+ */
+public interface RecognizedText {
+
+    int lineCount();
+
+    /** Returns the whole text of a line, with its words separated by whitespace. */
+    String lineText(int line);
+
+    int elementCount(int line);
+
+    String elementText(int line, int element);
+
+    /**
+     * Writes the bounding box of an element to {@code out} as {@code left, top, right, bottom}, and
+     * returns false, leaving {@code out} untouched, if the element has none.
+     */
+    boolean elementBox(int line, int element, float[] out);
+}
@@ -0,0 +1,133 @@
+package com.text.recognition;
+
+import java.util.Arrays;
+
+/**
+ * Picks the analysis resolution from the size of the text actually recognized, so that text is
+ * recognized at the pixel height the recognizer needs and no more: large signage is read from small
+ * frames, small print gets large ones.
+ *
+ * <p>Resolutions are a fixed list of tiers, given by the short edge of the frame in ascending
+ * order. After every recognized frame the median height of its elements is noted; once a window of
+ * such frames has been seen at the current tier, the median of their medians decides. Text lower
+ * than the minimum height moves one tier up. Text higher than the maximum moves one tier down, but
+ * only if it would still be at least the minimum height there. With a maximum well above the
+ * minimum times the ratio between neighbouring tiers, a step in either direction lands inside the
+ * band, so the resolution does not flip back and forth. After a step the window starts over, and
+ * frames of the previous tier still in flight are ignored.
+ *
+ * <p>Instances are not thread safe; they are meant to be used from the analysis executor only.
+ */
+public final class ResolutionController {
+
+    /** Text lower than this, in pixels, is often misread. */
+    public static final float DEFAULT_MIN_TEXT_HEIGHT = 20f;
+    public static final float DEFAULT_MAX_TEXT_HEIGHT = 48f;
+    public static final int DEFAULT_WINDOW = 5;
+
+    private final int[] tiers;
+    private final float minTextHeight;
+    private final float maxTextHeight;
+    private final float[] window;
+    private int windowSize;
+    private int tier;
+
+    /** Scratch space for the element heights of one frame. */
+    private float[] heights = new float[64];
+    private final float[] box = new float[4];
+
+    public ResolutionController(int[] tiers, int initialTier) {
+        this(tiers, initialTier, DEFAULT_MIN_TEXT_HEIGHT, DEFAULT_MAX_TEXT_HEIGHT, DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param tiers short edges of the available resolutions, ascending
+     * @param window recognized frames to base each decision on
+     */
+    public ResolutionController(int[] tiers, int initialTier, float minTextHeight,
+                                float maxTextHeight, int window) {
+        if (tiers.length == 0 || initialTier < 0 || initialTier >= tiers.length) {
+            throw new IllegalArgumentException("Invalid tier " + initialTier + " of " + tiers.length);
+        }
+        for (int i = 1; i < tiers.length; i++) {
+            if (tiers[i] <= tiers[i - 1]) {
+                throw new IllegalArgumentException("Tiers must be ascending: " + Arrays.toString(tiers));
+            }
+        }
+        if (!(minTextHeight > 0 && maxTextHeight > minTextHeight) || window <= 0) {
+            throw new IllegalArgumentException("Invalid text height band or window");
+        }
+        this.tiers = tiers.clone();
+        this.tier = initialTier;
+        this.minTextHeight = minTextHeight;
+        this.maxTextHeight = maxTextHeight;
+        this.window = new float[window];
+    }
+
+    /** Returns the index of the current tier. */
+    public int getTier() {
+        return tier;
+    }
+
+    /** Returns the short edge of the given tier's resolution. */
+    public int tierShortEdge(int tier) {
+        return tiers[tier];
+    }
+
+    /**
+     * Notes the text recognized in a frame captured at the given tier, and returns the tier to
+     * switch to, or -1 to stay. Frames without text, or of another tier than the current one, are
+     * ignored.
+     */
+    public int onRecognized(int frameTier, RecognizedText text) {
+        if (frameTier != tier) {
+            return -1;
+        }
+        float height = medianElementHeight(text);
+        if (Float.isNaN(height)) {
+            return -1;
+        }
+        window[windowSize++] = height;
+        if (windowSize < window.length) {
+            return -1;
+        }
+        float median = median(window, window.length);
+        windowSize = 0;
+
+        int next = -1;
+        if (median < minTextHeight && tier < tiers.length - 1) {
+            next = tier + 1;
+        } else if (median > maxTextHeight && tier > 0
+                && median * tiers[tier - 1] / tiers[tier] >= minTextHeight) {
+            next = tier - 1;
+        }
+        if (next >= 0) {
+            tier = next;
+        }
+        return next;
+    }
+
+    /** Returns the median height of the elements with a box, or NaN if there are none. */
+    float medianElementHeight(RecognizedText text) {
+        int count = 0;
+        for (int line = 0, lines = text.lineCount(); line < lines; line++) {
+            for (int element = 0, elements = text.elementCount(line); element < elements; element++) {
+                if (!text.elementBox(line, element, box)) {
+                    continue;
+                }
+                if (count == heights.length) {
+                    heights = Arrays.copyOf(heights, count * 2);
+                }
+                heights[count++] = box[3] - box[1];
+            }
+        }
+        return count == 0 ? Float.NaN : median(heights, count);
+    }
+
+    /** Returns the median of the first {@code count} values, reordering them. */
+    private static float median(float[] values, int count) {
+        Arrays.sort(values, 0, count);
+        int middle = count / 2;
+        return count % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+    }
+}
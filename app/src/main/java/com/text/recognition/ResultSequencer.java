@@ -0,0 +1,71 @@
+package com.text.recognition;
+
+/**
+ * Decides which recognition results to show when several frames are recognized at once, and their
+ * results come back in any order.
+ *
+ * <p>Frames are numbered in the order they are handed to the recognizer. A result is only shown if
+ * its frame is newer than the frames of all results shown before, so the highlights never jump
+ * back in time, and if the frame is younger than the deadline, since an older result shows where
+ * the text was rather than where it is. Every other result is dropped.
+ *
+ * <p>Instances are not thread safe; they are meant to be used from the analysis executor only.
+ */
+public final class ResultSequencer {
+
+    /** What to do with a result. */
+    public enum Verdict {
+        SHOW,
+        /** A newer frame's result has already been shown. */
+        STALE,
+        /** The frame is older than the deadline. */
+        LATE
+    }
+
+    private final long deadlineNanos;
+    private long nextSequence;
+    private long lastShown = -1;
+    private int inFlight;
+
+    /** @param deadlineNanos age of a frame beyond which its result is dropped */
+    public ResultSequencer(long deadlineNanos) {
+        if (deadlineNanos <= 0) {
+            throw new IllegalArgumentException("Deadline must be positive: " + deadlineNanos);
+        }
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /** Numbers a frame handed to the recognizer; every number must be ended once. */
+    public long begin() {
+        inFlight++;
+        return nextSequence++;
+    }
+
+    /**
+     * Ends a frame whose result arrived and decides whether to show it.
+     *
+     * @param frameStartNanos when the frame was captured, on the {@code System.nanoTime()} clock
+     * @param nowNanos the current {@code System.nanoTime()}
+     */
+    public Verdict complete(long sequence, long frameStartNanos, long nowNanos) {
+        inFlight--;
+        if (sequence <= lastShown) {
+            return Verdict.STALE;
+        }
+        if (nowNanos - frameStartNanos > deadlineNanos) {
+            return Verdict.LATE;
+        }
+        lastShown = sequence;
+        return Verdict.SHOW;
+    }
+
+    /** Ends a frame whose recognition failed. */
+    public void fail(long sequence) {
+        inFlight--;
+    }
+
+    /** Returns the number of frames begun and not yet ended. */
+    public int getInFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,220 @@
+package com.text.recognition;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads a capture written by {@link SessionRecorder}, one record at a time. The whole file is
+ * mapped read-only, and frame planes are returned as views of the mapping rather than copies.
+ *
+ * <pre>{@code
+ * try (SessionCapture capture = SessionCapture.open(file)) {
+ *     while (capture.next()) {
+ *         switch (capture.type()) { ... }
+ *     }
+ * }
+ * }</pre>
+ *
+ * <p>The accessors of each record type are only valid while {@link #type()} is that type.
+ */
+public final class SessionCapture implements Closeable {
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer data;
+    private int type;
+    private int payloadEnd;
+
+    private List<String> targets = Collections.emptyList();
+    private List<String> phrases = Collections.emptyList();
+    private long timestampNanos;
+    private int rotationDegrees;
+    private int width;
+    private int height;
+    private ByteBuffer luma;
+    private ByteBuffer chroma;
+    private ViewTransform imageToView;
+    private CapturedText text;
+
+    private SessionCapture(RandomAccessFile file, MappedByteBuffer data) {
+        this.file = file;
+        this.data = data;
+    }
+
+    public static SessionCapture open(File path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            long length = file.length();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Capture too large to map: " + length + " bytes");
+            }
+            MappedByteBuffer data = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+            data.order(ByteOrder.LITTLE_ENDIAN);
+            if (length < SessionRecorder.HEADER_SIZE || data.getInt() != SessionRecorder.MAGIC) {
+                throw new IOException("Not a session capture: " + path);
+            }
+            int version = data.getInt();
+            if (version != SessionRecorder.VERSION) {
+                throw new IOException("Unsupported capture version " + version + ": " + path);
+            }
+            return new SessionCapture(file, data);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Moves to the next record and returns false at the end of the capture, including the end of
+     * a capture whose recording was cut short.
+     */
+    public boolean next() throws IOException {
+        data.position(Math.max(data.position(), payloadEnd));
+        if (data.remaining() < SessionRecorder.RECORD_HEADER_SIZE) {
+            return false;
+        }
+        int start = data.position();
+        type = data.getInt();
+        int payload = data.getInt();
+        if (type == 0) {
+            data.position(start);
+            return false;
+        }
+        if (payload < 0 || payload > data.remaining()) {
+            throw new IOException("Corrupt record at " + start);
+        }
+        payloadEnd = data.position() + payload;
+        switch (type) {
+            case SessionRecorder.TYPE_TARGETS:
+                targets = getStrings();
+                phrases = getStrings();
+                break;
+            case SessionRecorder.TYPE_FRAME:
+                readFrame();
+                break;
+            case SessionRecorder.TYPE_TEXT:
+                readText();
+                break;
+            default:
+                // Records of later versions are skipped.
+                break;
+        }
+        return true;
+    }
+
+    /** Returns the type of the current record, one of the {@code SessionRecorder.TYPE_} values. */
+    public int type() {
+        return type;
+    }
+
+    public List<String> targets() {
+        return targets;
+    }
+
+    public List<String> phrases() {
+        return phrases;
+    }
+
+    /** Returns the camera timestamp of the current frame or text. */
+    public long timestampNanos() {
+        return timestampNanos;
+    }
+
+    public int rotationDegrees() {
+        return rotationDegrees;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /** Returns the frame's luma plane, {@link #width()} bytes per row, as a view of the file. */
+    public ByteBuffer luma() {
+        return luma;
+    }
+
+    /** Returns the frame's interleaved VU plane as a view of the file, or null if not recorded. */
+    public ByteBuffer chroma() {
+        return chroma;
+    }
+
+    public ViewTransform imageToView() {
+        return imageToView;
+    }
+
+    public CapturedText text() {
+        return text;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private void readFrame() {
+        timestampNanos = data.getLong();
+        rotationDegrees = data.getInt();
+        width = data.getInt();
+        height = data.getInt();
+        boolean hasChroma = (data.get() & SessionRecorder.FRAME_HAS_CHROMA) != 0;
+        luma = slice(width * height);
+        chroma = hasChroma ? slice(2 * ((width + 1) / 2) * ((height + 1) / 2)) : null;
+    }
+
+    private ByteBuffer slice(int length) {
+        ByteBuffer duplicate = data.duplicate();
+        duplicate.limit(duplicate.position() + length);
+        data.position(data.position() + length);
+        return duplicate.slice();
+    }
+
+    private void readText() {
+        timestampNanos = data.getLong();
+        float[] values = new float[6];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = data.getFloat();
+        }
+        imageToView = ViewTransform.fromValues(values);
+        CapturedText.Builder builder = new CapturedText.Builder();
+        for (int line = 0, lineCount = data.getInt(); line < lineCount; line++) {
+            builder.beginLine(getString());
+            for (int element = 0, elementCount = data.getInt(); element < elementCount; element++) {
+                String elementText = getString();
+                if (data.get() != 0) {
+                    builder.addElement(elementText, data.getFloat(), data.getFloat(),
+                            data.getFloat(), data.getFloat());
+                } else {
+                    builder.addElement(elementText);
+                }
+            }
+        }
+        text = builder.build();
+    }
+
+    private List<String> getStrings() {
+        int count = data.getInt();
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            strings.add(getString());
+        }
+        return strings;
+    }
+
+    private String getString() {
+        byte[] bytes = new byte[data.getInt()];
+        data.get(bytes);
+        return new String(bytes, SessionRecorder.UTF_8);
+    }
+}
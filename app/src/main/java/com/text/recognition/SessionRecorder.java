@@ -0,0 +1,206 @@
+package com.text.recognition;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Appends a scanning session to a capture file: the target lists, the frames handed to the
+ * recognizer and the text recognized in them, so that field sessions can be replayed off the
+ * device with {@link SessionReplay}.
+ *
+ * <p>The file is written through memory-mapped regions of {@link #DEFAULT_REGION_SIZE}, mapped one
+ * after the other as the file grows, so recording a frame is a copy into the page cache rather
+ * than a write call. Every record is a little-endian {@code int} type, an {@code int} payload
+ * length and the payload; the type is stored last, so a session cut short by a crash still reads
+ * up to its last complete record, and the zeros after it read as the end of the file. See {@link
+ * SessionCapture} for the payloads.
+ *
+ * <p>Not thread safe; the app records from its analysis executor only.
+ */
+public final class SessionRecorder implements Closeable {
+
+    static final int MAGIC = 0x50414354; // "TCAP" in little-endian order
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_HEADER_SIZE = 8;
+
+    public static final int TYPE_TARGETS = 1;
+    public static final int TYPE_FRAME = 2;
+    public static final int TYPE_TEXT = 3;
+
+    static final int FRAME_HAS_CHROMA = 1;
+
+    public static final int DEFAULT_REGION_SIZE = 8 << 20;
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int regionSize;
+    private MappedByteBuffer region;
+    private long regionStart;
+    /** Payloads of variable size are encoded here first, to learn their size. */
+    private ByteBuffer scratch = ByteBuffer.allocate(16 << 10).order(ByteOrder.LITTLE_ENDIAN);
+    private final float[] box = new float[4];
+
+    /** Creates or replaces the capture file. */
+    public SessionRecorder(File file) throws IOException {
+        this(file, DEFAULT_REGION_SIZE);
+    }
+
+    SessionRecorder(File file, int regionSize) throws IOException {
+        this.file = new RandomAccessFile(file, "rw");
+        this.regionSize = regionSize;
+        this.file.setLength(0);
+        channel = this.file.getChannel();
+        ensureCapacity(HEADER_SIZE);
+        region.putInt(MAGIC);
+        region.putInt(VERSION);
+    }
+
+    /** Returns the number of bytes recorded so far. */
+    public long size() {
+        return regionStart + region.position();
+    }
+
+    /** Records the targets and phrases that the following texts are matched against. */
+    public void recordTargets(List<String> targets, List<String> phrases) throws IOException {
+        scratch.clear();
+        putStrings(targets);
+        putStrings(phrases);
+        writeScratch(TYPE_TARGETS);
+    }
+
+    /**
+     * Records a frame as handed to the recognizer: an NV21 image of {@code width} x {@code height},
+     * of which only the luma plane is kept unless {@code withChroma} is set.
+     *
+     * <p>Payload: {@code long} timestamp, {@code int} rotation, width and height, a flags byte, the
+     * luma plane and, if flagged, the interleaved VU plane.
+     */
+    public void recordFrame(long timestampNanos, int rotationDegrees, int width, int height,
+                            byte[] nv21, boolean withChroma) throws IOException {
+        int lumaSize = width * height;
+        int chromaSize = withChroma ? 2 * ((width + 1) / 2) * ((height + 1) / 2) : 0;
+        int payload = 8 + 4 * 3 + 1 + lumaSize + chromaSize;
+        ensureCapacity(RECORD_HEADER_SIZE + payload);
+        int start = region.position();
+        region.position(start + RECORD_HEADER_SIZE);
+        region.putLong(timestampNanos);
+        region.putInt(rotationDegrees);
+        region.putInt(width);
+        region.putInt(height);
+        region.put((byte) (withChroma ? FRAME_HAS_CHROMA : 0));
+        region.put(nv21, 0, lumaSize + chromaSize);
+        commit(start, TYPE_FRAME, payload);
+    }
+
+    /**
+     * Records the text recognized in the frame with the given timestamp, and the transform that
+     * mapped it to the view.
+     *
+     * <p>Payload: {@code long} timestamp, the six {@link ViewTransform#getValues() transform values}
+     * as floats, and {@code int} line count; per line its text, {@code int} element count and per
+     * element its text, a byte that is 1 if a box follows, and the box as four floats. Strings are
+     * an {@code int} byte length and UTF-8 bytes.
+     */
+    public void recordText(long timestampNanos, ViewTransform imageToView, RecognizedText text)
+            throws IOException {
+        scratch.clear();
+        ensureScratch(8 + 6 * 4 + 4);
+        scratch.putLong(timestampNanos);
+        for (float value : imageToView.getValues()) {
+            scratch.putFloat(value);
+        }
+        int lineCount = text.lineCount();
+        scratch.putInt(lineCount);
+        for (int line = 0; line < lineCount; line++) {
+            putString(text.lineText(line));
+            int elementCount = text.elementCount(line);
+            ensureScratch(4);
+            scratch.putInt(elementCount);
+            for (int element = 0; element < elementCount; element++) {
+                putString(text.elementText(line, element));
+                ensureScratch(1 + 4 * 4);
+                if (text.elementBox(line, element, box)) {
+                    scratch.put((byte) 1);
+                    scratch.putFloat(box[0]).putFloat(box[1]).putFloat(box[2]).putFloat(box[3]);
+                } else {
+                    scratch.put((byte) 0);
+                }
+            }
+        }
+        writeScratch(TYPE_TEXT);
+    }
+
+    /** Cuts the file to the recorded size and closes it. */
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.truncate(size());
+        } finally {
+            file.close();
+        }
+    }
+
+    private void putStrings(List<String> strings) {
+        ensureScratch(4);
+        scratch.putInt(strings.size());
+        for (String string : strings) {
+            putString(string);
+        }
+    }
+
+    private void putString(String string) {
+        byte[] bytes = string.getBytes(UTF_8);
+        ensureScratch(4 + bytes.length);
+        scratch.putInt(bytes.length);
+        scratch.put(bytes);
+    }
+
+    private void ensureScratch(int bytes) {
+        if (scratch.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(scratch.capacity() * 2,
+                    scratch.position() + bytes)).order(ByteOrder.LITTLE_ENDIAN);
+            scratch.flip();
+            grown.put(scratch);
+            scratch = grown;
+        }
+    }
+
+    private void writeScratch(int type) throws IOException {
+        int payload = scratch.position();
+        ensureCapacity(RECORD_HEADER_SIZE + payload);
+        int start = region.position();
+        region.position(start + RECORD_HEADER_SIZE);
+        scratch.flip();
+        region.put(scratch);
+        commit(start, type, payload);
+    }
+
+    /** Stores the length and then the type of a record whose payload has been written. */
+    private void commit(int start, int type, int payload) {
+        region.putInt(start + 4, payload);
+        region.putInt(start, type);
+    }
+
+    /** Makes sure the current region has room for {@code bytes}, mapping the next one if not. */
+    private void ensureCapacity(int bytes) throws IOException {
+        if (region != null && region.remaining() >= bytes) {
+            return;
+        }
+        // The next region starts where the data ends; the unused tail of this one is remapped.
+        long start = region == null ? 0 : regionStart + region.position();
+        region = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.max(regionSize, bytes));
+        region.order(ByteOrder.LITTLE_ENDIAN);
+        regionStart = start;
+    }
+}
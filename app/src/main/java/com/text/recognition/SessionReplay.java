@@ -0,0 +1,182 @@
+package com.text.recognition;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a session captured by {@link SessionRecorder} through the matching and tracking
+ * pipeline, as fast as it runs: every recorded text is matched by a {@link HighlightExtractor}
+ * built from the recorded targets, fed to a {@link BoxTracker} at its recorded time, and its
+ * tracked boxes evaluated as the overlay would draw them. Recognition itself is not repeated, so
+ * runs are deterministic and compare code changes on real sessions.
+ *
+ * <p>Runs on a plain JVM: {@code java com.text.recognition.SessionReplay <capture>...}, or {@code
+ * ./gradlew :benchmark:replay -Pcapture=<capture>}.
+ */
+public final class SessionReplay {
+
+    private final LatencyHistogram textLatency = new LatencyHistogram();
+    private final BoxTracker boxTracker = new BoxTracker();
+    private final float[] box = new float[4];
+    private HighlightExtractor highlightExtractor =
+            new HighlightExtractor(TargetMatcher.compile(), PhraseMatcher.compile());
+    private int targetChanges;
+    private int frames;
+    private long frameBytes;
+    private int texts;
+    private long highlights;
+    private long boxes;
+    private long checksum = 17;
+
+    private SessionReplay() {
+    }
+
+    /** Replays the whole capture and returns what it matched and how long that took. */
+    public static Report replay(SessionCapture capture) throws IOException {
+        SessionReplay replay = new SessionReplay();
+        long start = System.nanoTime();
+        while (capture.next()) {
+            switch (capture.type()) {
+                case SessionRecorder.TYPE_TARGETS:
+                    replay.setTargets(capture);
+                    break;
+                case SessionRecorder.TYPE_FRAME:
+                    replay.frames++;
+                    replay.frameBytes += capture.luma().remaining()
+                            + (capture.chroma() == null ? 0 : capture.chroma().remaining());
+                    break;
+                case SessionRecorder.TYPE_TEXT:
+                    replay.match(capture);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return replay.report(System.nanoTime() - start);
+    }
+
+    public static Report replay(File file) throws IOException {
+        try (SessionCapture capture = SessionCapture.open(file)) {
+            return replay(capture);
+        }
+    }
+
+    private void setTargets(SessionCapture capture) {
+        TargetMatcher targetMatcher = TargetMatcher.compile(capture.targets());
+        highlightExtractor = new HighlightExtractor(targetMatcher, PhraseMatcher.compile(capture.phrases()));
+        boxTracker.clear();
+        targetChanges++;
+    }
+
+    private void match(SessionCapture capture) {
+        long start = System.nanoTime();
+        long frameMillis = TimeUnit.NANOSECONDS.toMillis(capture.timestampNanos());
+        HighlightResult result = highlightExtractor.extract(capture.text(), capture.imageToView());
+        TrackedHighlights tracked = boxTracker.update(result, frameMillis);
+        for (int i = 0, count = tracked.size(); i < count; i++) {
+            if (tracked.boxAt(i, frameMillis, box)) {
+                boxes++;
+                checksum = checksum * 31 + tracked.targetId(i);
+                for (float value : box) {
+                    checksum = checksum * 31 + Float.floatToIntBits(value);
+                }
+            }
+        }
+        textLatency.record(System.nanoTime() - start);
+        texts++;
+        highlights += result.size();
+    }
+
+    private Report report(long elapsedNanos) {
+        return new Report(targetChanges, frames, frameBytes, texts, highlights, boxes, checksum,
+                elapsedNanos, textLatency.snapshot());
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: SessionReplay <capture>...");
+            System.exit(2);
+        }
+        for (String path : args) {
+            System.out.println(path + ": " + replay(new File(path)));
+        }
+    }
+
+    /** Outcome of one replay. */
+    public static final class Report {
+        private final int targetChanges;
+        private final int frames;
+        private final long frameBytes;
+        private final int texts;
+        private final long highlights;
+        private final long boxes;
+        private final long checksum;
+        private final long elapsedNanos;
+        private final LatencyHistogram.Snapshot textLatency;
+
+        Report(int targetChanges, int frames, long frameBytes, int texts, long highlights,
+               long boxes, long checksum, long elapsedNanos, LatencyHistogram.Snapshot textLatency) {
+            this.targetChanges = targetChanges;
+            this.frames = frames;
+            this.frameBytes = frameBytes;
+            this.texts = texts;
+            this.highlights = highlights;
+            this.boxes = boxes;
+            this.checksum = checksum;
+            this.elapsedNanos = elapsedNanos;
+            this.textLatency = textLatency;
+        }
+
+        public int getTargetChanges() {
+            return targetChanges;
+        }
+
+        public int getFrames() {
+            return frames;
+        }
+
+        public int getTexts() {
+            return texts;
+        }
+
+        /** Returns the number of highlights matched over all texts. */
+        public long getHighlights() {
+            return highlights;
+        }
+
+        /** Returns the number of tracked boxes drawn right after each text. */
+        public long getBoxes() {
+            return boxes;
+        }
+
+        /**
+         * Returns a hash of every drawn box and its target. It only changes when a code change
+         * changes what the overlay would show, which makes it a cheap regression check.
+         */
+        public long getChecksum() {
+            return checksum;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /** Returns the time to match and track each text. */
+        public LatencyHistogram.Snapshot getTextLatency() {
+            return textLatency;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / 1e9;
+            return String.format(Locale.US,
+                    "%d texts (%.0f/s), %d frames (%d KiB), %d target lists, %d highlights, %d boxes, "
+                            + "match p50 %d us p99 %d us max %d us, checksum %016x",
+                    texts, seconds > 0 ? texts / seconds : 0, frames, frameBytes >> 10, targetChanges,
+                    highlights, boxes, textLatency.percentileMicros(0.5),
+                    textLatency.percentileMicros(0.99), textLatency.getMaxMicros(), checksum);
+        }
+    }
+}
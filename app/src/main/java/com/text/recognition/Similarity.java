@@ -0,0 +1,94 @@
+package com.text.recognition;
+
+/**
+ * The original whole-string Levenshtein similarity functions, moved out of {@link GraphicOverlay}
+ * so that they run on a plain JVM. They stay the reference the optimized matchers ({@link
+ * TargetMatcher}, {@link PhraseMatcher}, {@link FuzzyIndex}) are tested and benchmarked against.
+ */
+public final class Similarity {
+
+    private Similarity() {
+    }
+
+    public static double calculateSimilarity(String s1, String s2) {
+        int maxLength = Math.max(s1.length(), s2.length());
+
+        if (maxLength == 0) {
+            return 1.0;  // Both strings are empty, so they are considered identical
+        }
+
+        int levenshteinDistance = calculateLevenshteinDistance(s1, s2);
+        return 1.0 - (double) levenshteinDistance / maxLength;
+    }
+
+    private static int calculateLevenshteinDistance(String s1, String s2) {
+        s1 = s1.toLowerCase();
+        s2 = s2.toLowerCase();
+
+        int[] costs = new int[s2.length() + 1];
+        for (int i = 0; i <= s1.length(); i++) {
+            int lastValue = i;
+            for (int j = 0; j <= s2.length(); j++) {
+                if (i == 0) {
+                    costs[j] = j;
+                } else {
+                    if (j > 0) {
+                        int newValue = costs[j - 1];
+                        if (s1.charAt(i - 1) != s2.charAt(j - 1)) {
+                            newValue = Math.min(Math.min(newValue, lastValue), costs[j]) + 1;
+                        }
+                        costs[j - 1] = lastValue;
+                        lastValue = newValue;
+                    }
+                }
+            }
+            if (i > 0) {
+                costs[s2.length()] = lastValue;
+            }
+        }
+        return costs[s2.length()];
+    }
+
+
+    public static double similarity(String s1, String s2) {
+        String longer = s1, shorter = s2;
+        if (s1.length() < s2.length()) { // longer should always have greater length
+            longer = s2; shorter = s1;
+        }
+        int longerLength = longer.length();
+        if (longerLength == 0) { return 1.0; /* both strings are zero length */ }
+
+        double percentage =  (longerLength - editDistance(longer, shorter)) / (double) longerLength;
+        EventTracer.getDefault().instant(EventTracer.Event.SIMILARITY, Math.round(percentage * 1000));
+        return percentage;
+    }
+
+    // Example implementation of the Levenshtein Edit Distance
+// See http://rosettacode.org/wiki/Levenshtein_distance#Java
+    public static int editDistance(String s1, String s2) {
+        s1 = s1.toLowerCase();
+        s2 = s2.toLowerCase();
+
+        int[] costs = new int[s2.length() + 1];
+        for (int i = 0; i <= s1.length(); i++) {
+            int lastValue = i;
+            for (int j = 0; j <= s2.length(); j++) {
+                if (i == 0)
+                    costs[j] = j;
+                else {
+                    if (j > 0) {
+                        int newValue = costs[j - 1];
+                        if (s1.charAt(i - 1) != s2.charAt(j - 1))
+                            newValue = Math.min(Math.min(newValue, lastValue),
+                                    costs[j]) + 1;
+                        costs[j - 1] = lastValue;
+                        lastValue = newValue;
+                    }
+                }
+            }
+            if (i > 0)
+                costs[s2.length()] = lastValue;
+        }
+        return costs[s2.length()];
+    }
+}
@@ -0,0 +1,62 @@
+package com.text.recognition;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compiles a list of targets, such as a catalogue of names or part numbers, into a {@link
+ * FuzzyIndex} file ahead of time, so that the app maps it with {@link FuzzyIndex#map(File)} and
+ * matches it with {@link TargetMatcher#forIndex(FuzzyIndex)} instead of indexing the list on every
+ * start.
+ *
+ * <p>The list is a UTF-8 text file with one target per line. Target ids are line numbers, from 0;
+ * empty lines are kept so that they stay that way, but never match.
+ *
+ * <p>Runs on a plain JVM: {@code java com.text.recognition.TargetIndexCompiler <targets> <index>},
+ * or {@code ./gradlew :benchmark:compileTargets -Ptargets=<targets> -Pindex=<index>}.
+ */
+public final class TargetIndexCompiler {
+
+    private TargetIndexCompiler() {
+    }
+
+    /** Builds an index over {@code targets}, normalized the way {@link TargetMatcher} matches them. */
+    public static FuzzyIndex compile(List<String> targets) {
+        List<String> normalized = new ArrayList<>(targets.size());
+        for (String target : targets) {
+            normalized.add(TargetMatcher.normalize(target));
+        }
+        return FuzzyIndex.build(normalized);
+    }
+
+    /** Compiles the targets listed in {@code source} into an index file at {@code index}. */
+    public static FuzzyIndex compile(File source, File index) throws IOException {
+        List<String> targets = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(source), SessionRecorder.UTF_8))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                targets.add(line);
+            }
+        }
+        FuzzyIndex compiled = compile(targets);
+        compiled.writeTo(index);
+        return compiled;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: TargetIndexCompiler <targets> <index>");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        FuzzyIndex index = compile(new File(args[0]), new File(args[1]));
+        System.out.println(String.format(Locale.US, "%s: %d targets, %.1f MB, compiled in %.1f s",
+                args[1], index.size(), index.sizeBytes() / 1e6, (System.nanoTime() - start) / 1e9));
+    }
+}
@@ -0,0 +1,215 @@
+package com.text.recognition;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matches recognized tokens against a set of target words that is compiled once, when the targets
+ * are set, instead of on every draw.
+ *
+ * <p>Targets are folded by {@link TextNormalizer} when compiled and every token is folded into a
+ * reused scratch buffer, so a call to {@link #match(CharSequence)} does not allocate once the
+ * buffers have grown to the longest token seen. Tokens already folded, such as those of {@link
+ * FrameTokens}, are matched as they are with {@link #matchNormalized(char[], int, int)}.
+ *
+ * <p>A token matches a target when their similarity (see {@link Similarity#similarity(String,
+ * String)}) is above {@link #MIN_SIMILARITY}. Each target is compiled into a {@link
+ * MyersEditDistance} engine, and the distance is bounded by that cutoff and abandoned as soon as it
+ * can no longer be met.
+ *
+ * <p>Comparing every token with every target is cheapest for a handful of targets, like the words
+ * of a single phrase. Above {@link #INDEX_THRESHOLD} targets the matcher looks tokens up in a
+ * {@link FuzzyIndex} instead, which keeps the cost per token largely independent of the dictionary
+ * size but only returns targets within {@link FuzzyIndex#DEFAULT_MAX_EDIT_DISTANCE} edits.
+ * Dictionaries too large to index when the app starts are compiled into an index file ahead of
+ * time, see {@link TargetIndexCompiler}, and matched with {@link #forIndex(FuzzyIndex)}.
+ *
+ * <p>Instances keep scratch state and are not thread safe.
+ */
+public final class TargetMatcher {
+
+    /** Returned by {@link #match(CharSequence)} when no target is similar enough. */
+    public static final int NO_MATCH = -1;
+
+    /** A token has to be strictly more similar than this to a target to match it. */
+    public static final double MIN_SIMILARITY = 0.5;
+
+    /** Target sets larger than this are matched through a {@link FuzzyIndex}. */
+    public static final int INDEX_THRESHOLD = 256;
+
+    /** The targets as supplied, or null when they are only known to a precompiled index. */
+    private final String[] targets;
+    /** One engine per target, or null when the targets are indexed. */
+    private final MyersEditDistance[] engines;
+    /** Searcher over the indexed targets, or null when they are compared one by one. */
+    private final FuzzyIndex.Searcher searcher;
+    /** The index behind {@link #searcher}, or null when the targets are compared one by one. */
+    private final FuzzyIndex index;
+
+    private char[] tokenBuffer = new char[32];
+    /** Normalized target to its id, for {@link #matchExactly(String)}; built on first use. */
+    private Map<String, Integer> exactIds;
+
+    private TargetMatcher(FuzzyIndex index) {
+        targets = null;
+        engines = null;
+        searcher = index.newSearcher();
+        this.index = index;
+    }
+
+    private TargetMatcher(String[] targets) {
+        this.targets = targets;
+        if (targets.length > INDEX_THRESHOLD) {
+            List<String> normalized = new ArrayList<>(targets.length);
+            for (String target : targets) {
+                normalized.add(normalize(target));
+            }
+            engines = null;
+            index = FuzzyIndex.build(normalized);
+            searcher = index.newSearcher();
+        } else {
+            engines = new MyersEditDistance[targets.length];
+            for (int i = 0; i < targets.length; i++) {
+                engines[i] = new MyersEditDistance(normalize(targets[i]));
+            }
+            index = null;
+            searcher = null;
+        }
+    }
+
+    /**
+     * Compiles the given target words. Empty words are kept so that target ids line up with the
+     * supplied array, but never match.
+     */
+    public static TargetMatcher compile(String... targets) {
+        return new TargetMatcher(targets.clone());
+    }
+
+    /**
+     * Compiles the given targets, for example a catalogue of names or part numbers. Target ids are
+     * the positions of the targets in the collection's iteration order.
+     */
+    public static TargetMatcher compile(Collection<String> targets) {
+        return new TargetMatcher(targets.toArray(new String[0]));
+    }
+
+    /**
+     * Matches against an index built over targets normalized by {@link #normalize(String)}, such
+     * as one compiled ahead of time and mapped with {@link FuzzyIndex#map(java.io.File)}. Target
+     * ids are those of the index, and the targets are only known in their normalized form.
+     */
+    public static TargetMatcher forIndex(FuzzyIndex index) {
+        return new TargetMatcher(index);
+    }
+
+    /** Normalizes a target or token the same way the matcher does before comparing them. */
+    static String normalize(String text) {
+        return TextNormalizer.fold(text);
+    }
+
+    /** Returns the number of compiled targets. */
+    public int targetCount() {
+        return targets != null ? targets.length : index.size();
+    }
+
+    /**
+     * Returns the target with the given id, as it was supplied to {@link #compile(String...)}, or
+     * normalized if it comes from an index passed to {@link #forIndex(FuzzyIndex)}.
+     */
+    public String target(int targetId) {
+        return targets != null ? targets[targetId] : index.target(targetId);
+    }
+
+    /**
+     * Returns the id of the target most similar to the given token, or {@link #NO_MATCH} if no
+     * target is more than {@link #MIN_SIMILARITY} similar to it.
+     */
+    public int match(CharSequence token) {
+        int tokenLength = token.length();
+        if (tokenLength == 0) {
+            return NO_MATCH;
+        }
+        return matchBuffer(normalize(token, tokenLength), tokenLength);
+    }
+
+    /**
+     * Like {@link #match(CharSequence)} for a token that is already normalized, {@code length}
+     * chars of {@code chars} from {@code offset}.
+     */
+    public int matchNormalized(char[] chars, int offset, int length) {
+        if (length == 0) {
+            return NO_MATCH;
+        }
+        if (tokenBuffer.length < length) {
+            tokenBuffer = new char[Math.max(length, tokenBuffer.length * 2)];
+        }
+        System.arraycopy(chars, offset, tokenBuffer, 0, length);
+        return matchBuffer(tokenBuffer, length);
+    }
+
+    /** Matches the normalized token in the first {@code tokenLength} chars of the buffer. */
+    private int matchBuffer(char[] normalizedToken, int tokenLength) {
+        if (searcher != null) {
+            return searcher.search(normalizedToken, tokenLength, MIN_SIMILARITY);
+        }
+
+        int bestTarget = NO_MATCH;
+        double bestSimilarity = MIN_SIMILARITY;
+        for (int i = 0; i < engines.length; i++) {
+            MyersEditDistance engine = engines[i];
+            int targetLength = engine.patternLength();
+            if (targetLength == 0) {
+                continue;
+            }
+            int longerLength = Math.max(tokenLength, targetLength);
+            // similarity > MIN_SIMILARITY <=> distance < longerLength * (1 - MIN_SIMILARITY).
+            int maxDistance = (int) Math.ceil(longerLength * (1 - MIN_SIMILARITY)) - 1;
+            int distance = engine.distance(normalizedToken, tokenLength, maxDistance);
+            if (distance > maxDistance) {
+                continue;
+            }
+            double similarity = (longerLength - distance) / (double) longerLength;
+            if (similarity > bestSimilarity) {
+                bestSimilarity = similarity;
+                bestTarget = i;
+            }
+        }
+        return bestTarget;
+    }
+
+    /**
+     * Returns the id of the target equal to {@code value} but for case, or {@link #NO_MATCH}. Meant
+     * for decoded values such as barcodes, which are either exact or wrong, so that a fuzzy match
+     * would only produce false positives.
+     */
+    public int matchExactly(String value) {
+        if (index != null) {
+            // Exact matches are a walk down the index's trie, without a map of all targets.
+            int length = value.length();
+            return searcher.find(normalize(value, length), length);
+        }
+        if (exactIds == null) {
+            exactIds = new HashMap<>(targets.length * 2);
+            for (int i = 0; i < targets.length; i++) {
+                if (!targets[i].isEmpty() && !exactIds.containsKey(normalize(targets[i]))) {
+                    exactIds.put(normalize(targets[i]), i);
+                }
+            }
+        }
+        Integer targetId = exactIds.get(normalize(value));
+        return targetId == null ? NO_MATCH : targetId;
+    }
+
+    private char[] normalize(CharSequence token, int length) {
+        if (tokenBuffer.length < length) {
+            tokenBuffer = new char[Math.max(length, tokenBuffer.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            tokenBuffer[i] = TextNormalizer.fold(token.charAt(i));
+        }
+        return tokenBuffer;
+    }
+}
@@ -3,7 +3,7 @@ package com.text.recognition;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.RectF;
+import android.graphics.Rect;
 
 import com.google.mlkit.vision.text.Text;
 
@@ -17,11 +17,17 @@ public class TextGraphic extends GraphicOverlay.Graphic{
    private static final int TEXT_COLOR = Color.YELLOW;
     //private static final int TEXT_COLOR_GREEN = 0x6600FF00;
     private static final int TEXT_COLOR_GREEN = 0x66FFFF00;
+    private static final int TICK_COLOR = Color.GREEN;
     private static final float TEXT_SIZE = 40.0f;
     private static final float STROKE_WIDTH = 4.0f;
+    private static final float TICK_STROKE_WIDTH = 5.0f;
+    private static final float TICK_SIZE = 20.0f;
 
     private Paint rectPaint;
     private Paint textPaint;
+    private Paint tickPaint;
+    /** The tick mark's two strokes, laid out by {@link HighlightBatch#writeTick} on every draw. */
+    private final float[] tickLines = new float[HighlightBatch.TICK_FLOATS];
     private Text.Element text;
 
     TextGraphic(GraphicOverlay overlay, Text.Element text) {
@@ -38,62 +44,28 @@ public class TextGraphic extends GraphicOverlay.Graphic{
         //*textPaint.setStrikeThruText(true);
         textPaint.setColor(TEXT_COLOR_GREEN);
         textPaint.setTextSize(TEXT_SIZE);
+        tickPaint = new Paint();
+        tickPaint.setColor(TICK_COLOR);
+        tickPaint.setStrokeWidth(TICK_STROKE_WIDTH);
         // Redraw the overlay, as this graphic has been added.
         postInvalidate();
     }
 
-    //** Draws the text block annotations for position, size, and raw value on the supplied canvas. *//*
+    /**
+     * Draws a tick mark at the top right corner of the element. Allocates nothing: the paints are
+     * set up once, and the tilted strokes are computed rather than drawn on a rotated canvas.
+     */
     @Override
     public void draw(Canvas canvas) {
         if (text == null) {
             throw new IllegalStateException("Attempting to draw a null text.");
         }
-        int TICK_COLOR = Color.GREEN;
-        // Draws the bounding box around the TextBlock.
-        RectF rect = new RectF(text.getBoundingBox());
-        rect.left = translateX(rect.left);
-        rect.top = translateY(rect.top);
-        rect.right = translateX(rect.right);
-        rect.bottom = translateY(rect.bottom);
-       // canvas.drawRect(rect, rectPaint);
-
-
-        float centerX = rect.right;
-
-        float centerY = rect.top;
-
-
-// Set up Paint for the tick mark
-
-        Paint tickPaint = new Paint();
-
-        tickPaint.setColor(TICK_COLOR);  // Set your desired color for the tick
-
-        tickPaint.setStrokeWidth(5);     // Set the width of the tick lines
-
-
-// Draw the tick mark with rotation
-
-        float tickSize = 20;  // Adjust the size of the tick as needed
-
-        float rotationDegrees = 30; // Adjust the rotation angle as needed
-
-
-        canvas.save();  // Save the current canvas state
-
-        canvas.rotate(rotationDegrees, centerX, centerY);  // Apply rotation
-
-
-// Draw the vertical line of the tick
-
-        canvas.drawLine(centerX, centerY - tickSize, centerX, centerY + tickSize, tickPaint);
-
-
-// Draw the diagonal line of the tick
-
-        canvas.drawLine(centerX - tickSize, centerY, centerX, centerY + tickSize, tickPaint);
-
-
-        canvas.restore();
+        Rect boundingBox = text.getBoundingBox();
+        if (boundingBox == null) {
+            return;
+        }
+        HighlightBatch.writeTick(translateX(boundingBox.right), translateY(boundingBox.top),
+                TICK_SIZE, tickLines, 0);
+        canvas.drawLines(tickLines, tickPaint);
     }
 }
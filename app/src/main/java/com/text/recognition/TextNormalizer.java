@@ -0,0 +1,169 @@
+package com.text.recognition;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Folds recognized text and targets into the form they are compared in, one char at a time through
+ * a lookup table, without regular expressions or intermediate strings.
+ *
+ * <p>Folding lower-cases, strips accents ({@code \u00c9} becomes {@code e}), and maps characters
+ * that recognition confuses with Latin letters, or that are Latin letters in another guise, onto
+ * them: Cyrillic and Greek lookalikes such as {@code \u0410} or {@code \u039f}, fullwidth forms and
+ * typographic quotes and dashes. Every char folds into exactly one char, so positions in folded
+ * text line up with the original. Separators are whitespace, including no-break spaces, and
+ * hyphens and dashes of any kind.
+ *
+ * <p>The table is built once, when the class is loaded; everything else is plain array lookups.
+ */
+public final class TextNormalizer {
+
+    /** Chars below this are folded through {@link #FOLD}; others are only lower-cased. */
+    private static final int TABLE_SIZE = 0x2220;
+    private static final char[] FOLD = new char[TABLE_SIZE];
+    private static final boolean[] SEPARATOR = new boolean[TABLE_SIZE];
+
+    private static final char FULLWIDTH_FIRST = '\uff01';
+    private static final char FULLWIDTH_LAST = '\uff5e';
+    private static final int FULLWIDTH_OFFSET = FULLWIDTH_FIRST - '!';
+
+    /** Letters without a decomposition to strip, as pairs of letter and base letter. */
+    private static final String LATIN_EXTRAS =
+            "\u00d8o\u00f8o\u0110d\u0111d\u0141l\u0142l\u0131i\u0126h\u0127h\u0166t\u0167t";
+    /** Cyrillic and Greek letters that look like Latin ones, as pairs of letter and lookalike. */
+    private static final String CONFUSABLES =
+            // Cyrillic
+            "\u0410a\u0430a\u0412b\u0415e\u0435e\u041ak\u043ak\u041cm\u041dh\u041eo\u043eo"
+            + "\u0420p\u0440p\u0421c\u0441c\u0422t\u0423y\u0443y\u0425x\u0445x"
+            + "\u0405s\u0455s\u0406i\u0456i\u0408j\u0458j"
+            // Greek
+            + "\u0391a\u03b1a\u0392b\u0395e\u0396z\u0397h\u0399i\u03b9i\u039ak\u03bak\u039cm"
+            + "\u039dn\u03bdv\u039fo\u03bfo\u03a1p\u03c1p\u03a4t\u03a5y\u03a7x\u03c7x";
+    /** Typographic quotes folded into their ASCII forms, as pairs. */
+    private static final String PUNCTUATION =
+            "\u2018'\u2019'\u201a'\u201b'\u2032'\u201c\"\u201d\"\u201e\"\u201f\"\u2033\"";
+    private static final String DASHES = "\u2010\u2011\u2012\u2013\u2014\u2015\u2212";
+    private static final String SPACES = "\u00a0\u2007\u202f";
+
+    static {
+        for (int c = 0; c < TABLE_SIZE; c++) {
+            FOLD[c] = stripAccent(Character.toLowerCase((char) c));
+            SEPARATOR[c] = Character.isWhitespace((char) c);
+        }
+        putPairs(LATIN_EXTRAS);
+        putPairs(CONFUSABLES);
+        putPairs(PUNCTUATION);
+        SEPARATOR['-'] = true;
+        for (int i = 0; i < DASHES.length(); i++) {
+            FOLD[DASHES.charAt(i)] = '-';
+            SEPARATOR[DASHES.charAt(i)] = true;
+        }
+        for (int i = 0; i < SPACES.length(); i++) {
+            FOLD[SPACES.charAt(i)] = ' ';
+            SEPARATOR[SPACES.charAt(i)] = true;
+        }
+    }
+
+    private TextNormalizer() {}
+
+    /** Returns the base letter of a letter with diacritics, or the letter itself. */
+    private static char stripAccent(char c) {
+        if (c < 0xc0 || !Character.isLetter(c)) {
+            return c;
+        }
+        String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+        char base = decomposed.charAt(0);
+        for (int i = 1; i < decomposed.length(); i++) {
+            if (Character.getType(decomposed.charAt(i)) != Character.NON_SPACING_MARK) {
+                return c;
+            }
+        }
+        return base < 0x80 ? Character.toLowerCase(base) : c;
+    }
+
+    private static void putPairs(String pairs) {
+        for (int i = 0; i < pairs.length(); i += 2) {
+            FOLD[pairs.charAt(i)] = pairs.charAt(i + 1);
+        }
+    }
+
+    /** Returns the folded form of a char. */
+    public static char fold(char c) {
+        if (c < TABLE_SIZE) {
+            return FOLD[c];
+        }
+        if (c >= FULLWIDTH_FIRST && c <= FULLWIDTH_LAST) {
+            return FOLD[c - FULLWIDTH_OFFSET];
+        }
+        return Character.toLowerCase(c);
+    }
+
+    /** Returns whether a char separates words. */
+    public static boolean isSeparator(char c) {
+        if (c < TABLE_SIZE) {
+            return SEPARATOR[c];
+        }
+        if (c >= FULLWIDTH_FIRST && c <= FULLWIDTH_LAST) {
+            return SEPARATOR[c - FULLWIDTH_OFFSET];
+        }
+        return Character.isWhitespace(c);
+    }
+
+    /** Folds every char of {@code text}, keeping separators and the length as they are. */
+    public static String fold(String text) {
+        char[] folded = new char[text.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = fold(text.charAt(i));
+        }
+        return new String(folded);
+    }
+
+    /**
+     * Folds {@code text} and replaces every run of separators with a single space, dropping leading
+     * and trailing separators.
+     */
+    public static String normalize(String text) {
+        char[] normalized = new char[text.length()];
+        int length = appendNormalized(text, normalized, 0);
+        return new String(normalized, 0, length);
+    }
+
+    /**
+     * Appends the normalized form of {@code text} to {@code buffer} at {@code offset}, which must
+     * have room for {@code text.length()} chars, and returns the new end of the buffer.
+     */
+    public static int appendNormalized(CharSequence text, char[] buffer, int offset) {
+        int start = offset;
+        boolean pendingSpace = false;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            if (isSeparator(c)) {
+                pendingSpace = offset > start;
+                continue;
+            }
+            if (pendingSpace) {
+                buffer[offset++] = ' ';
+                pendingSpace = false;
+            }
+            buffer[offset++] = fold(c);
+        }
+        return offset;
+    }
+
+    /** Splits {@code text} into its words, as they are written, at runs of separators. */
+    public static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0, length = text.length(); i <= length; i++) {
+            boolean separator = i == length || isSeparator(text.charAt(i));
+            if (separator && start >= 0) {
+                words.add(text.substring(start, i));
+                start = -1;
+            } else if (!separator && start < 0) {
+                start = i;
+            }
+        }
+        return words;
+    }
+}
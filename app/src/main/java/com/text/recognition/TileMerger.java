@@ -0,0 +1,328 @@
+package com.text.recognition;
+
+import java.util.Arrays;
+
+/**
+ * Splits a large frame into overlapping tiles that are recognized one by one, and merges the text
+ * recognized in them into one page in the upright coordinates of the whole frame, the same space
+ * as text recognized in the frame at once, so that it can be matched and drawn the same way.
+ *
+ * <p>Tiles are laid out over the frame as the camera delivers it, with even corners so that they
+ * can be cropped with {@link FrameCropper}, and each is recognized upright. Their text is moved
+ * into the frame by the tile's upright offset. Words that appear in two tiles are merged in two
+ * ways: a word touching an edge a tile shares with a neighbour is likely cut off, and is dropped
+ * if most of it is covered by a word of another tile; a whole word is dropped if a word of another
+ * tile with the same text covers the same place. The overlap should therefore be at least as wide
+ * as the widest word, so that every word is whole in some tile.
+ *
+ * <p>Lines are kept per tile, with the words that remain; a line split by a tile edge becomes two.
+ * Words without a bounding box cannot be placed and are left out.
+ *
+ * <p>Instances are not thread safe; they are meant to be used from the analysis executor only.
+ */
+public final class TileMerger {
+
+    /** Boxes of the same text overlapping by at least this intersection over union are one word. */
+    public static final float DEFAULT_MIN_OVERLAP = 0.5f;
+    /** Words closer than this, in pixels, to an edge shared with another tile may be cut off. */
+    private static final float EDGE_MARGIN = 4f;
+
+    private final int tileSize;
+    private final int overlap;
+    private final float minOverlap;
+
+    // Layout of the current frame.
+    private int rotationDegrees;
+    private float uprightWidth;
+    private float uprightHeight;
+    private int tileCount;
+    /** Packed {@code left, top, width, height} per tile, in frame coordinates. */
+    private int[] tiles = new int[16];
+
+    // Words of the tiles added so far, in the order added.
+    private int wordCount;
+    private String[] wordTexts = new String[64];
+    /** Packed {@code left, top, right, bottom} per word, in upright frame coordinates. */
+    private float[] wordBoxes = new float[256];
+    private int[] wordTiles = new int[64];
+    private boolean[] wordCut = new boolean[64];
+    private boolean[] wordKept = new boolean[64];
+    private int lineCount;
+    /** Index of the first word of each line, and the word count after the last. */
+    private int[] lineStarts = new int[17];
+
+    private final float[] box = new float[4];
+
+    public TileMerger(int tileSize, int overlap) {
+        this(tileSize, overlap, DEFAULT_MIN_OVERLAP);
+    }
+
+    /**
+     * @param tileSize the longest edge of a tile, in pixels
+     * @param overlap pixels that neighbouring tiles have in common
+     * @param minOverlap intersection over union at which boxes of the same text are one word
+     */
+    public TileMerger(int tileSize, int overlap, float minOverlap) {
+        if (overlap < 0 || tileSize <= 2 * overlap || !(minOverlap > 0 && minOverlap <= 1)) {
+            throw new IllegalArgumentException(
+                    "Invalid tiles: size " + tileSize + ", overlap " + overlap);
+        }
+        this.tileSize = tileSize & ~1;
+        this.overlap = (overlap + 1) & ~1;
+        this.minOverlap = minOverlap;
+    }
+
+    /** Returns whether a frame of the given size is larger than one tile. */
+    public boolean needsTiles(int width, int height) {
+        return width > tileSize || height > tileSize;
+    }
+
+    /**
+     * Lays the tiles out over a frame of the given size, whose edges must be even, and starts
+     * merging from scratch. Returns the number of tiles.
+     */
+    public int layout(int width, int height, int rotationDegrees) {
+        this.rotationDegrees = rotationDegrees;
+        boolean sideways = rotationDegrees % 180 != 0;
+        uprightWidth = sideways ? height : width;
+        uprightHeight = sideways ? width : height;
+        int columns = tileCount(width);
+        int rows = tileCount(height);
+        int tileWidth = tileLength(width, columns);
+        int tileHeight = tileLength(height, rows);
+        tileCount = columns * rows;
+        if (tiles.length < tileCount * 4) {
+            tiles = new int[tileCount * 4];
+        }
+        for (int row = 0; row < rows; row++) {
+            int top = tileStart(height, tileHeight, rows, row);
+            for (int column = 0; column < columns; column++) {
+                int offset = (row * columns + column) * 4;
+                tiles[offset] = tileStart(width, tileWidth, columns, column);
+                tiles[offset + 1] = top;
+                tiles[offset + 2] = tileWidth;
+                tiles[offset + 3] = tileHeight;
+            }
+        }
+        wordCount = 0;
+        lineCount = 0;
+        return tileCount;
+    }
+
+    public int getTileCount() {
+        return tileCount;
+    }
+
+    /** Returns the left edge of a tile in frame coordinates; like the other edges, it is even. */
+    public int tileLeft(int tile) {
+        return tiles[checkTile(tile) * 4];
+    }
+
+    public int tileTop(int tile) {
+        return tiles[checkTile(tile) * 4 + 1];
+    }
+
+    public int tileWidth(int tile) {
+        return tiles[checkTile(tile) * 4 + 2];
+    }
+
+    public int tileHeight(int tile) {
+        return tiles[checkTile(tile) * 4 + 3];
+    }
+
+    /** Adds the text recognized in a tile, in the upright coordinates of the tile. */
+    public void addTile(int tile, RecognizedText text) {
+        checkTile(tile);
+        int offset = tile * 4;
+        int left = tiles[offset];
+        int top = tiles[offset + 1];
+        int width = tiles[offset + 2];
+        int height = tiles[offset + 3];
+        // Where the tile's upright origin lies in the upright frame.
+        float x;
+        float y;
+        switch (rotationDegrees) {
+            case 90:
+                x = uprightWidth - top - height;
+                y = left;
+                break;
+            case 180:
+                x = uprightWidth - left - width;
+                y = uprightHeight - top - height;
+                break;
+            case 270:
+                x = top;
+                y = uprightHeight - left - width;
+                break;
+            default:
+                x = left;
+                y = top;
+                break;
+        }
+        boolean sideways = rotationDegrees % 180 != 0;
+        float right = x + (sideways ? height : width);
+        float bottom = y + (sideways ? width : height);
+
+        for (int line = 0, lines = text.lineCount(); line < lines; line++) {
+            int lineStart = wordCount;
+            for (int element = 0, elements = text.elementCount(line); element < elements; element++) {
+                if (!text.elementBox(line, element, box)) {
+                    continue;
+                }
+                box[0] += x;
+                box[1] += y;
+                box[2] += x;
+                box[3] += y;
+                // Only edges inside the frame are shared with another tile.
+                boolean cut = x > 0 && box[0] - x < EDGE_MARGIN
+                        || y > 0 && box[1] - y < EDGE_MARGIN
+                        || right < uprightWidth && right - box[2] < EDGE_MARGIN
+                        || bottom < uprightHeight && bottom - box[3] < EDGE_MARGIN;
+                addWord(text.elementText(line, element), tile, cut);
+            }
+            if (wordCount > lineStart) {
+                if (lineCount + 1 == lineStarts.length) {
+                    lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+                }
+                lineStarts[lineCount++] = lineStart;
+            }
+        }
+        lineStarts[lineCount] = wordCount;
+    }
+
+    /** Returns the text of all tiles added since {@link #layout}, with the duplicates merged. */
+    public CapturedText merge() {
+        // Whole words first, so that cut off ones are measured against all of them.
+        for (int word = 0; word < wordCount; word++) {
+            wordKept[word] = !wordCut[word] && !isDuplicate(word);
+        }
+        for (int word = 0; word < wordCount; word++) {
+            if (wordCut[word]) {
+                wordKept[word] = !isCovered(word);
+            }
+        }
+
+        CapturedText.Builder builder = new CapturedText.Builder();
+        StringBuilder lineText = new StringBuilder();
+        for (int line = 0; line < lineCount; line++) {
+            int start = lineStarts[line];
+            int end = lineStarts[line + 1];
+            lineText.setLength(0);
+            for (int word = start; word < end; word++) {
+                if (wordKept[word]) {
+                    if (lineText.length() > 0) {
+                        lineText.append(' ');
+                    }
+                    lineText.append(wordTexts[word]);
+                }
+            }
+            if (lineText.length() == 0) {
+                continue;
+            }
+            builder.beginLine(lineText.toString());
+            for (int word = start; word < end; word++) {
+                if (wordKept[word]) {
+                    int offset = word * 4;
+                    builder.addElement(wordTexts[word], wordBoxes[offset], wordBoxes[offset + 1],
+                            wordBoxes[offset + 2], wordBoxes[offset + 3]);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /** Returns whether a word kept before this one, of another tile, has the same text and place. */
+    private boolean isDuplicate(int word) {
+        for (int other = 0; other < word; other++) {
+            if (wordKept[other] && wordTiles[other] != wordTiles[word]
+                    && intersectionOverUnion(word, other) >= minOverlap
+                    && wordTexts[other].equalsIgnoreCase(wordTexts[word])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns whether most of a word is covered by a kept word of another tile. */
+    private boolean isCovered(int word) {
+        float area = area(word);
+        for (int other = 0; other < wordCount; other++) {
+            if (other != word && wordKept[other] && wordTiles[other] != wordTiles[word]
+                    && intersection(word, other) * 2 > area) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private float intersectionOverUnion(int a, int b) {
+        float intersection = intersection(a, b);
+        float union = area(a) + area(b) - intersection;
+        return union > 0 ? intersection / union : 0;
+    }
+
+    private float intersection(int a, int b) {
+        int offsetA = a * 4;
+        int offsetB = b * 4;
+        float width = Math.min(wordBoxes[offsetA + 2], wordBoxes[offsetB + 2])
+                - Math.max(wordBoxes[offsetA], wordBoxes[offsetB]);
+        float height = Math.min(wordBoxes[offsetA + 3], wordBoxes[offsetB + 3])
+                - Math.max(wordBoxes[offsetA + 1], wordBoxes[offsetB + 1]);
+        return width > 0 && height > 0 ? width * height : 0;
+    }
+
+    private float area(int word) {
+        int offset = word * 4;
+        return (wordBoxes[offset + 2] - wordBoxes[offset]) * (wordBoxes[offset + 3] - wordBoxes[offset + 1]);
+    }
+
+    /** Appends a word with the box in {@link #box}. */
+    private void addWord(String text, int tile, boolean cut) {
+        if (wordCount == wordTexts.length) {
+            int capacity = wordCount * 2;
+            wordTexts = Arrays.copyOf(wordTexts, capacity);
+            wordBoxes = Arrays.copyOf(wordBoxes, capacity * 4);
+            wordTiles = Arrays.copyOf(wordTiles, capacity);
+            wordCut = Arrays.copyOf(wordCut, capacity);
+            wordKept = Arrays.copyOf(wordKept, capacity);
+        }
+        wordTexts[wordCount] = text;
+        System.arraycopy(box, 0, wordBoxes, wordCount * 4, 4);
+        wordTiles[wordCount] = tile;
+        wordCut[wordCount] = cut;
+        wordCount++;
+    }
+
+    /** Returns the number of tiles needed along an edge of the given length. */
+    private int tileCount(int length) {
+        if (length <= tileSize) {
+            return 1;
+        }
+        int step = tileSize - overlap;
+        return (length - overlap + step - 1) / step;
+    }
+
+    /** Returns the even length of each of {@code count} tiles spread over an edge. */
+    private int tileLength(int length, int count) {
+        if (count == 1) {
+            return length;
+        }
+        int tileLength = (length + (count - 1) * overlap + count - 1) / count;
+        return Math.min((tileLength + 1) & ~1, length);
+    }
+
+    /** Returns the even start of a tile, the tiles being spread evenly from one end to the other. */
+    private static int tileStart(int length, int tileLength, int count, int index) {
+        if (index == count - 1) {
+            return length - tileLength;
+        }
+        return (int) ((long) (length - tileLength) * index / (count - 1)) & ~1;
+    }
+
+    private int checkTile(int tile) {
+        if (tile < 0 || tile >= tileCount) {
+            throw new IndexOutOfBoundsException("Tile " + tile + " of " + tileCount);
+        }
+        return tile;
+    }
+}
@@ -0,0 +1,110 @@
+package com.text.recognition;
+
+/**
+ * Immutable set of tracked highlights, published by {@link BoxTracker} after every recognition and
+ * drawn by {@link GraphicOverlay} at display rate in between.
+ *
+ * <p>Each track holds the box it was last observed at, the time of that observation and a velocity
+ * estimate. {@link #boxAt(int, long, float[])} moves the box along its velocity to the requested
+ * time, for at most {@link BoxTracker#MAX_EXTRAPOLATION_MS}, and reports tracks whose observation is
+ * older than the timeout as expired. Times are in milliseconds of one monotonic clock, which on the
+ * device is {@code SystemClock.uptimeMillis()}.
+ */
+public final class TrackedHighlights {
+
+    /** Highlights with no tracks. */
+    public static final TrackedHighlights EMPTY = new TrackedHighlights(
+            new float[0], new float[0], new long[0], new int[0], Long.MAX_VALUE);
+
+    private final float[] rects;
+    /** Velocity of every track as {@code dx, dy} in view pixels per millisecond. */
+    private final float[] velocities;
+    private final long[] observedAt;
+    private final int[] targetIds;
+    private final long timeoutMillis;
+
+    TrackedHighlights(float[] rects, float[] velocities, long[] observedAt, int[] targetIds,
+                      long timeoutMillis) {
+        this.rects = rects;
+        this.velocities = velocities;
+        this.observedAt = observedAt;
+        this.targetIds = targetIds;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Wraps highlights that do not move and never expire, for callers that do not track boxes.
+     */
+    public static TrackedHighlights fixed(HighlightResult highlights) {
+        int count = highlights.size();
+        if (count == 0) {
+            return EMPTY;
+        }
+        int[] targetIds = new int[count];
+        for (int i = 0; i < count; i++) {
+            targetIds[i] = highlights.targetId(i);
+        }
+        return new TrackedHighlights(highlights.packedRects(), new float[count * 2], new long[count],
+                targetIds, Long.MAX_VALUE);
+    }
+
+    /** Returns the number of tracks, including any that have expired since they were published. */
+    public int size() {
+        return targetIds.length;
+    }
+
+    public int targetId(int index) {
+        return targetIds[index];
+    }
+
+    /**
+     * Writes the predicted box of track {@code index} at {@code nowMillis} into {@code out} as
+     * {@code left, top, right, bottom}, and returns false without writing if the track has expired.
+     */
+    public boolean boxAt(int index, long nowMillis, float[] out) {
+        long age = nowMillis - observedAt[index];
+        if (age > timeoutMillis) {
+            return false;
+        }
+        float elapsed = Math.max(0, Math.min(age, BoxTracker.MAX_EXTRAPOLATION_MS));
+        float dx = velocities[index * 2] * elapsed;
+        float dy = velocities[index * 2 + 1] * elapsed;
+        int offset = index * 4;
+        out[0] = rects[offset] + dx;
+        out[1] = rects[offset + 1] + dy;
+        out[2] = rects[offset + 2] + dx;
+        out[3] = rects[offset + 3] + dy;
+        return true;
+    }
+
+    /** Returns whether any unexpired track moves, so that the view has to redraw every frame. */
+    public boolean isMoving(long nowMillis) {
+        for (int i = 0; i < targetIds.length; i++) {
+            long age = nowMillis - observedAt[i];
+            if (age <= timeoutMillis && age < BoxTracker.MAX_EXTRAPOLATION_MS
+                    && (velocities[i * 2] != 0 || velocities[i * 2 + 1] != 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the first time after {@code nowMillis} at which a track that is still drawn expires,
+     * or {@link Long#MAX_VALUE} if none will.
+     */
+    public long nextExpiry(long nowMillis) {
+        long next = Long.MAX_VALUE;
+        if (timeoutMillis == Long.MAX_VALUE) {
+            return next;
+        }
+        for (long observed : observedAt) {
+            // Tracks are drawn up to and including their timeout.
+            long expiry = observed + timeoutMillis + 1;
+            if (expiry > nowMillis && expiry < next) {
+                next = expiry;
+            }
+        }
+        return next;
+    }
+}
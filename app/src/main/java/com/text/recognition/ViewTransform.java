@@ -0,0 +1,149 @@
+package com.text.recognition;
+
+/**
+ * Immutable affine transform from image coordinates to view coordinates, laid out like an {@code
+ * android.graphics.Matrix}: {@code x' = scaleX * x + skewX * y + translateX} and {@code y' = skewY *
+ * x + scaleY * y + translateY}.
+ *
+ * <p>Kept in plain Java so that the mapping can be built and tested off the device. Transforms are
+ * built once, when the image size, view size, rotation or facing changes (see {@link
+ * AnalysisViewport}), and then map every highlight of a frame in one {@link #mapRects} call over a
+ * packed array, without allocating.
+ */
+public final class ViewTransform {
+
+    public static final ViewTransform IDENTITY = new ViewTransform(1, 0, 0, 0, 1, 0);
+
+    private final float scaleX;
+    private final float skewX;
+    private final float translateX;
+    private final float skewY;
+    private final float scaleY;
+    private final float translateY;
+
+    private ViewTransform(float scaleX, float skewX, float translateX,
+                          float skewY, float scaleY, float translateY) {
+        this.scaleX = scaleX;
+        this.skewX = skewX;
+        this.translateX = translateX;
+        this.skewY = skewY;
+        this.scaleY = scaleY;
+        this.translateY = translateY;
+    }
+
+    /** Returns the transform with the given {@link #getValues() values}. */
+    public static ViewTransform fromValues(float[] values) {
+        return new ViewTransform(values[0], values[1], values[2], values[3], values[4], values[5]);
+    }
+
+    /** Returns a transform that scales uniformly and then translates. */
+    public static ViewTransform scaleTranslate(float scale, float dx, float dy) {
+        return new ViewTransform(scale, 0, dx, 0, scale, dy);
+    }
+
+    /**
+     * Returns the transform that turns a {@code width} x {@code height} image upright by rotating it
+     * clockwise by {@code degrees}, which must be a multiple of 90. The result spans {@code [0,
+     * height] x [0, width]} for 90 and 270 degrees.
+     */
+    public static ViewTransform rotation(int degrees, int width, int height) {
+        switch (((degrees % 360) + 360) % 360) {
+            case 90:
+                return new ViewTransform(0, -1, height, 1, 0, 0);
+            case 180:
+                return new ViewTransform(-1, 0, width, 0, -1, height);
+            case 270:
+                return new ViewTransform(0, 1, 0, -1, 0, width);
+            case 0:
+                return IDENTITY;
+            default:
+                throw new IllegalArgumentException("Rotation must be a multiple of 90: " + degrees);
+        }
+    }
+
+    /** Returns this transform followed by a horizontal flip of a view {@code viewWidth} wide. */
+    public ViewTransform mirrored(float viewWidth) {
+        return new ViewTransform(-scaleX, -skewX, viewWidth - translateX, skewY, scaleY, translateY);
+    }
+
+    /** Returns the transform that applies this one and then {@code next}. */
+    public ViewTransform then(ViewTransform next) {
+        return new ViewTransform(
+                next.scaleX * scaleX + next.skewX * skewY,
+                next.scaleX * skewX + next.skewX * scaleY,
+                next.scaleX * translateX + next.skewX * translateY + next.translateX,
+                next.skewY * scaleX + next.scaleY * skewY,
+                next.skewY * skewX + next.scaleY * scaleY,
+                next.skewY * translateX + next.scaleY * translateY + next.translateY);
+    }
+
+    /** Returns whether the transform keeps axis-aligned rectangles axis aligned without swapping axes. */
+    public boolean isAxisAligned() {
+        return skewX == 0 && skewY == 0;
+    }
+
+    public float mapX(float x, float y) {
+        return scaleX * x + skewX * y + translateX;
+    }
+
+    public float mapY(float x, float y) {
+        return skewY * x + scaleY * y + translateY;
+    }
+
+    /** Maps a horizontal length, for transforms that are {@link #isAxisAligned() axis aligned}. */
+    public float mapLengthX(float length) {
+        return Math.abs(scaleX) * length;
+    }
+
+    /** Maps a vertical length, for transforms that are {@link #isAxisAligned() axis aligned}. */
+    public float mapLengthY(float length) {
+        return Math.abs(scaleY) * length;
+    }
+
+    /** Maps {@code count} packed {@code x, y} points in place, starting at {@code offset}. */
+    public void mapPoints(float[] points, int offset, int count) {
+        for (int i = offset, end = offset + count * 2; i < end; i += 2) {
+            float x = points[i];
+            float y = points[i + 1];
+            points[i] = scaleX * x + skewX * y + translateX;
+            points[i + 1] = skewY * x + scaleY * y + translateY;
+        }
+    }
+
+    /**
+     * Maps {@code count} packed {@code left, top, right, bottom} rectangles in place, starting at
+     * {@code offset}. Rotated and mirrored rectangles are sorted again, so that left stays left of
+     * right and top above bottom.
+     */
+    public void mapRects(float[] rects, int offset, int count) {
+        for (int i = offset, end = offset + count * 4; i < end; i += 4) {
+            float left = rects[i];
+            float top = rects[i + 1];
+            float right = rects[i + 2];
+            float bottom = rects[i + 3];
+            // Opposite corners; for multiples of 90 degrees they stay opposite.
+            float x0 = scaleX * left + skewX * top + translateX;
+            float y0 = skewY * left + scaleY * top + translateY;
+            float x1 = scaleX * right + skewX * bottom + translateX;
+            float y1 = skewY * right + scaleY * bottom + translateY;
+            rects[i] = Math.min(x0, x1);
+            rects[i + 1] = Math.min(y0, y1);
+            rects[i + 2] = Math.max(x0, x1);
+            rects[i + 3] = Math.max(y0, y1);
+        }
+    }
+
+    /**
+     * Returns the six affine values in the order of the first six values of {@code
+     * android.graphics.Matrix.setValues}.
+     */
+    public float[] getValues() {
+        return new float[]{scaleX, skewX, translateX, skewY, scaleY, translateY};
+    }
+
+    @Override
+    public String toString() {
+        return "ViewTransform[" + scaleX + ", " + skewX + ", " + translateX + "; "
+                + skewY + ", " + scaleY + ", " + translateY + "]";
+    }
+}
@@ -0,0 +1,156 @@
+package com.text.recognition;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AnalysisViewportTest {
+
+    private static final int IMAGE_WIDTH = 640;
+    private static final int IMAGE_HEIGHT = 480;
+    private static final float EPSILON = 1e-3f;
+
+    @Test
+    public void matchingAspectRatio_cropsNothing() {
+        AnalysisViewport viewport = new AnalysisViewport();
+        viewport.update(IMAGE_WIDTH, IMAGE_HEIGHT, 90, 1080, 1440, null);
+
+        assertCrop(viewport, 0, 0, IMAGE_WIDTH, IMAGE_HEIGHT);
+        assertEquals(2.25f, viewport.getScale(), EPSILON);
+        assertEquals(0f, viewport.viewX(0), EPSILON);
+        assertEquals(1080f, viewport.viewX(480), EPSILON);
+        assertEquals(1440f, viewport.viewY(640), EPSILON);
+    }
+
+    @Test
+    public void tallerView_cropsSidesOfUprightFrame() {
+        AnalysisViewport viewport = new AnalysisViewport();
+        // Upright frame is 480x640; a 1080x1920 view shows 360x640 of it, centered.
+        viewport.update(IMAGE_WIDTH, IMAGE_HEIGHT, 90, 1080, 1920, null);
+
+        // The upright x axis runs along the buffer's y axis.
+        assertCrop(viewport, 0, 60, IMAGE_WIDTH, 360);
+        assertEquals(3f, viewport.getScale(), EPSILON);
+        assertEquals(0f, viewport.viewX(0), EPSILON);
+        assertEquals(1080f, viewport.viewX(360), EPSILON);
+    }
+
+    @Test
+    public void regionOfInterest_isIntersectedWithVisibleArea() {
+        AnalysisViewport viewport = new AnalysisViewport();
+        viewport.update(IMAGE_WIDTH, IMAGE_HEIGHT, 0, 1280, 960, new float[]{320, 240, 960, 2000});
+
+        assertCrop(viewport, 160, 120, 320, 360);
+        assertEquals(320f, viewport.viewX(0), EPSILON);
+        assertEquals(240f, viewport.viewY(0), EPSILON);
+    }
+
+    @Test
+    public void regionOfInterestOutsideView_isEmpty() {
+        AnalysisViewport viewport = new AnalysisViewport();
+        viewport.update(IMAGE_WIDTH, IMAGE_HEIGHT, 0, 1280, 960, new float[]{2000, 0, 2100, 100});
+        assertTrue(viewport.isEmpty());
+    }
+
+    @Test
+    public void cropIsEvenAligned() {
+        AnalysisViewport viewport = new AnalysisViewport();
+        viewport.update(IMAGE_WIDTH, IMAGE_HEIGHT, 0, 1280, 960, new float[]{3, 5, 1001, 703});
+
+        assertEquals(0, viewport.getCropLeft() % 2);
+        assertEquals(0, viewport.getCropTop() % 2);
+        assertEquals(0, viewport.getCropWidth() % 2);
+        assertEquals(0, viewport.getCropHeight() % 2);
+        assertTrue(viewport.getCropLeft() <= 1.5f && viewport.getCropTop() <= 2.5f);
+        assertTrue(viewport.getCropLeft() + viewport.getCropWidth() >= 500.5f);
+        assertTrue(viewport.getCropTop() + viewport.getCropHeight() >= 351.5f);
+    }
+
+    @Test
+    public void bufferPixelsMapToTheSameViewPointForEveryRotation() {
+        int viewWidth = 1000;
+        int viewHeight = 1700;
+        float[] roi = {101, 203, 899, 1333};
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            AnalysisViewport viewport = new AnalysisViewport();
+            viewport.update(IMAGE_WIDTH, IMAGE_HEIGHT, rotation, viewWidth, viewHeight, roi);
+            AnalysisViewport full = new AnalysisViewport();
+            full.update(IMAGE_WIDTH, IMAGE_HEIGHT, rotation, viewWidth, viewHeight, null);
+
+            // Map a buffer pixel inside the crop through the crop's own upright coordinates, and
+            // through the uncropped frame's; both have to land on the same view point.
+            int bx = viewport.getCropLeft() + viewport.getCropWidth() / 3;
+            int by = viewport.getCropTop() + viewport.getCropHeight() / 4;
+            float[] inCrop = upright(bx - viewport.getCropLeft(), by - viewport.getCropTop(),
+                    viewport.getCropWidth(), viewport.getCropHeight(), rotation);
+            float[] inFrame = upright(bx - full.getCropLeft(), by - full.getCropTop(),
+                    full.getCropWidth(), full.getCropHeight(), rotation);
+            assertEquals("rotation " + rotation, full.viewX(inFrame[0]), viewport.viewX(inCrop[0]), EPSILON);
+            assertEquals("rotation " + rotation, full.viewY(inFrame[1]), viewport.viewY(inCrop[1]), EPSILON);
+        }
+    }
+
+    @Test
+    public void frameToView_agreesWithImageToView() {
+        float[] roi = {101, 203, 899, 1333};
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            for (boolean mirrored : new boolean[]{false, true}) {
+                AnalysisViewport viewport = new AnalysisViewport();
+                viewport.update(IMAGE_WIDTH, IMAGE_HEIGHT, rotation, 1000, 1700, roi, mirrored);
+
+                int bx = viewport.getCropLeft() + viewport.getCropWidth() / 3;
+                int by = viewport.getCropTop() + viewport.getCropHeight() / 4;
+                float[] inCrop = upright(bx - viewport.getCropLeft(), by - viewport.getCropTop(),
+                        viewport.getCropWidth(), viewport.getCropHeight(), rotation);
+                ViewTransform imageToView = viewport.getImageToView();
+                ViewTransform frameToView = viewport.getFrameToView();
+                String message = "rotation " + rotation + " mirrored " + mirrored;
+                assertEquals(message, imageToView.mapX(inCrop[0], inCrop[1]), frameToView.mapX(bx, by), EPSILON);
+                assertEquals(message, imageToView.mapY(inCrop[0], inCrop[1]), frameToView.mapY(bx, by), EPSILON);
+            }
+        }
+    }
+
+    @Test
+    public void mirrored_flipsViewHorizontally() {
+        AnalysisViewport viewport = new AnalysisViewport();
+        viewport.update(IMAGE_WIDTH, IMAGE_HEIGHT, 0, 1280, 960, null, true);
+
+        assertEquals(1280f, viewport.viewX(0), EPSILON);
+        assertEquals(0f, viewport.viewX(IMAGE_WIDTH), EPSILON);
+    }
+
+    @Test
+    public void update_reusesTransformsWhileInputsAreUnchanged() {
+        AnalysisViewport viewport = new AnalysisViewport();
+        assertTrue(viewport.update(IMAGE_WIDTH, IMAGE_HEIGHT, 90, 1080, 1920, new float[]{0, 0, 500, 500}));
+        ViewTransform transform = viewport.getImageToView();
+
+        assertFalse(viewport.update(IMAGE_WIDTH, IMAGE_HEIGHT, 90, 1080, 1920, new float[]{0, 0, 500, 500}));
+        assertSame(transform, viewport.getImageToView());
+
+        assertTrue(viewport.update(IMAGE_WIDTH, IMAGE_HEIGHT, 270, 1080, 1920, new float[]{0, 0, 500, 500}));
+        assertNotSame(transform, viewport.getImageToView());
+    }
+
+    /** Rotates a point of a width x height buffer clockwise by the given degrees. */
+    private static float[] upright(float x, float y, int width, int height, int rotation) {
+        switch (rotation) {
+            case 90:
+                return new float[]{height - y, x};
+            case 180:
+                return new float[]{width - x, height - y};
+            case 270:
+                return new float[]{y, width - x};
+            default:
+                return new float[]{x, y};
+        }
+    }
+
+    private static void assertCrop(AnalysisViewport viewport, int left, int top, int width, int height) {
+        assertEquals(left, viewport.getCropLeft());
+        assertEquals(top, viewport.getCropTop());
+        assertEquals(width, viewport.getCropWidth());
+        assertEquals(height, viewport.getCropHeight());
+    }
+}
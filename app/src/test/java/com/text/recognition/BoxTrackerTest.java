@@ -0,0 +1,131 @@
+package com.text.recognition;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BoxTrackerTest {
+
+    private static final float EPSILON = 1e-3f;
+
+    @Test
+    public void newBoxes_startAtRest() {
+        BoxTracker tracker = new BoxTracker();
+        TrackedHighlights tracks = tracker.update(result(0, 100, 100, 200, 150), 1000);
+
+        assertEquals(1, tracks.size());
+        assertBox(tracks, 0, 1200, 100, 100, 200, 150);
+        assertFalse(tracks.isMoving(1000));
+    }
+
+    @Test
+    public void linkedBoxes_areExtrapolatedAlongTheirVelocity() {
+        BoxTracker tracker = new BoxTracker();
+        tracker.update(result(0, 100, 100, 200, 150), 1000);
+        // Moved 50 px right in 250 ms: 0.2 px/ms, halved by smoothing from rest.
+        TrackedHighlights tracks = tracker.update(result(0, 150, 100, 250, 150), 1250);
+
+        assertEquals(1, tracker.trackCount());
+        assertTrue(tracks.isMoving(1300));
+        assertBox(tracks, 0, 1250, 150, 100, 250, 150);
+        assertBox(tracks, 0, 1350, 160, 100, 260, 150);
+
+        // The next observation is matched against the predicted position.
+        tracks = tracker.update(result(0, 200, 100, 300, 150), 1500);
+        assertEquals(1, tracker.trackCount());
+        assertBox(tracks, 0, 1600, 215, 100, 315, 150);
+    }
+
+    @Test
+    public void extrapolationIsCapped() {
+        BoxTracker tracker = new BoxTracker(5000);
+        tracker.update(result(0, 0, 0, 100, 50), 0);
+        TrackedHighlights tracks = tracker.update(result(0, 10, 0, 110, 50), 100);
+
+        float[] capped = new float[4];
+        assertTrue(tracks.boxAt(0, 100 + BoxTracker.MAX_EXTRAPOLATION_MS, capped));
+        float[] later = new float[4];
+        assertTrue(tracks.boxAt(0, 100 + 3 * BoxTracker.MAX_EXTRAPOLATION_MS, later));
+        assertArrayEquals(capped, later, EPSILON);
+        assertFalse(tracks.isMoving(100 + BoxTracker.MAX_EXTRAPOLATION_MS));
+    }
+
+    @Test
+    public void boxesOnlyLinkToTracksOfTheSameTarget() {
+        BoxTracker tracker = new BoxTracker();
+        tracker.update(result(0, 100, 100, 200, 150), 1000);
+        tracker.update(result(1, 100, 100, 200, 150), 1100);
+
+        assertEquals(2, tracker.trackCount());
+    }
+
+    @Test
+    public void distantBoxes_startNewTracks() {
+        BoxTracker tracker = new BoxTracker();
+        tracker.update(result(0, 100, 100, 200, 150), 1000);
+        tracker.update(result(0, 400, 100, 500, 150), 1100);
+
+        assertEquals(2, tracker.trackCount());
+    }
+
+    @Test
+    public void bestOverlapWins() {
+        BoxTracker tracker = new BoxTracker();
+        tracker.update(new HighlightResult.Builder()
+                .add(100, 100, 200, 150, 0)
+                .add(180, 100, 280, 150, 0)
+                .build(), 1000);
+        TrackedHighlights tracks = tracker.update(result(0, 175, 100, 275, 150), 1100);
+
+        assertEquals(2, tracks.size());
+        // The second track, which overlaps most, takes the box and stays nearly still.
+        assertBox(tracks, 1, 1100, 175, 100, 275, 150);
+        assertBox(tracks, 0, 1100, 100, 100, 200, 150);
+    }
+
+    @Test
+    public void tracksExpireAfterTimeout() {
+        BoxTracker tracker = new BoxTracker(300);
+        TrackedHighlights tracks = tracker.update(result(0, 100, 100, 200, 150), 1000);
+
+        float[] box = new float[4];
+        assertTrue(tracks.boxAt(0, 1300, box));
+        assertFalse(tracks.boxAt(0, 1301, box));
+        assertEquals(1301, tracks.nextExpiry(1000));
+
+        tracker.update(HighlightResult.EMPTY, 1301);
+        assertEquals(0, tracker.trackCount());
+    }
+
+    @Test
+    public void hold_stopsTracksAndRestartsTimeout() {
+        BoxTracker tracker = new BoxTracker(300);
+        tracker.update(result(0, 100, 100, 200, 150), 1000);
+        tracker.update(result(0, 150, 100, 250, 150), 1250);
+        TrackedHighlights tracks = tracker.hold(1500);
+
+        assertFalse(tracks.isMoving(1500));
+        assertBox(tracks, 0, 1700, 150, 100, 250, 150);
+    }
+
+    @Test
+    public void fixedHighlights_neverMoveOrExpire() {
+        TrackedHighlights tracks = TrackedHighlights.fixed(result(3, 1, 2, 3, 4));
+
+        assertEquals(3, tracks.targetId(0));
+        assertBox(tracks, 0, Long.MAX_VALUE / 2, 1, 2, 3, 4);
+        assertFalse(tracks.isMoving(0));
+        assertEquals(Long.MAX_VALUE, tracks.nextExpiry(0));
+    }
+
+    private static HighlightResult result(int targetId, float left, float top, float right, float bottom) {
+        return new HighlightResult.Builder().add(left, top, right, bottom, targetId).build();
+    }
+
+    private static void assertBox(TrackedHighlights tracks, int index, long time,
+                                  float left, float top, float right, float bottom) {
+        float[] box = new float[4];
+        assertTrue(tracks.boxAt(index, time, box));
+        assertArrayEquals(new float[]{left, top, right, bottom}, box, EPSILON);
+    }
+}
@@ -0,0 +1,184 @@
+package com.text.recognition;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class DetectorSchedulerTest {
+
+    private static final int BOTH = DetectorScheduler.TEXT | DetectorScheduler.BARCODE;
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+
+    @Test
+    public void barcodeEveryFrame_textEveryThird() {
+        DetectorScheduler scheduler = new DetectorScheduler(3, 1);
+        int[] expected = {BOTH, DetectorScheduler.BARCODE, DetectorScheduler.BARCODE, BOTH};
+        for (int detectors : expected) {
+            assertEquals(detectors, scheduler.next());
+        }
+    }
+
+    @Test
+    public void samePeriods_areStaggered() {
+        DetectorScheduler scheduler = new DetectorScheduler(2, 2);
+        assertEquals(DetectorScheduler.TEXT, scheduler.next());
+        assertEquals(DetectorScheduler.BARCODE, scheduler.next());
+        assertEquals(DetectorScheduler.TEXT, scheduler.next());
+
+        scheduler = new DetectorScheduler(3, 3);
+        assertEquals(DetectorScheduler.TEXT, scheduler.next());
+        assertEquals(0, scheduler.next());
+        assertEquals(DetectorScheduler.BARCODE, scheduler.next());
+    }
+
+    @Test
+    public void zeroPeriod_neverRuns() {
+        DetectorScheduler scheduler = new DetectorScheduler(1, 0);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(DetectorScheduler.TEXT, scheduler.next());
+        }
+    }
+
+    @Test
+    public void reset_startsOver() {
+        DetectorScheduler scheduler = new DetectorScheduler(3, 1);
+        scheduler.next();
+        scheduler.next();
+        scheduler.reset();
+        assertEquals(BOTH, scheduler.next());
+    }
+
+    @Test
+    public void gatedScene_isOnlyKeptOnceItsTextIsRecognized() {
+        DetectorScheduler scheduler = new DetectorScheduler(3, 1);
+        MotionGate gate = new MotionGate();
+        assertEquals(BOTH, process(gate, scheduler, 0));
+        assertFalse(shouldProcess(gate, 0));
+
+        // A new scene first shows up on barcode-only frames; it still gets through the gate until
+        // text recognition is due.
+        assertEquals(DetectorScheduler.BARCODE, process(gate, scheduler, 1));
+        assertEquals(DetectorScheduler.BARCODE, process(gate, scheduler, 1));
+        assertEquals(BOTH, process(gate, scheduler, 1));
+        assertFalse(shouldProcess(gate, 1));
+    }
+
+    @Test
+    public void newScene_onTextOnlyFrame_stillHasItsBarcodeScanned() {
+        // The shipped schedule: text on every frame, barcodes on every other one.
+        DetectorScheduler scheduler = new DetectorScheduler(1, 2);
+        MotionGate gate = new MotionGate();
+        assertEquals(BOTH, process(gate, scheduler, 0));
+        assertFalse(shouldProcess(gate, 0));
+
+        assertEquals(DetectorScheduler.TEXT, process(gate, scheduler, 1));
+        assertEquals(BOTH, process(gate, scheduler, 1));
+        assertFalse(shouldProcess(gate, 1));
+    }
+
+    @Test
+    public void newScene_onSkippedFrame_stillHasItsBarcodeScanned() {
+        DetectorScheduler scheduler = new DetectorScheduler(0, 2);
+        MotionGate gate = new MotionGate();
+        assertEquals(DetectorScheduler.BARCODE, process(gate, scheduler, 0));
+        assertFalse(shouldProcess(gate, 0));
+
+        // No detector is due on the frame the scene changes on.
+        assertEquals(0, process(gate, scheduler, 1));
+        assertEquals(DetectorScheduler.BARCODE, process(gate, scheduler, 1));
+        assertFalse(shouldProcess(gate, 1));
+    }
+
+    @Test
+    public void sceneChangingBeforeAllDetectorsRan_startsOver() {
+        DetectorScheduler scheduler = new DetectorScheduler(2, 2);
+        MotionGate gate = new MotionGate();
+        assertEquals(DetectorScheduler.TEXT, process(gate, scheduler, 0));
+        assertEquals(DetectorScheduler.BARCODE, process(gate, scheduler, 0));
+        assertFalse(shouldProcess(gate, 0));
+
+        assertEquals(DetectorScheduler.TEXT, process(gate, scheduler, 1));
+        // Only the barcode runs on the next scene, so its text is still to be recognized.
+        assertEquals(DetectorScheduler.BARCODE, process(gate, scheduler, 0));
+        assertEquals(DetectorScheduler.TEXT, process(gate, scheduler, 0));
+        assertFalse(shouldProcess(gate, 0));
+    }
+
+    @Test
+    public void textInterval_onlyThrottlesText() {
+        DetectorScheduler scheduler = new DetectorScheduler(1, 1, 100);
+        assertEquals(BOTH, scheduler.next(0));
+        assertEquals(DetectorScheduler.BARCODE, scheduler.next(33));
+        assertEquals(DetectorScheduler.BARCODE, scheduler.next(66));
+        assertEquals(BOTH, scheduler.next(100));
+        assertEquals(DetectorScheduler.BARCODE, scheduler.next(133));
+    }
+
+    @Test
+    public void textHeldBackByTheInterval_runsOnTheFirstFrameAfterIt() {
+        DetectorScheduler scheduler = new DetectorScheduler(3, 1, 100);
+        assertEquals(BOTH, scheduler.next(0));
+        assertEquals(DetectorScheduler.BARCODE, scheduler.next(10));
+        assertEquals(DetectorScheduler.BARCODE, scheduler.next(20));
+        // Text is due by its period, but not by the interval.
+        assertEquals(DetectorScheduler.BARCODE, scheduler.next(30));
+        assertEquals(DetectorScheduler.BARCODE, scheduler.next(60));
+        assertEquals(BOTH, scheduler.next(100));
+
+        scheduler.reset();
+        assertEquals(BOTH, scheduler.next(110));
+    }
+
+    @Test
+    public void textHeldBackByTheInterval_keepsTheGateOpen() {
+        DetectorScheduler scheduler = new DetectorScheduler(1, 0, 100);
+        MotionGate gate = new MotionGate();
+        assertEquals(DetectorScheduler.TEXT, process(gate, scheduler, 0, 0));
+        assertEquals(0, process(gate, scheduler, 1, 30));
+        assertEquals(0, process(gate, scheduler, 1, 60));
+        assertEquals(DetectorScheduler.TEXT, process(gate, scheduler, 1, 100));
+        assertFalse(shouldProcess(gate, 1));
+    }
+
+    private static int process(MotionGate gate, DetectorScheduler scheduler, int phase) {
+        return process(gate, scheduler, phase, 0);
+    }
+
+    /**
+     * Lets a frame of the given phase through the gate, which has to pass it, and schedules it at
+     * {@code nowMillis}.
+     */
+    private static int process(MotionGate gate, DetectorScheduler scheduler, int phase,
+            long nowMillis) {
+        assertTrue(shouldProcess(gate, phase));
+        return scheduler.next(gate, nowMillis);
+    }
+
+    private static boolean shouldProcess(MotionGate gate, int phase) {
+        return gate.shouldProcess(checkerboard(phase), WIDTH, 1, WIDTH, HEIGHT);
+    }
+
+    /** A luma plane of 20-pixel squares, inverted by {@code phase} 1. */
+    private static ByteBuffer checkerboard(int phase) {
+        byte[] luma = new byte[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                luma[y * WIDTH + x] = (byte) (((x / 20 + y / 20 + phase) & 1) * 200);
+            }
+        }
+        return ByteBuffer.wrap(luma);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void someDetectorMustRun() {
+        new DetectorScheduler(0, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void textInterval_mustNotBeNegative() {
+        new DetectorScheduler(1, 1, -1);
+    }
+}
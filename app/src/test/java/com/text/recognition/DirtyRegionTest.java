@@ -0,0 +1,82 @@
+package com.text.recognition;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DirtyRegionTest {
+
+    @Test
+    public void sameBoxes_changeNothing() {
+        DirtyRegion region = new DirtyRegion(2);
+        TrackedHighlights highlights = fixed(10, 10, 50, 30, 100, 100, 150, 130);
+        assertFalse(region.diff(highlights, highlights, 0));
+        // Equal boxes in another order, as after a hold of the tracker.
+        assertFalse(region.diff(highlights, fixed(100, 100, 150, 130, 10, 10, 50, 30), 0));
+        assertTrue(region.isEmpty());
+        assertFalse(region.diff(TrackedHighlights.EMPTY, TrackedHighlights.fixed(HighlightResult.EMPTY), 0));
+    }
+
+    @Test
+    public void changedBoxes_areUnitedWithPadding() {
+        DirtyRegion region = new DirtyRegion(2);
+        TrackedHighlights before = fixed(10, 10, 50, 30, 100, 100, 150, 130);
+        // The first box stays, the second moves.
+        TrackedHighlights after = fixed(10, 10, 50, 30, 120, 90, 170, 131.5f);
+        assertTrue(region.diff(before, after, 0));
+        assertRegion(region, 98, 88, 172, 134);
+    }
+
+    @Test
+    public void addedAndRemovedBoxes_areDirty() {
+        DirtyRegion region = new DirtyRegion(0);
+        assertTrue(region.diff(TrackedHighlights.EMPTY, fixed(10, 10, 50, 30), 0));
+        assertRegion(region, 10, 10, 50, 30);
+        assertTrue(region.diff(fixed(10, 10, 50, 30, 60, 10, 90, 30), fixed(10, 10, 50, 30), 0));
+        assertRegion(region, 60, 10, 90, 30);
+    }
+
+    @Test
+    public void expiredBoxes_areNotCompared() {
+        BoxTracker tracker = new BoxTracker(100);
+        TrackedHighlights before = tracker.update(result(10, 10, 50, 30), 0);
+        DirtyRegion region = new DirtyRegion(0);
+        // Both are gone by then, so nothing is drawn either way.
+        assertFalse(region.diff(before, TrackedHighlights.EMPTY, 200));
+        assertTrue(region.diff(before, TrackedHighlights.EMPTY, 50));
+    }
+
+    @Test
+    public void sweep_coversTheWayOfMovingBoxes() {
+        BoxTracker tracker = new BoxTracker(5000);
+        tracker.update(result(0, 0, 100, 50), 0);
+        // 0.2 px/ms observed, halved by smoothing: 0.1 px/ms to the right.
+        TrackedHighlights moving = tracker.update(result(20, 0, 120, 50), 100);
+        DirtyRegion region = new DirtyRegion(0);
+        assertTrue(region.sweep(moving, 100));
+        assertRegion(region, 20, 0, 170, 50);
+
+        assertFalse(region.sweep(tracker.hold(200), 200));
+        assertFalse(region.sweep(fixed(0, 0, 10, 10), 0));
+    }
+
+    private static TrackedHighlights fixed(float... rects) {
+        HighlightResult.Builder builder = new HighlightResult.Builder();
+        for (int i = 0; i < rects.length; i += 4) {
+            builder.add(rects[i], rects[i + 1], rects[i + 2], rects[i + 3], 0);
+        }
+        return TrackedHighlights.fixed(builder.build());
+    }
+
+    private static HighlightResult result(float left, float top, float right, float bottom) {
+        return new HighlightResult.Builder().add(left, top, right, bottom, 0).build();
+    }
+
+    private static void assertRegion(DirtyRegion region, int left, int top, int right, int bottom) {
+        assertFalse(region.isEmpty());
+        assertEquals(left, region.getLeft());
+        assertEquals(top, region.getTop());
+        assertEquals(right, region.getRight());
+        assertEquals(bottom, region.getBottom());
+    }
+}
@@ -0,0 +1,113 @@
+package com.text.recognition;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class EventTracerTest {
+
+    private static final long ONE_MINUTE_NANOS = 60_000_000_000L;
+
+    @Test
+    public void capacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(8, new EventTracer(5).capacity());
+        assertEquals(8, new EventTracer(8).capacity());
+    }
+
+    @Test
+    public void exportsChromeTraceEvents() throws Exception {
+        EventTracer tracer = new EventTracer(16);
+        long start = System.nanoTime();
+        tracer.span(EventTracer.Event.RECOGNIZE, start, start + 2_500_000, 42);
+        tracer.instant(EventTracer.Event.HIGHLIGHT, 7);
+        tracer.counter(EventTracer.Event.HIGHLIGHTS, 3);
+
+        String trace = export(tracer, ONE_MINUTE_NANOS);
+        assertTrue(trace, trace.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+        assertTrue(trace, trace.contains("\"name\":\"recognize\",\"cat\":\"pipeline\",\"ph\":\"X\""));
+        assertTrue(trace, trace.contains("\"dur\":2500.000,\"args\":{\"frame\":42}}"));
+        assertTrue(trace, trace.contains("\"ph\":\"i\""));
+        assertTrue(trace, trace.contains("\"args\":{\"target\":7}"));
+        assertTrue(trace, trace.contains("\"ph\":\"C\""));
+        assertTrue(trace, trace.contains("\"args\":{\"count\":3}"));
+        assertTrue(trace.indexOf("recognize") < trace.indexOf("highlights"));
+    }
+
+    @Test
+    public void fullBuffer_keepsNewestEvents() throws Exception {
+        EventTracer tracer = new EventTracer(4);
+        for (int i = 0; i < 10; i++) {
+            tracer.instant(EventTracer.Event.HIGHLIGHT, i);
+        }
+        String trace = export(tracer, ONE_MINUTE_NANOS);
+
+        assertEquals(4, count(trace, "\"name\":\"highlight\""));
+        assertFalse(trace.contains("\"target\":5}"));
+        assertTrue(trace.contains("\"target\":6}"));
+        assertTrue(trace.contains("\"target\":9}"));
+    }
+
+    @Test
+    public void window_leavesOutOlderEvents() throws Exception {
+        EventTracer tracer = new EventTracer(16);
+        long now = System.nanoTime();
+        tracer.span(EventTracer.Event.CROP, now - 2 * ONE_MINUTE_NANOS, now - 2 * ONE_MINUTE_NANOS + 1000, 1);
+        tracer.instant(EventTracer.Event.FRAME, 2);
+
+        String trace = export(tracer, ONE_MINUTE_NANOS);
+        assertFalse(trace.contains("crop"));
+        assertTrue(trace.contains("frame"));
+    }
+
+    @Test
+    public void disabledOrCleared_recordsNothing() throws Exception {
+        EventTracer tracer = new EventTracer(16);
+        tracer.instant(EventTracer.Event.FRAME, 1);
+        tracer.clear();
+        tracer.setEnabled(false);
+        tracer.instant(EventTracer.Event.FRAME, 2);
+
+        assertEquals("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n]}\n", export(tracer, ONE_MINUTE_NANOS));
+    }
+
+    @Test
+    public void concurrentRecording_exportsOnlyWholeEvents() throws Exception {
+        EventTracer tracer = new EventTracer(64);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    tracer.instant(EventTracer.Event.HIGHLIGHT, thread);
+                }
+            });
+            threads[t].start();
+        }
+        // Export while the writers overwrite the buffer; every exported event has to be intact.
+        for (int i = 0; i < 20; i++) {
+            String trace = export(tracer, ONE_MINUTE_NANOS);
+            assertTrue(count(trace, "\"name\":\"highlight\"") <= 64);
+            assertEquals(count(trace, "\"name\":"), count(trace, "\"target\":"));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(64, count(export(tracer, ONE_MINUTE_NANOS), "\"name\":\"highlight\""));
+    }
+
+    private static String export(EventTracer tracer, long windowNanos) throws Exception {
+        StringWriter writer = new StringWriter();
+        tracer.writeChromeTrace(writer, windowNanos);
+        return writer.toString();
+    }
+
+    private static int count(String text, String part) {
+        int count = 0;
+        for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,99 @@
+package com.text.recognition;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class FrameCropperTest {
+
+    private static final int WIDTH = 16;
+    private static final int HEIGHT = 8;
+
+    @Test
+    public void crop_interleavedChroma() {
+        // Semi-planar layout: U and V planes are views of one VUVU... buffer, pixel stride 2.
+        int rowStride = 20;
+        byte[] chroma = new byte[rowStride * HEIGHT / 2];
+        for (int row = 0; row < HEIGHT / 2; row++) {
+            for (int column = 0; column < WIDTH / 2; column++) {
+                chroma[row * rowStride + column * 2] = v(column, row);
+                chroma[row * rowStride + column * 2 + 1] = u(column, row);
+            }
+        }
+        ByteBuffer vPlane = ByteBuffer.wrap(chroma, 0, chroma.length - 1).slice();
+        ByteBuffer uPlane = ByteBuffer.wrap(chroma, 1, chroma.length - 1).slice();
+
+        byte[] nv21 = new FrameCropper().crop(luma(rowStride), rowStride, uPlane, vPlane, rowStride, 2,
+                4, 2, 8, 4);
+
+        assertCrop(nv21, 4, 2, 8, 4);
+    }
+
+    @Test
+    public void crop_planarChroma() {
+        int rowStride = WIDTH / 2;
+        byte[] u = new byte[rowStride * HEIGHT / 2];
+        byte[] v = new byte[rowStride * HEIGHT / 2];
+        for (int row = 0; row < HEIGHT / 2; row++) {
+            for (int column = 0; column < WIDTH / 2; column++) {
+                u[row * rowStride + column] = u(column, row);
+                v[row * rowStride + column] = v(column, row);
+            }
+        }
+
+        byte[] nv21 = new FrameCropper().crop(luma(WIDTH), WIDTH,
+                ByteBuffer.wrap(u), ByteBuffer.wrap(v), rowStride, 1, 2, 0, 10, 8);
+
+        assertCrop(nv21, 2, 0, 10, 8);
+    }
+
+    @Test
+    public void crop_leavesPlanePositionsUnchanged() {
+        ByteBuffer luma = luma(WIDTH);
+        luma.position(3);
+        ByteBuffer u = ByteBuffer.allocate(WIDTH * HEIGHT / 4 + 3);
+        u.position(3);
+        new FrameCropper().crop(luma.slice(), WIDTH, u, u, WIDTH / 2, 1, 0, 0, 4, 4);
+        assertEquals(3, luma.position());
+        assertEquals(3, u.position());
+    }
+
+    private static ByteBuffer luma(int rowStride) {
+        byte[] pixels = new byte[rowStride * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                pixels[y * rowStride + x] = y(x, y);
+            }
+        }
+        return ByteBuffer.wrap(pixels);
+    }
+
+    private static void assertCrop(byte[] nv21, int left, int top, int width, int height) {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                assertEquals(y(left + x, top + y), nv21[y * width + x]);
+            }
+        }
+        int chroma = width * height;
+        for (int y = 0; y < height / 2; y++) {
+            for (int x = 0; x < width / 2; x++) {
+                assertEquals(v(left / 2 + x, top / 2 + y), nv21[chroma++]);
+                assertEquals(u(left / 2 + x, top / 2 + y), nv21[chroma++]);
+            }
+        }
+    }
+
+    private static byte y(int x, int y) {
+        return (byte) (y * WIDTH + x);
+    }
+
+    private static byte u(int x, int y) {
+        return (byte) (0x80 + y * 8 + x);
+    }
+
+    private static byte v(int x, int y) {
+        return (byte) (0xc0 + y * 8 + x);
+    }
+}
@@ -0,0 +1,56 @@
+package com.text.recognition;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameTokensTest {
+
+    @Test
+    public void reset_normalizesEveryElementInPlace() {
+        CapturedText text = new CapturedText.Builder()
+                .beginLine("NATIONAL Well-known")
+                .addElement("NATIONAL")
+                .addElement("Well-known")
+                .beginLine("")
+                .beginLine("- Caf\u00e9")
+                .addElement("-")
+                .addElement("Caf\u00e9")
+                .build();
+
+        FrameTokens tokens = new FrameTokens().reset(text);
+        assertEquals(3, tokens.lineCount());
+        assertEquals(2, tokens.elementCount(0));
+        assertEquals("national", token(tokens, 0, 0));
+        assertEquals("well known", token(tokens, 0, 1));
+        assertEquals(0, tokens.elementCount(1));
+        // An element of separators only is empty but keeps its index.
+        assertEquals("", token(tokens, 2, 0));
+        assertEquals("cafe", token(tokens, 2, 1));
+    }
+
+    @Test
+    public void reset_replacesThePreviousFrameAndGrows() {
+        CapturedText.Builder builder = new CapturedText.Builder().beginLine("many");
+        StringBuilder longWord = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            longWord.append('X');
+        }
+        for (int i = 0; i < 300; i++) {
+            builder.addElement(i == 299 ? longWord.toString() : "W" + i);
+        }
+        FrameTokens tokens = new FrameTokens().reset(builder.build());
+        assertEquals(300, tokens.elementCount(0));
+        assertEquals("w298", token(tokens, 0, 298));
+        assertEquals(2000, token(tokens, 0, 299).length());
+
+        tokens.reset(new CapturedText.Builder().beginLine("x").addElement("X").build());
+        assertEquals(1, tokens.lineCount());
+        assertEquals("x", token(tokens, 0, 0));
+    }
+
+    private static String token(FrameTokens tokens, int line, int element) {
+        int start = tokens.start(line, element);
+        return new String(tokens.chars(), start, tokens.end(line, element) - start);
+    }
+}
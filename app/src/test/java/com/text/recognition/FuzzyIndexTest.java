@@ -0,0 +1,245 @@
+package com.text.recognition;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks {@link FuzzyIndex} against a brute-force scan of its targets with the dynamic-programming
+ * edit distance in {@link GraphicOverlay}.
+ */
+public class FuzzyIndexTest {
+
+    private static final String ALPHABET = "abcdefg0123-\u00e9";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void search_findsBestTargetWithinMaxEditDistance() {
+        Random random = new Random(5);
+        List<String> targets = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            targets.add(randomString(random, 1 + random.nextInt(20)));
+        }
+        FuzzyIndex.Searcher searcher = FuzzyIndex.build(targets).newSearcher();
+
+        for (int i = 0; i < 5000; i++) {
+            String token = random.nextBoolean()
+                    ? edit(random, targets.get(random.nextInt(targets.size())), random.nextInt(4))
+                    : randomString(random, 1 + random.nextInt(20));
+            char[] chars = token.toCharArray();
+            int found = searcher.search(chars, chars.length, TargetMatcher.MIN_SIMILARITY);
+            double expected = bestSimilarity(targets, token, FuzzyIndex.DEFAULT_MAX_EDIT_DISTANCE);
+            if (expected <= TargetMatcher.MIN_SIMILARITY) {
+                assertEquals(token, TargetMatcher.NO_MATCH, found);
+            } else {
+                assertNotEquals(token, TargetMatcher.NO_MATCH, found);
+                assertEquals(token, expected, similarity(targets.get(found), token), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void search_findsLongTargets() {
+        // Tokens of 64 chars and more are looked up a row at a time rather than bit-parallel.
+        Random random = new Random(9);
+        List<String> targets = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            targets.add(randomString(random, 50 + random.nextInt(30)));
+        }
+        FuzzyIndex.Searcher searcher = FuzzyIndex.build(targets).newSearcher();
+
+        for (int i = 0; i < 500; i++) {
+            String token = edit(random, targets.get(random.nextInt(targets.size())),
+                    random.nextInt(4));
+            int found = search(searcher, token);
+            double expected = bestSimilarity(targets, token, FuzzyIndex.DEFAULT_MAX_EDIT_DISTANCE);
+            if (expected <= TargetMatcher.MIN_SIMILARITY) {
+                assertEquals(token, TargetMatcher.NO_MATCH, found);
+            } else {
+                assertNotEquals(token, TargetMatcher.NO_MATCH, found);
+                assertEquals(token, expected, similarity(targets.get(found), token), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void search_findsTargetsLongerThanPrefix() {
+        List<String> targets = Arrays.asList("industries", "industrial", "national", "limited");
+        FuzzyIndex.Searcher searcher = FuzzyIndex.build(targets).newSearcher();
+
+        assertEquals(0, search(searcher, "industries"));
+        assertEquals(0, search(searcher, "lndustrles"));
+        assertEquals(1, search(searcher, "industrlal"));
+        assertEquals(2, search(searcher, "natlonal"));
+        assertEquals(3, search(searcher, "limited."));
+        assertEquals(TargetMatcher.NO_MATCH, search(searcher, "unrelated"));
+    }
+
+    @Test
+    public void search_emptyIndexAndEmptyToken() {
+        FuzzyIndex.Searcher empty = FuzzyIndex.build(new ArrayList<String>()).newSearcher();
+        assertEquals(TargetMatcher.NO_MATCH, search(empty, "word"));
+
+        FuzzyIndex.Searcher searcher = FuzzyIndex.build(Arrays.asList("", "a")).newSearcher();
+        assertEquals(TargetMatcher.NO_MATCH, search(searcher, ""));
+        assertEquals(1, search(searcher, "a"));
+    }
+
+    @Test
+    public void map_findsWhatTheBuiltIndexFinds() throws IOException {
+        Random random = new Random(7);
+        List<String> targets = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            targets.add(randomString(random, 1 + random.nextInt(20)));
+        }
+        FuzzyIndex built = FuzzyIndex.build(targets);
+        File file = folder.newFile();
+        built.writeTo(file);
+        assertEquals(built.sizeBytes(), file.length());
+
+        FuzzyIndex mapped = FuzzyIndex.map(file);
+        assertEquals(targets.size(), mapped.size());
+        assertEquals(targets, mapped.targets());
+        FuzzyIndex.Searcher builtSearcher = built.newSearcher();
+        FuzzyIndex.Searcher mappedSearcher = mapped.newSearcher();
+        for (int i = 0; i < 2000; i++) {
+            String token = edit(random, targets.get(random.nextInt(targets.size())), random.nextInt(3));
+            assertEquals(token, search(builtSearcher, token), search(mappedSearcher, token));
+            assertEquals(token, find(builtSearcher, token), find(mappedSearcher, token));
+        }
+    }
+
+    @Test
+    public void map_readsIndexEmbeddedInLargerFile() throws IOException {
+        File index = folder.newFile();
+        FuzzyIndex.build(Arrays.asList("national", "industries")).writeTo(index);
+        File bundle = folder.newFile();
+        byte[] bytes = new byte[(int) index.length()];
+        try (RandomAccessFile in = new RandomAccessFile(index, "r");
+             FileOutputStream out = new FileOutputStream(bundle)) {
+            in.readFully(bytes);
+            out.write(new byte[100]);
+            out.write(bytes);
+            out.write(new byte[10]);
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(bundle, "r")) {
+            FuzzyIndex mapped = FuzzyIndex.map(file.getChannel(), 100, bytes.length);
+            assertEquals("industries", mapped.target(1));
+            assertEquals(1, search(mapped.newSearcher(), "lndustries"));
+        }
+    }
+
+    @Test
+    public void map_rejectsOtherFiles() throws IOException {
+        File index = folder.newFile();
+        FuzzyIndex.build(Arrays.asList("national", "industries")).writeTo(index);
+        try (RandomAccessFile file = new RandomAccessFile(index, "rw")) {
+            file.setLength(file.length() - 1);
+        }
+        assertNotMapped(index);
+
+        File other = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(other)) {
+            out.write(new byte[64]);
+        }
+        assertNotMapped(other);
+        assertNotMapped(folder.newFile());
+    }
+
+    @Test
+    public void find_returnsFirstEqualTarget() {
+        StringBuilder longTarget = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            longTarget.append((char) ('a' + i % 7));
+        }
+        List<String> targets = Arrays.asList("industries", "", "industrie", "industries",
+                longTarget.toString(), longTarget.substring(1), "a");
+        FuzzyIndex.Searcher searcher = FuzzyIndex.build(targets).newSearcher();
+
+        assertEquals(0, find(searcher, "industries"));
+        assertEquals(2, find(searcher, "industrie"));
+        assertEquals(4, find(searcher, longTarget.toString()));
+        assertEquals(5, find(searcher, longTarget.substring(1)));
+        assertEquals(6, find(searcher, "a"));
+        assertEquals(TargetMatcher.NO_MATCH, find(searcher, "lndustries"));
+        assertEquals(TargetMatcher.NO_MATCH, find(searcher, "industriesx"));
+        assertEquals(TargetMatcher.NO_MATCH, find(searcher, ""));
+    }
+
+    private static void assertNotMapped(File file) {
+        try {
+            FuzzyIndex.map(file);
+            fail(file + " mapped");
+        } catch (IOException expected) {
+            // Expected.
+        }
+    }
+
+    private static int find(FuzzyIndex.Searcher searcher, String token) {
+        return searcher.find(token.toCharArray(), token.length());
+    }
+
+    private static int search(FuzzyIndex.Searcher searcher, String token) {
+        return searcher.search(token.toCharArray(), token.length(), TargetMatcher.MIN_SIMILARITY);
+    }
+
+    private static double bestSimilarity(List<String> targets, String token, int maxEditDistance) {
+        double best = 0;
+        for (String target : targets) {
+            if (GraphicOverlay.editDistance(target, token) <= maxEditDistance) {
+                best = Math.max(best, similarity(target, token));
+            }
+        }
+        return best;
+    }
+
+    private static double similarity(String target, String token) {
+        return GraphicOverlay.calculateSimilarity(target, token);
+    }
+
+    private static String edit(Random random, String source, int edits) {
+        StringBuilder builder = new StringBuilder(source);
+        for (int i = 0; i < edits; i++) {
+            int position = random.nextInt(builder.length() + 1);
+            char c = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            switch (random.nextInt(3)) {
+                case 0:
+                    builder.insert(position, c);
+                    break;
+                case 1:
+                    if (position < builder.length()) {
+                        builder.deleteCharAt(position);
+                    }
+                    break;
+                default:
+                    if (position < builder.length()) {
+                        builder.setCharAt(position, c);
+                    }
+                    break;
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return builder.toString();
+    }
+}
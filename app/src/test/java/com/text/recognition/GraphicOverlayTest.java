@@ -0,0 +1,88 @@
+package com.text.recognition;
+
+import android.graphics.Canvas;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/** Checks how {@link GraphicOverlay} builds the graphics arrays it swaps in as snapshots. */
+public class GraphicOverlayTest {
+
+    @Test
+    public void distinct_appendsNewGraphicsOnce_inOrder() {
+        GraphicOverlay.Graphic a = new TestGraphic();
+        GraphicOverlay.Graphic b = new TestGraphic();
+        GraphicOverlay.Graphic c = new TestGraphic();
+        GraphicOverlay.Graphic[] base = {a, b};
+
+        GraphicOverlay.Graphic[] result = GraphicOverlay.distinct(base, Arrays.asList(c, a, c, b));
+
+        assertArrayEquals(new GraphicOverlay.Graphic[]{a, b, c}, result);
+        // The snapshot the overlay may be drawing is never modified.
+        assertArrayEquals(new GraphicOverlay.Graphic[]{a, b}, base);
+    }
+
+    @Test
+    public void distinct_tellsGraphicsApartByIdentity() {
+        GraphicOverlay.Graphic a = new EqualGraphic();
+        GraphicOverlay.Graphic b = new EqualGraphic();
+        assertEquals(2, GraphicOverlay.distinct(new GraphicOverlay.Graphic[0],
+                Arrays.asList(a, b, a)).length);
+    }
+
+    @Test
+    public void distinct_handlesLargeBatches() {
+        List<GraphicOverlay.Graphic> added = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            added.add(new TestGraphic());
+        }
+        added.addAll(added);
+        GraphicOverlay.Graphic[] result =
+                GraphicOverlay.distinct(new GraphicOverlay.Graphic[0], added);
+        assertEquals(200, result.length);
+        assertSame(added.get(199), result[199]);
+    }
+
+    @Test
+    public void without_keepsTheOthersInOrder() {
+        GraphicOverlay.Graphic a = new TestGraphic();
+        GraphicOverlay.Graphic b = new TestGraphic();
+        GraphicOverlay.Graphic c = new TestGraphic();
+        GraphicOverlay.Graphic[] base = {a, b, c};
+
+        assertArrayEquals(new GraphicOverlay.Graphic[]{b},
+                GraphicOverlay.without(base, Arrays.asList(c, a, new TestGraphic())));
+        assertArrayEquals(new GraphicOverlay.Graphic[]{a, b, c}, base);
+        // Nothing removed, so no new snapshot either.
+        assertSame(base, GraphicOverlay.without(base, Collections.singletonList(new TestGraphic())));
+    }
+
+    private static class TestGraphic extends GraphicOverlay.Graphic {
+        TestGraphic() {
+            super(null);
+        }
+
+        @Override
+        public void draw(Canvas canvas) {
+        }
+    }
+
+    /** Equal to every other instance, as a graphic with value semantics might be. */
+    private static final class EqualGraphic extends TestGraphic {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof EqualGraphic;
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.text.recognition;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class HighlightBatchTest {
+
+    private static final float EPSILON = 1e-3f;
+
+    @Test
+    public void fill_packsUnexpiredBoxes() {
+        BoxTracker tracker = new BoxTracker(100);
+        tracker.update(new HighlightResult.Builder().add(0, 0, 10, 10, 0).build(), 0);
+        TrackedHighlights highlights = tracker.update(
+                new HighlightResult.Builder().add(50, 50, 60, 60, 1).build(), 80);
+
+        HighlightBatch batch = new HighlightBatch();
+        assertEquals(2, batch.fill(highlights, 90));
+        assertArrayEquals(new float[]{0, 0, 10, 10, 50, 50, 60, 60},
+                Arrays.copyOf(batch.rects(), 8), EPSILON);
+        // The first box has expired by then.
+        assertEquals(1, batch.fill(highlights, 150));
+        assertEquals(1, batch.size());
+        assertEquals(50, batch.rects()[0], EPSILON);
+    }
+
+    @Test
+    public void fill_growsForManyBoxes() {
+        HighlightResult.Builder builder = new HighlightResult.Builder();
+        for (int i = 0; i < 100; i++) {
+            builder.add(i, i, i + 10, i + 10, i);
+        }
+        HighlightBatch batch = new HighlightBatch();
+        assertEquals(100, batch.fill(TrackedHighlights.fixed(builder.build()), 0));
+        assertEquals(99, batch.rects()[99 * 4], EPSILON);
+    }
+
+    @Test
+    public void writeTick_rotatesStrokesAroundTheAnchor() {
+        float[] lines = new float[HighlightBatch.TICK_FLOATS + 2];
+        HighlightBatch.writeTick(100, 50, 20, lines, 2);
+        float cos = (float) Math.cos(Math.toRadians(30));
+        float sin = (float) Math.sin(Math.toRadians(30));
+        assertArrayEquals(new float[]{
+                        0, 0,
+                        100 + 20 * sin, 50 - 20 * cos, 100 - 20 * sin, 50 + 20 * cos,
+                        100 - 20 * cos, 50 - 20 * sin, 100 - 20 * sin, 50 + 20 * cos},
+                lines, EPSILON);
+    }
+}
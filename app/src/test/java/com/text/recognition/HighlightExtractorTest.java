@@ -0,0 +1,154 @@
+package com.text.recognition;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class HighlightExtractorTest {
+
+    private static final float EPSILON = 1e-3f;
+
+    @Test
+    public void codes_areMergedWithTextAndMappedTogether() {
+        HighlightExtractor extractor = new HighlightExtractor(
+                TargetMatcher.compile(Arrays.asList("limited", "PN-4711")));
+        CapturedText text = new CapturedText.Builder()
+                .beginLine("National Limited")
+                .addElement("National", 0, 0, 40, 10)
+                .addElement("Limited", 50, 0, 90, 10)
+                .build();
+
+        extractor.begin();
+        extractor.addText(text);
+        assertTrue(extractor.addCode(" pn-4711\n", 0, 20, 60, 40));
+        assertFalse(extractor.addCode("PN-4712", 0, 50, 60, 70));
+        HighlightResult result = extractor.finish(ViewTransform.scaleTranslate(2, 1, 0));
+
+        assertEquals(2, result.size());
+        assertEquals(0, result.targetId(0));
+        assertEquals(101f, result.left(0), EPSILON);
+        assertEquals(1, result.targetId(1));
+        assertEquals(1f, result.left(1), EPSILON);
+        assertEquals(80f, result.bottom(1), EPSILON);
+    }
+
+    @Test
+    public void codes_onlyMatchExactly() {
+        TargetMatcher matcher = TargetMatcher.compile("PN-4711", "", "pn-4711");
+        assertEquals(0, matcher.matchExactly("pn-4711"));
+        assertEquals(TargetMatcher.NO_MATCH, matcher.matchExactly("PN-4712"));
+        assertEquals(TargetMatcher.NO_MATCH, matcher.matchExactly(""));
+        // The fuzzy matcher would take it.
+        assertEquals(0, matcher.match("PN-4712"));
+    }
+
+    @Test
+    public void extract_isBeginAddTextFinish() {
+        HighlightExtractor extractor = new HighlightExtractor(TargetMatcher.compile("limited"));
+        CapturedText text = new CapturedText.Builder()
+                .beginLine("Limited")
+                .addElement("Limited", 0, 0, 40, 10)
+                .build();
+        extractor.begin();
+        extractor.addCode("limited", 0, 0, 1, 1);
+
+        // extract() starts over.
+        HighlightResult result = extractor.extract(text, ViewTransform.scaleTranslate(1, 0, 0));
+        assertEquals(1, result.size());
+        assertEquals(40f, result.right(0), EPSILON);
+    }
+
+    @Test
+    public void hyphenatedElements_keepLaterElementsInLine() {
+        HighlightExtractor extractor = new HighlightExtractor(
+                TargetMatcher.compile(Arrays.asList("industries", "limited")));
+        // Splitting the line text would give four words for three elements.
+        CapturedText text = new CapturedText.Builder()
+                .beginLine("Well-known Industries Limited")
+                .addElement("Well-known", 0, 0, 40, 10)
+                .addElement("Industries", 50, 0, 90, 10)
+                .addElement("Limited", 100, 0, 140, 10)
+                .build();
+
+        HighlightResult result = extractor.extract(text, ViewTransform.IDENTITY);
+        assertEquals(2, result.size());
+        assertEquals(0, result.targetId(0));
+        assertEquals(50f, result.left(0), EPSILON);
+        assertEquals(1, result.targetId(1));
+        assertEquals(100f, result.left(1), EPSILON);
+    }
+
+    @Test
+    public void accentsAndLookalikes_areFolded() {
+        HighlightExtractor extractor = new HighlightExtractor(TargetMatcher.compile("Cafe", "ROOM"));
+        CapturedText text = new CapturedText.Builder()
+                // "CAF\u00c9" and "R\u041e\u041eM" with Cyrillic Os.
+                .beginLine("CAF\u00c9 R\u041e\u041eM-12")
+                .addElement("CAF\u00c9", 0, 0, 40, 10)
+                .addElement("R\u041e\u041eM-12", 50, 0, 90, 10)
+                .build();
+
+        HighlightResult result = extractor.extract(text, ViewTransform.IDENTITY);
+        assertEquals(2, result.size());
+        assertEquals(0, result.targetId(0));
+        assertEquals(1, result.targetId(1));
+    }
+
+    @Test
+    public void matchingWords_areMappedToTheView() {
+        HighlightExtractor extractor =
+                new HighlightExtractor(TargetMatcher.compile("industries", "limited"));
+        CapturedText text = new CapturedText.Builder()
+                .beginLine("National Industries Limitd")
+                .addElement("National", 0, 0, 40, 10)
+                .addElement("Industries", 50, 0, 90, 10)
+                .addElement("Limitd", 100, 0, 140, 10)
+                .build();
+
+        HighlightResult result = extractor.extract(text, ViewTransform.scaleTranslate(2, 1, 0));
+        assertEquals(2, result.size());
+        assertEquals(0, result.targetId(0));
+        assertEquals(101f, result.left(0), EPSILON);
+        assertEquals(20f, result.bottom(0), EPSILON);
+        assertEquals(1, result.targetId(1));
+        assertEquals(281f, result.right(1), EPSILON);
+    }
+
+    @Test
+    public void matchedPhrases_areOneBox_andTheirWordsAreNotMatchedAgain() {
+        HighlightExtractor extractor = new HighlightExtractor(
+                TargetMatcher.compile("national", "limited"),
+                PhraseMatcher.compile("industries limited"));
+        CapturedText text = new CapturedText.Builder()
+                .beginLine("National Industries Limited")
+                .addElement("National", 0, 0, 40, 10)
+                .addElement("Industries", 50, 0, 90, 10)
+                .addElement("Limited", 100, 0, 140, 12)
+                .build();
+
+        HighlightResult result = extractor.extract(text, ViewTransform.IDENTITY);
+        assertEquals(2, result.size());
+        assertEquals(extractor.phraseTargetId(0), result.targetId(0));
+        assertEquals(50f, result.left(0), EPSILON);
+        assertEquals(140f, result.right(0), EPSILON);
+        assertEquals(12f, result.bottom(0), EPSILON);
+        assertEquals(0, result.targetId(1));
+    }
+
+    @Test
+    public void elementsWithoutBoxes_areSkipped() {
+        HighlightExtractor extractor = new HighlightExtractor(TargetMatcher.compile("limited"));
+        CapturedText text = new CapturedText.Builder()
+                .beginLine("Limited Limited")
+                .addElement("Limited")
+                .addElement("Limited", 0, 0, 40, 10)
+                .beginLine("")
+                .build();
+
+        HighlightResult result = extractor.extract(text, ViewTransform.IDENTITY);
+        assertEquals(1, result.size());
+        assertEquals(40f, result.right(0), EPSILON);
+    }
+}
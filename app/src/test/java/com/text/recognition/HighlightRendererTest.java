@@ -0,0 +1,133 @@
+package com.text.recognition;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+public class HighlightRendererTest {
+
+    private static final float EPSILON = 1e-3f;
+
+    @Test
+    public void fixedHighlights_areDrawnOnceWithoutRedraws() {
+        HighlightResult result = new HighlightResult.Builder()
+                .add(0, 0, 10, 10, 0)
+                .add(20, 20, 40, 30, 1)
+                .build();
+        RecordingTarget target = new RecordingTarget();
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.onStartup(0);
+
+        int drawn = new HighlightRenderer(2).draw(TrackedHighlights.fixed(result), 0, target,
+                System.nanoTime(), HighlightRenderer.NO_FRAME, metrics);
+
+        assertEquals(2, drawn);
+        assertEquals(2, target.boxes);
+        assertEquals(40, target.lastRight, EPSILON);
+        assertEquals(0, target.animationInvalidations);
+        assertEquals(0, target.delayedInvalidations);
+        PipelineMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.getStage(PipelineMetrics.Stage.DRAW).getCount());
+        assertEquals(0, snapshot.getStage(PipelineMetrics.Stage.END_TO_END).getCount());
+        assertTrue(snapshot.getMilestoneNanos(PipelineMetrics.Milestone.FIRST_HIGHLIGHT) > 0);
+    }
+
+    @Test
+    public void movingHighlights_redrawOnAnimation_andNewFramesRecordLatency() {
+        BoxTracker tracker = new BoxTracker(1_000);
+        tracker.update(new HighlightResult.Builder().add(0, 0, 10, 10, 0).build(), 0);
+        TrackedHighlights highlights = tracker.update(
+                new HighlightResult.Builder().add(4, 0, 14, 10, 0).build(), 100);
+        RecordingTarget target = new RecordingTarget();
+        PipelineMetrics metrics = new PipelineMetrics();
+        HighlightRenderer renderer = new HighlightRenderer(2);
+
+        long drawStart = System.nanoTime();
+        renderer.draw(highlights, 150, target, drawStart, drawStart - 1_000_000, metrics);
+        assertEquals(1, target.boxes);
+        assertEquals(1, target.animationInvalidations);
+        assertEquals(1, metrics.snapshot().getStage(PipelineMetrics.Stage.END_TO_END).getCount());
+
+        // Held still, the box is only redrawn once it expires.
+        target = new RecordingTarget();
+        renderer.draw(tracker.hold(200), 200, target, System.nanoTime(), HighlightRenderer.NO_FRAME,
+                null);
+        assertEquals(1, target.boxes);
+        assertEquals(1, target.delayedInvalidations);
+    }
+
+    @Test
+    public void steadyStateDraws_allocateNothing() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        Assume.assumeTrue(allocations.isThreadAllocatedMemorySupported()
+                && allocations.isThreadAllocatedMemoryEnabled());
+
+        BoxTracker tracker = new BoxTracker(60_000);
+        HighlightResult.Builder builder = new HighlightResult.Builder();
+        for (int i = 0; i < 20; i++) {
+            builder.add(i * 20, 100, i * 20 + 15, 120, i);
+        }
+        tracker.update(builder.build(), 0);
+        builder.reset();
+        for (int i = 0; i < 20; i++) {
+            builder.add(i * 20 + 5, 100, i * 20 + 20, 120, i);
+        }
+        TrackedHighlights highlights = tracker.update(builder.build(), 100);
+        HighlightRenderer renderer = new HighlightRenderer(2);
+        RecordingTarget target = new RecordingTarget();
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.onStartup(0);
+
+        // The first rounds load classes and let the JIT settle, which allocates on its own.
+        for (int round = 0; round < 5; round++) {
+            draw(renderer, highlights, target, metrics);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        long drawn = draw(renderer, highlights, target, metrics);
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(20 * 10_000, drawn);
+        assertEquals("bytes allocated by 10000 draws", 0, allocated);
+    }
+
+    private static long draw(HighlightRenderer renderer, TrackedHighlights highlights,
+                             RecordingTarget target, PipelineMetrics metrics) {
+        long drawn = 0;
+        for (int frame = 0; frame < 10_000; frame++) {
+            long start = System.nanoTime();
+            drawn += renderer.draw(highlights, 100 + frame % 400, target, start,
+                    frame % 10 == 0 ? start : HighlightRenderer.NO_FRAME, metrics);
+        }
+        return drawn;
+    }
+
+    /** Counts the calls a canvas would get. */
+    private static final class RecordingTarget implements HighlightRenderer.Target {
+        int boxes;
+        float lastRight;
+        int animationInvalidations;
+        int delayedInvalidations;
+
+        @Override
+        public void drawBox(float left, float top, float right, float bottom) {
+            boxes++;
+            lastRight = right;
+        }
+
+        @Override
+        public void invalidateOnAnimation(int left, int top, int right, int bottom) {
+            animationInvalidations++;
+        }
+
+        @Override
+        public void invalidateDelayed(long delayMillis) {
+            delayedInvalidations++;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.text.recognition;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsAreContiguous() {
+        for (int bucket = 0; bucket < LatencyHistogram.BUCKET_COUNT - 1; bucket++) {
+            assertEquals(LatencyHistogram.upperBound(bucket), LatencyHistogram.lowerBound(bucket + 1));
+            assertEquals(bucket, LatencyHistogram.bucketOf(LatencyHistogram.lowerBound(bucket)));
+            assertEquals(bucket, LatencyHistogram.bucketOf(LatencyHistogram.upperBound(bucket) - 1));
+        }
+    }
+
+    @Test
+    public void relativeErrorIsBounded() {
+        for (long micros = 8; micros < 1L << 34; micros = micros * 3 / 2 + 1) {
+            int bucket = LatencyHistogram.bucketOf(micros);
+            long width = LatencyHistogram.upperBound(bucket) - LatencyHistogram.lowerBound(bucket);
+            assertTrue("value " + micros, width <= micros / 8.0 + 1e-9);
+        }
+    }
+
+    @Test
+    public void hugeValues_landInLastBucket() {
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000_000L);
+        }
+        histogram.record(-5);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(100, snapshot.getCount());
+        assertEquals(100_000, snapshot.getMaxMicros());
+        assertEquals(50_500, snapshot.getMeanMicros(), 1e-6);
+        assertWithinBucket(50_000, snapshot.percentileMicros(0.5));
+        assertWithinBucket(99_000, snapshot.percentileMicros(0.99));
+        assertEquals(100_000, snapshot.percentileMicros(1.0));
+    }
+
+    @Test
+    public void reset_clearsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(123_456);
+        histogram.reset();
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.percentileMicros(0.5));
+        assertEquals(0, snapshot.getMeanMicros(), 0);
+    }
+
+    @Test
+    public void concurrentRecording_losesNothing() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i * 1000L);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40_000, histogram.snapshot().getCount());
+        assertEquals(9_999, histogram.snapshot().getMaxMicros());
+    }
+
+    private static void assertWithinBucket(long expected, long actual) {
+        assertEquals(LatencyHistogram.bucketOf(expected), LatencyHistogram.bucketOf(actual));
+    }
+}
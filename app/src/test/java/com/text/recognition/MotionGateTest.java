@@ -0,0 +1,141 @@
+package com.text.recognition;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MotionGateTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    /** Padded rows, as camera planes often have. */
+    private static final int ROW_STRIDE = 704;
+
+    @Test
+    public void firstFrame_isProcessed() {
+        assertTrue(new MotionGate().shouldProcess(scene(1, 0, 0), ROW_STRIDE, 1, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void staticScene_isSkipped() {
+        MotionGate gate = new MotionGate();
+        assertTrue(gate.shouldProcess(scene(1, 0, 0), ROW_STRIDE, 1, WIDTH, HEIGHT));
+        for (int i = 0; i < 10; i++) {
+            assertFalse(gate.shouldProcess(withNoise(scene(1, 0, 0), i), ROW_STRIDE, 1, WIDTH, HEIGHT));
+        }
+        assertEquals(10, gate.getTotalSkippedFrames());
+    }
+
+    @Test
+    public void exposureChange_isSkipped() {
+        MotionGate gate = new MotionGate();
+        assertTrue(gate.shouldProcess(scene(1, 0, 0), ROW_STRIDE, 1, WIDTH, HEIGHT));
+        assertFalse(gate.shouldProcess(scene(1, 0, 20), ROW_STRIDE, 1, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void movedScene_isProcessed() {
+        MotionGate gate = new MotionGate();
+        assertTrue(gate.shouldProcess(scene(1, 0, 0), ROW_STRIDE, 1, WIDTH, HEIGHT));
+        assertTrue(gate.shouldProcess(scene(1, 60, 0), ROW_STRIDE, 1, WIDTH, HEIGHT));
+        // The moved frame is the new reference.
+        assertFalse(gate.shouldProcess(scene(1, 60, 0), ROW_STRIDE, 1, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void differentScene_isProcessed() {
+        MotionGate gate = new MotionGate();
+        assertTrue(gate.shouldProcess(scene(1, 0, 0), ROW_STRIDE, 1, WIDTH, HEIGHT));
+        assertTrue(gate.shouldProcess(scene(2, 0, 0), ROW_STRIDE, 1, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void recognitionIsForcedAfterMaxSkippedFrames() {
+        MotionGate gate = new MotionGate(MotionGate.DEFAULT_THRESHOLD, 3);
+        ByteBuffer frame = scene(1, 0, 0);
+        assertTrue(gate.shouldProcess(frame, ROW_STRIDE, 1, WIDTH, HEIGHT));
+        assertFalse(gate.shouldProcess(frame, ROW_STRIDE, 1, WIDTH, HEIGHT));
+        assertFalse(gate.shouldProcess(frame, ROW_STRIDE, 1, WIDTH, HEIGHT));
+        assertFalse(gate.shouldProcess(frame, ROW_STRIDE, 1, WIDTH, HEIGHT));
+        assertTrue(gate.shouldProcess(frame, ROW_STRIDE, 1, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void invalidate_forcesNextFrame() {
+        MotionGate gate = new MotionGate();
+        ByteBuffer frame = scene(1, 0, 0);
+        assertTrue(gate.shouldProcess(frame, ROW_STRIDE, 1, WIDTH, HEIGHT));
+        gate.invalidate();
+        assertTrue(gate.shouldProcess(frame, ROW_STRIDE, 1, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void openGate_letsFramesThrough_andStillTellsNewScenes() {
+        MotionGate gate = new MotionGate();
+        ByteBuffer frame = scene(1, 0, 0);
+        assertTrue(gate.shouldProcess(frame, ROW_STRIDE, 1, WIDTH, HEIGHT));
+        assertTrue(gate.lastFrameChanged());
+        gate.keepOpen(true);
+        assertTrue(gate.shouldProcess(frame, ROW_STRIDE, 1, WIDTH, HEIGHT));
+        assertFalse(gate.lastFrameChanged());
+        assertTrue(gate.shouldProcess(scene(2, 0, 0), ROW_STRIDE, 1, WIDTH, HEIGHT));
+        assertTrue(gate.lastFrameChanged());
+
+        gate.keepOpen(false);
+        assertFalse(gate.shouldProcess(scene(2, 0, 0), ROW_STRIDE, 1, WIDTH, HEIGHT));
+        assertEquals(1, gate.getTotalSkippedFrames());
+    }
+
+    @Test
+    public void tinyFrame_isAlwaysProcessed() {
+        MotionGate gate = new MotionGate();
+        ByteBuffer frame = ByteBuffer.allocate(64);
+        assertTrue(gate.shouldProcess(frame, 8, 1, 8, 8));
+        assertTrue(gate.shouldProcess(frame, 8, 1, 8, 8));
+    }
+
+    /**
+     * Renders a frame of random dark glyph-like blocks on a light background, shifted right by
+     * {@code shift} pixels and brightened by {@code exposure} levels.
+     */
+    private static ByteBuffer scene(long seed, int shift, int exposure) {
+        Random random = new Random(seed);
+        byte[] pixels = new byte[ROW_STRIDE * HEIGHT];
+        int[] background = new int[WIDTH * HEIGHT];
+        for (int i = 0; i < background.length; i++) {
+            background[i] = 200;
+        }
+        for (int block = 0; block < 80; block++) {
+            int x0 = random.nextInt(WIDTH - 60);
+            int y0 = random.nextInt(HEIGHT - 30);
+            int w = 20 + random.nextInt(40);
+            int h = 10 + random.nextInt(20);
+            for (int y = y0; y < y0 + h; y++) {
+                for (int x = x0; x < x0 + w; x++) {
+                    background[y * WIDTH + x] = 40;
+                }
+            }
+        }
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int source = Math.max(0, x - shift);
+                int value = Math.min(255, background[y * WIDTH + source] + exposure);
+                pixels[y * ROW_STRIDE + x] = (byte) value;
+            }
+        }
+        return ByteBuffer.wrap(pixels);
+    }
+
+    private static ByteBuffer withNoise(ByteBuffer frame, long seed) {
+        Random random = new Random(seed);
+        byte[] pixels = frame.array();
+        for (int i = 0; i < pixels.length; i++) {
+            int value = (pixels[i] & 0xff) + random.nextInt(7) - 3;
+            pixels[i] = (byte) Math.max(0, Math.min(255, value));
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,86 @@
+package com.text.recognition;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks {@link MyersEditDistance} against the dynamic-programming implementations in {@link
+ * GraphicOverlay}.
+ */
+public class MyersEditDistanceTest {
+
+    private static final String ALPHABET = "abcdeABCDE01-\u00e9\u00df";
+
+    @Test
+    public void shortPatterns_matchEditDistance() {
+        assertMatchesEditDistance(new Random(1), 20000, 1, 64);
+    }
+
+    @Test
+    public void longPatterns_matchEditDistance() {
+        assertMatchesEditDistance(new Random(2), 2000, 65, 300);
+    }
+
+    @Test
+    public void similarity_matchesCalculateSimilarity() {
+        Random random = new Random(3);
+        for (int i = 0; i < 5000; i++) {
+            String pattern = randomString(random, random.nextInt(100));
+            String text = randomString(random, random.nextInt(100));
+            MyersEditDistance engine = new MyersEditDistance(pattern.toLowerCase());
+            int maxLength = Math.max(pattern.length(), text.length());
+            double similarity = maxLength == 0
+                    ? 1.0
+                    : 1.0 - (double) engine.distance(text.toLowerCase()) / maxLength;
+            assertEquals(pattern + " / " + text,
+                    GraphicOverlay.calculateSimilarity(pattern, text), similarity, 0.0);
+        }
+    }
+
+    @Test
+    public void boundedDistance_isExactWithinBoundAndCappedBeyondIt() {
+        Random random = new Random(4);
+        for (int i = 0; i < 20000; i++) {
+            String pattern = randomString(random, random.nextInt(140)).toLowerCase();
+            char[] text = randomString(random, random.nextInt(140)).toLowerCase().toCharArray();
+            int expected = GraphicOverlay.editDistance(pattern, new String(text));
+            int maxDistance = random.nextInt(pattern.length() + 2);
+            int actual = new MyersEditDistance(pattern).distance(text, text.length, maxDistance);
+            assertEquals(Math.min(expected, maxDistance + 1), actual);
+        }
+    }
+
+    @Test
+    public void emptyStrings() {
+        assertEquals(0, new MyersEditDistance("").distance(""));
+        assertEquals(3, new MyersEditDistance("").distance("abc"));
+        assertEquals(3, new MyersEditDistance("abc").distance(""));
+    }
+
+    @Test
+    public void distance_ignoresCharsPastLength() {
+        char[] text = "limitedxyz".toCharArray();
+        assertEquals(0, new MyersEditDistance("limited").distance(text, 7));
+    }
+
+    private static void assertMatchesEditDistance(Random random, int iterations, int minLength, int maxLength) {
+        for (int i = 0; i < iterations; i++) {
+            String pattern = randomString(random, minLength + random.nextInt(maxLength - minLength + 1)).toLowerCase();
+            String text = randomString(random, random.nextInt(maxLength + 10)).toLowerCase();
+            assertEquals(pattern + " / " + text,
+                    GraphicOverlay.editDistance(pattern, text),
+                    new MyersEditDistance(pattern).distance(text));
+        }
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,101 @@
+package com.text.recognition;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PhraseMatcherTest {
+
+    private static final String PHRASE = "NATIONAL INDUSTRIES LIMITED";
+
+    @Test
+    public void findMatches_matchesWholePhrase() {
+        PhraseMatcher matcher = PhraseMatcher.compile(PHRASE);
+
+        assertEquals(1, find(matcher, "Welcome", "to", "National", "Industries", "Limited", "today"));
+        assertMatch(matcher, 0, 0, 2, 5);
+    }
+
+    @Test
+    public void findMatches_toleratesRecognitionErrors() {
+        PhraseMatcher matcher = PhraseMatcher.compile(PHRASE);
+
+        assertEquals(1, find(matcher, "NATlONAL", "INDUSTRlES", "LIMITED."));
+        assertMatch(matcher, 0, 0, 0, 3);
+    }
+
+    @Test
+    public void findMatches_matchesMergedAndSplitWords() {
+        PhraseMatcher matcher = PhraseMatcher.compile(PHRASE);
+
+        assertEquals(1, find(matcher, "NATIONALINDUSTRIES", "LIMITED"));
+        assertMatch(matcher, 0, 0, 0, 2);
+
+        assertEquals(1, find(matcher, "NATIONAL", "INDUS", "TRIES", "LIMITED"));
+        assertMatch(matcher, 0, 0, 0, 4);
+    }
+
+    @Test
+    public void findMatches_rejectsPartialPhrase() {
+        PhraseMatcher matcher = PhraseMatcher.compile(PHRASE);
+
+        assertEquals(0, find(matcher, "National", "Industries"));
+        assertEquals(0, find(matcher, "Industries", "Limited"));
+        assertEquals(0, find(matcher, "National"));
+    }
+
+    @Test
+    public void findMatches_findsSeveralPhrasesWithoutOverlap() {
+        PhraseMatcher matcher = PhraseMatcher.compile(PHRASE, "best before", "ab-12345-c");
+
+        assertEquals(3, find(matcher, "AB", "12345-C", "national", "industries", "limited",
+                "best", "before", "national"));
+        assertMatch(matcher, 0, 2, 0, 2);
+        assertMatch(matcher, 1, 0, 2, 5);
+        assertMatch(matcher, 2, 1, 5, 7);
+    }
+
+    @Test
+    public void findMatches_prefersBetterWindowStartingNextWord() {
+        PhraseMatcher matcher = PhraseMatcher.compile("red green blue");
+
+        // "red red green" is within the cutoff of the phrase too, but the next window is exact.
+        assertEquals(1, find(matcher, "red", "red", "green", "blue"));
+        assertMatch(matcher, 0, 0, 1, 4);
+    }
+
+    @Test
+    public void findMatches_keepsPositionsOfEmptyWords() {
+        PhraseMatcher matcher = PhraseMatcher.compile("best before");
+
+        assertEquals(1, find(matcher, "-", "", "best", "before"));
+        assertMatch(matcher, 0, 0, 2, 4);
+    }
+
+    @Test
+    public void beginLine_discardsPreviousLine() {
+        PhraseMatcher matcher = PhraseMatcher.compile(PHRASE);
+        assertEquals(1, find(matcher, "national", "industries", "limited"));
+        assertEquals(0, find(matcher, "limited"));
+    }
+
+    @Test
+    public void normalize_collapsesSeparators() {
+        assertEquals("ab 12345 c", PhraseMatcher.normalize("  AB--12345 \n C- "));
+        assertEquals("", PhraseMatcher.normalize(" - "));
+    }
+
+    private static int find(PhraseMatcher matcher, String... words) {
+        matcher.beginLine();
+        for (String word : words) {
+            matcher.addWord(word);
+        }
+        return matcher.findMatches();
+    }
+
+    private static void assertMatch(PhraseMatcher matcher, int index, int phrase, int start, int end) {
+        assertEquals(phrase, matcher.matchPhrase(index));
+        assertEquals(start, matcher.matchStart(index));
+        assertEquals(end, matcher.matchEnd(index));
+    }
+}
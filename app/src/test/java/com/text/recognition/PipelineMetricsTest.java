@@ -0,0 +1,122 @@
+package com.text.recognition;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class PipelineMetricsTest {
+
+    private static final long FRAME_NANOS = 33_333_333L;
+
+    @Test
+    public void gapsInFrameTimestamps_countAsDropped() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        long timestamp = 1_000_000_000L;
+        metrics.onFrameReceived(timestamp, 0);
+        metrics.onFrameReceived(timestamp += FRAME_NANOS, 0);
+        metrics.onFrameReceived(timestamp += 4 * FRAME_NANOS, 0);
+        metrics.onFrameReceived(timestamp += FRAME_NANOS + 1_000_000, 0);
+        metrics.onFrameReceived(timestamp + 2 * FRAME_NANOS, 0);
+
+        PipelineMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(5, snapshot.getFramesReceived());
+        assertEquals(4, snapshot.getFramesDropped());
+    }
+
+    @Test
+    public void frameIntervalFollowsLowerFrameRate() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        long timestamp = 0;
+        metrics.onFrameReceived(timestamp, 0);
+        for (int i = 0; i < 64; i++) {
+            metrics.onFrameReceived(timestamp += FRAME_NANOS, 0);
+        }
+        // The camera halves its frame rate: apparent drops until the estimate catches up, then none.
+        for (int i = 0; i < 100; i++) {
+            metrics.onFrameReceived(timestamp += 2 * FRAME_NANOS, 0);
+        }
+        long dropped = metrics.snapshot().getFramesDropped();
+        for (int i = 0; i < 100; i++) {
+            metrics.onFrameReceived(timestamp += 2 * FRAME_NANOS, 0);
+        }
+        assertTrue(dropped <= 64);
+        assertEquals(dropped, metrics.snapshot().getFramesDropped());
+    }
+
+    @Test
+    public void frameAge_picksTheTimestampsClock() {
+        // Realtime clock, 5 s of deep sleep ahead of the monotonic one.
+        assertEquals(2_000, PipelineMetrics.frameAge(10_000_000, 10_002_000, 5_002_000));
+        // Monotonic clock.
+        assertEquals(3_000, PipelineMetrics.frameAge(5_000_000, 10_003_000, 5_003_000));
+        // Same clock value on both, e.g. no sleep since boot.
+        assertEquals(1_000, PipelineMetrics.frameAge(5_000_000, 5_001_000, 5_001_000));
+        assertEquals(-1, PipelineMetrics.frameAge(5_000_000, 4_000_000, 4_000_000));
+    }
+
+    @Test
+    public void countersAndStages_showUpInSnapshot() throws Exception {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.onFrameReceived(0, 2_000_000);
+        metrics.onFrameThrottled();
+        metrics.onFrameUnchanged();
+        metrics.onFrameRecognized();
+        metrics.onRecognitionFailed();
+        metrics.onResultStale();
+        metrics.onResultLate();
+        metrics.onResultLate();
+        metrics.record(PipelineMetrics.Stage.RECOGNIZE, 80_000_000);
+
+        PipelineMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.getFramesThrottled());
+        assertEquals(1, snapshot.getFramesUnchanged());
+        assertEquals(1, snapshot.getFramesRecognized());
+        assertEquals(1, snapshot.getRecognitionFailures());
+        assertEquals(1, snapshot.getResultsStale());
+        assertEquals(2, snapshot.getResultsLate());
+        assertEquals(2_000, snapshot.getStage(PipelineMetrics.Stage.QUEUE).getMaxMicros());
+        assertEquals(80_000, snapshot.getStage(PipelineMetrics.Stage.RECOGNIZE).getMaxMicros());
+        assertEquals(0, snapshot.getStage(PipelineMetrics.Stage.DRAW).getCount());
+
+        StringWriter writer = new StringWriter();
+        snapshot.writeTo(writer);
+        String dump = writer.toString();
+        assertTrue(dump, dump.contains("frames_received\t1\n"));
+        assertTrue(dump, dump.contains("results_late\t2\n"));
+        assertTrue(dump, dump.contains("recognize\t1\t80000.0\t"));
+
+        metrics.reset();
+        assertEquals(0, metrics.snapshot().getFramesReceived());
+        assertEquals(0, metrics.snapshot().getStage(PipelineMetrics.Stage.RECOGNIZE).getCount());
+    }
+
+    @Test
+    public void milestones_keepTheFirstTimeSinceStartup() throws Exception {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.onMilestone(PipelineMetrics.Milestone.CAMERA_BOUND, 5_000_000);
+        metrics.onStartup(10_000_000);
+        metrics.onMilestone(PipelineMetrics.Milestone.FIRST_FRAME, 250_000_000);
+        metrics.onMilestone(PipelineMetrics.Milestone.FIRST_FRAME, 290_000_000);
+        metrics.onMilestone(PipelineMetrics.Milestone.FIRST_HIGHLIGHT, 400_000_000);
+        metrics.reset();
+
+        PipelineMetrics.Snapshot snapshot = metrics.snapshot();
+        // Reached before startup is known, so not at all.
+        assertEquals(-1, snapshot.getMilestoneNanos(PipelineMetrics.Milestone.CAMERA_BOUND));
+        assertEquals(240_000_000,
+                snapshot.getMilestoneNanos(PipelineMetrics.Milestone.FIRST_FRAME));
+        assertEquals(390_000_000,
+                snapshot.getMilestoneNanos(PipelineMetrics.Milestone.FIRST_HIGHLIGHT));
+
+        StringWriter writer = new StringWriter();
+        snapshot.writeTo(writer);
+        String dump = writer.toString();
+        assertTrue(dump, dump.contains("camera_bound_us\t-1\n"));
+        assertTrue(dump, dump.contains("first_frame_us\t240000\n"));
+
+        metrics.onStartup(500_000_000);
+        assertEquals(-1, metrics.snapshot().getMilestoneNanos(PipelineMetrics.Milestone.FIRST_FRAME));
+    }
+}
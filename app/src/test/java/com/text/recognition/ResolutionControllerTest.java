@@ -0,0 +1,100 @@
+package com.text.recognition;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ResolutionControllerTest {
+
+    private static final int[] TIERS = {480, 960, 1440};
+    private static final float EPSILON = 1e-3f;
+
+    @Test
+    public void smallText_movesUpOneTierPerWindow() {
+        ResolutionController controller = new ResolutionController(TIERS, 0, 20, 48, 3);
+        assertEquals(-1, controller.onRecognized(0, text(12)));
+        assertEquals(-1, controller.onRecognized(0, text(12)));
+        assertEquals(1, controller.onRecognized(0, text(12)));
+        assertEquals(1, controller.getTier());
+
+        // Frames of the old tier still in flight do not count.
+        for (int i = 0; i < 5; i++) {
+            assertEquals(-1, controller.onRecognized(0, text(12)));
+        }
+        assertEquals(-1, controller.onRecognized(1, text(14)));
+        assertEquals(-1, controller.onRecognized(1, text(14)));
+        assertEquals(2, controller.onRecognized(1, text(14)));
+        // There is no higher tier.
+        for (int i = 0; i < 3; i++) {
+            assertEquals(-1, controller.onRecognized(2, text(10)));
+        }
+    }
+
+    @Test
+    public void largeText_movesDownOnlyIfItStaysReadable() {
+        ResolutionController controller = new ResolutionController(TIERS, 2, 20, 48, 1);
+        // 50 px at 1440 would be 33 px at 960.
+        assertEquals(1, controller.onRecognized(2, text(50)));
+        // 50 px at 960 would be 25 px at 480.
+        assertEquals(0, controller.onRecognized(1, text(50)));
+
+        controller = new ResolutionController(TIERS, 1, 20, 30, 1);
+        // 35 px at 960 would be 17.5 px at 480, too low.
+        assertEquals(-1, controller.onRecognized(1, text(35)));
+    }
+
+    @Test
+    public void textWithinBand_staysPut() {
+        ResolutionController controller = new ResolutionController(TIERS, 1, 20, 48, 1);
+        assertEquals(-1, controller.onRecognized(1, text(20)));
+        assertEquals(-1, controller.onRecognized(1, text(48)));
+        assertEquals(1, controller.getTier());
+    }
+
+    @Test
+    public void decisionUsesMedianOfWindow() {
+        ResolutionController controller = new ResolutionController(TIERS, 1, 20, 48, 3);
+        assertEquals(-1, controller.onRecognized(1, text(5)));
+        assertEquals(-1, controller.onRecognized(1, text(30)));
+        // Median of 5, 30, 100 is 30: no change despite the outliers.
+        assertEquals(-1, controller.onRecognized(1, text(100)));
+    }
+
+    @Test
+    public void framesWithoutBoxes_areIgnored() {
+        ResolutionController controller = new ResolutionController(TIERS, 0, 20, 48, 1);
+        CapturedText noBoxes = new CapturedText.Builder().beginLine("label").addElement("label").build();
+        assertEquals(-1, controller.onRecognized(0, noBoxes));
+        assertEquals(-1, controller.onRecognized(0, new CapturedText.Builder().build()));
+        assertEquals(0, controller.getTier());
+    }
+
+    @Test
+    public void medianElementHeight_ofAllLines() {
+        ResolutionController controller = new ResolutionController(TIERS, 0);
+        CapturedText text = new CapturedText.Builder()
+                .beginLine("a b")
+                .addElement("a", 0, 0, 10, 10)
+                .addElement("b", 0, 0, 10, 30)
+                .beginLine("c d")
+                .addElement("c", 0, 100, 10, 120)
+                .addElement("d")
+                .build();
+        assertEquals(20f, controller.medianElementHeight(text), EPSILON);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tiersMustBeAscending() {
+        new ResolutionController(new int[]{960, 480}, 0);
+    }
+
+    /** One line of three words of the given height. */
+    private static CapturedText text(float height) {
+        return new CapturedText.Builder()
+                .beginLine("part no 42")
+                .addElement("part", 0, 100, 80, 100 + height)
+                .addElement("no", 90, 100, 120, 100 + height)
+                .addElement("42", 130, 100, 170, 100 + height)
+                .build();
+    }
+}
@@ -0,0 +1,56 @@
+package com.text.recognition;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ResultSequencerTest {
+
+    private static final long DEADLINE = 500_000_000L;
+
+    @Test
+    public void resultsInFrameOrder_areAllShown() {
+        ResultSequencer sequencer = new ResultSequencer(DEADLINE);
+        long first = sequencer.begin();
+        long second = sequencer.begin();
+        assertEquals(2, sequencer.getInFlight());
+
+        assertEquals(ResultSequencer.Verdict.SHOW, sequencer.complete(first, 0, 100));
+        assertEquals(ResultSequencer.Verdict.SHOW, sequencer.complete(second, 50, 150));
+        assertEquals(0, sequencer.getInFlight());
+    }
+
+    @Test
+    public void resultOvertakenByANewerOne_isStale() {
+        ResultSequencer sequencer = new ResultSequencer(DEADLINE);
+        long first = sequencer.begin();
+        long second = sequencer.begin();
+        long third = sequencer.begin();
+
+        assertEquals(ResultSequencer.Verdict.SHOW, sequencer.complete(second, 50, 150));
+        assertEquals(ResultSequencer.Verdict.STALE, sequencer.complete(first, 0, 160));
+        assertEquals(ResultSequencer.Verdict.SHOW, sequencer.complete(third, 100, 170));
+    }
+
+    @Test
+    public void resultPastTheDeadline_isLateAndDoesNotBlockOlderOnes() {
+        ResultSequencer sequencer = new ResultSequencer(DEADLINE);
+        long first = sequencer.begin();
+        long second = sequencer.begin();
+
+        assertEquals(ResultSequencer.Verdict.LATE, sequencer.complete(second, 0, DEADLINE + 1));
+        // Nothing newer has been shown, so the first frame's result is still in order.
+        assertEquals(ResultSequencer.Verdict.SHOW, sequencer.complete(first, 10, DEADLINE));
+    }
+
+    @Test
+    public void failedFrames_leaveTheOrderAlone() {
+        ResultSequencer sequencer = new ResultSequencer(DEADLINE);
+        long first = sequencer.begin();
+        long second = sequencer.begin();
+
+        sequencer.fail(second);
+        assertEquals(1, sequencer.getInFlight());
+        assertEquals(ResultSequencer.Verdict.SHOW, sequencer.complete(first, 0, 100));
+    }
+}
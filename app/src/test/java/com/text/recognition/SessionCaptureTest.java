@@ -0,0 +1,159 @@
+package com.text.recognition;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class SessionCaptureTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip() throws IOException {
+        File file = folder.newFile();
+        byte[] nv21 = new byte[4 * 2 + 4];
+        for (int i = 0; i < nv21.length; i++) {
+            nv21[i] = (byte) i;
+        }
+        ViewTransform transform = ViewTransform.rotation(90, 4, 2).then(ViewTransform.scaleTranslate(2, 1, 0));
+        try (SessionRecorder recorder = new SessionRecorder(file)) {
+            recorder.recordTargets(Arrays.asList("alpha", "b\u00e9ta"), Collections.singletonList("alpha beta"));
+            recorder.recordFrame(1000, 90, 4, 2, nv21, true);
+            recorder.recordFrame(2000, 90, 4, 2, nv21, false);
+            recorder.recordText(2000, transform, text());
+        }
+
+        try (SessionCapture capture = SessionCapture.open(file)) {
+            assertTrue(capture.next());
+            assertEquals(SessionRecorder.TYPE_TARGETS, capture.type());
+            assertEquals(Arrays.asList("alpha", "b\u00e9ta"), capture.targets());
+            assertEquals(Collections.singletonList("alpha beta"), capture.phrases());
+
+            assertTrue(capture.next());
+            assertEquals(SessionRecorder.TYPE_FRAME, capture.type());
+            assertEquals(1000, capture.timestampNanos());
+            assertEquals(90, capture.rotationDegrees());
+            assertEquals(4, capture.width());
+            assertEquals(2, capture.height());
+            assertArrayEquals(Arrays.copyOf(nv21, 8), bytes(capture.luma()));
+            assertArrayEquals(Arrays.copyOfRange(nv21, 8, 12), bytes(capture.chroma()));
+
+            assertTrue(capture.next());
+            assertEquals(2000, capture.timestampNanos());
+            assertNull(capture.chroma());
+
+            assertTrue(capture.next());
+            assertEquals(SessionRecorder.TYPE_TEXT, capture.type());
+            assertArrayEquals(transform.getValues(), capture.imageToView().getValues(), 0f);
+            CapturedText text = capture.text();
+            assertEquals(2, text.lineCount());
+            assertEquals("Alpha beta", text.lineText(0));
+            assertEquals("beta", text.elementText(0, 1));
+            float[] box = new float[4];
+            assertTrue(text.elementBox(0, 1, box));
+            assertArrayEquals(new float[]{60, 10, 100, 30}, box, 0f);
+            assertFalse(text.elementBox(1, 0, box));
+
+            assertFalse(capture.next());
+            assertFalse(capture.next());
+        }
+    }
+
+    @Test
+    public void recordsSpanSeveralRegions() throws IOException {
+        File file = folder.newFile();
+        byte[] nv21 = new byte[64 * 48 * 3 / 2];
+        try (SessionRecorder recorder = new SessionRecorder(file, 4096)) {
+            for (int i = 0; i < 10; i++) {
+                nv21[0] = (byte) i;
+                recorder.recordFrame(i, 0, 64, 48, nv21, i % 2 == 0);
+                recorder.recordText(i, ViewTransform.IDENTITY, text());
+            }
+            assertTrue(recorder.size() > 4096);
+        }
+
+        int frames = 0;
+        int texts = 0;
+        try (SessionCapture capture = SessionCapture.open(file)) {
+            while (capture.next()) {
+                if (capture.type() == SessionRecorder.TYPE_FRAME) {
+                    assertEquals(frames, capture.timestampNanos());
+                    assertEquals(frames, capture.luma().get(0));
+                    frames++;
+                } else {
+                    assertEquals(2, capture.text().lineCount());
+                    texts++;
+                }
+            }
+        }
+        assertEquals(10, frames);
+        assertEquals(10, texts);
+    }
+
+    @Test
+    public void unfinishedRecording_readsUpToLastCompleteRecord() throws IOException {
+        File file = folder.newFile();
+        SessionRecorder recorder = new SessionRecorder(file, 1 << 16);
+        recorder.recordTargets(Collections.singletonList("alpha"), Collections.<String>emptyList());
+        recorder.recordText(5, ViewTransform.IDENTITY, text());
+        long size = recorder.size();
+        // Never closed, as if the app died: the file still has the zeroed rest of the region.
+        assertTrue(file.length() > size);
+
+        try (SessionCapture capture = SessionCapture.open(file)) {
+            assertTrue(capture.next());
+            assertTrue(capture.next());
+            assertEquals(5, capture.timestampNanos());
+            assertFalse(capture.next());
+        }
+        recorder.close();
+        assertEquals(size, file.length());
+    }
+
+    @Test(expected = IOException.class)
+    public void otherFiles_areRejected() throws IOException {
+        File file = folder.newFile();
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.writeLong(42);
+        }
+        SessionCapture.open(file);
+    }
+
+    @Test
+    public void copyOf_keepsLinesAndBoxes() {
+        CapturedText copy = CapturedText.copyOf(text());
+        assertEquals(2, copy.lineCount());
+        assertEquals(2, copy.elementCount(0));
+        assertEquals("limited", copy.elementText(1, 0));
+        float[] box = new float[4];
+        assertTrue(copy.elementBox(0, 0, box));
+        assertArrayEquals(new float[]{10, 10, 50, 30}, box, 0f);
+        assertFalse(copy.elementBox(1, 0, box));
+    }
+
+    static CapturedText text() {
+        return new CapturedText.Builder()
+                .beginLine("Alpha beta")
+                .addElement("Alpha", 10, 10, 50, 30)
+                .addElement("beta", 60, 10, 100, 30)
+                .beginLine("limited")
+                .addElement("limited")
+                .build();
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,73 @@
+package com.text.recognition;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class SessionReplayTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replay_matchesRecordedTextsAgainstRecordedTargets() throws IOException {
+        File file = folder.newFile();
+        ViewTransform transform = ViewTransform.scaleTranslate(2, 0, 0);
+        try (SessionRecorder recorder = new SessionRecorder(file)) {
+            // Matched before any targets are known: nothing.
+            recorder.recordText(0, transform, SessionCaptureTest.text());
+            recorder.recordTargets(Arrays.asList("beta", "limited"), Collections.<String>emptyList());
+            recorder.recordFrame(250_000_000L, 0, 2, 2, new byte[6], false);
+            recorder.recordText(250_000_000L, transform, SessionCaptureTest.text());
+            recorder.recordTargets(Collections.singletonList("alpha"), Collections.singletonList("alpha beta"));
+            recorder.recordText(500_000_000L, transform, SessionCaptureTest.text());
+        }
+
+        SessionReplay.Report report = SessionReplay.replay(file);
+        assertEquals(2, report.getTargetChanges());
+        assertEquals(1, report.getFrames());
+        assertEquals(3, report.getTexts());
+        // "beta" only: "limited" has no box. Then the phrase "Alpha beta" as one box.
+        assertEquals(2, report.getHighlights());
+        assertEquals(2, report.getBoxes());
+        assertEquals(3, report.getTextLatency().getCount());
+        assertTrue(report.toString(), report.toString().startsWith("3 texts"));
+    }
+
+    @Test
+    public void replay_isDeterministic() throws IOException {
+        File file = folder.newFile();
+        try (SessionRecorder recorder = new SessionRecorder(file)) {
+            recorder.recordTargets(Arrays.asList("alpha", "beta"), Collections.<String>emptyList());
+            for (int i = 0; i < 20; i++) {
+                CapturedText text = new CapturedText.Builder()
+                        .beginLine("Alpha beta")
+                        .addElement("Alpha", 10 + i, 10, 50 + i, 30)
+                        .addElement("beta", 60 + i, 10, 100 + i, 30)
+                        .build();
+                recorder.recordText(i * 100_000_000L, ViewTransform.IDENTITY, text);
+            }
+        }
+
+        long checksum = SessionReplay.replay(file).getChecksum();
+        assertEquals(checksum, SessionReplay.replay(file).getChecksum());
+    }
+
+    @Test
+    public void extractor_highlightsCapturedText() {
+        HighlightExtractor extractor = new HighlightExtractor(TargetMatcher.compile("beta"));
+        HighlightResult result = extractor.extract(SessionCaptureTest.text(), ViewTransform.scaleTranslate(2, 5, 0));
+
+        assertEquals(1, result.size());
+        assertEquals(0, result.targetId(0));
+        assertEquals(125f, result.left(0), 0f);
+        assertEquals(205f, result.right(0), 0f);
+    }
+}
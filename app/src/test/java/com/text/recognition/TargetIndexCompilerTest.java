@@ -0,0 +1,41 @@
+package com.text.recognition;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class TargetIndexCompilerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void compiledIndex_matchesLikeCompiledTargets() throws IOException {
+        File source = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(source)) {
+            out.write("NATIONAL\n\nIndustries\r\nLIMITED\nK\u00d6LN".getBytes(SessionRecorder.UTF_8));
+        }
+        File index = folder.newFile();
+        TargetIndexCompiler.compile(source, index);
+
+        TargetMatcher matcher = TargetMatcher.forIndex(FuzzyIndex.map(index));
+        assertEquals(5, matcher.targetCount());
+        // Ids are line numbers, and targets are known normalized only.
+        assertEquals("industries", matcher.target(2));
+        assertEquals("koln", matcher.target(4));
+        assertEquals(0, matcher.match("NATI0NAL"));
+        assertEquals(2, matcher.match("lndustries"));
+        assertEquals(4, matcher.match("Koln"));
+        assertEquals(TargetMatcher.NO_MATCH, matcher.match("unrelated"));
+
+        assertEquals(3, matcher.matchExactly("Limited"));
+        assertEquals(TargetMatcher.NO_MATCH, matcher.matchExactly("Limite"));
+        assertEquals(TargetMatcher.NO_MATCH, matcher.matchExactly(""));
+    }
+}
@@ -0,0 +1,146 @@
+package com.text.recognition;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks {@link TargetMatcher} against the plain similarity of {@link Similarity}, with which its
+ * bounded distance has to agree on every token it matches or rejects.
+ */
+public class TargetMatcherTest {
+
+    private static final String ALPHABET = "abcdefghij0123-";
+
+    @Test
+    public void exactToken_matchesItsTarget() {
+        TargetMatcher matcher = TargetMatcher.compile("national", "industries", "limited");
+        assertEquals(1, matcher.match("industries"));
+        assertEquals(2, matcher.match("limited"));
+    }
+
+    @Test
+    public void similarityCutoff_isStrict() {
+        // 10 chars: up to 4 edits keep the similarity above one half, 5 bring it down to it.
+        TargetMatcher matcher = TargetMatcher.compile("industries");
+        assertEquals(0, matcher.match("indxxxxies"));
+        assertEquals(TargetMatcher.NO_MATCH, matcher.match("inxxxxxies"));
+        // 7 chars, where one half falls between 3 and 4 edits.
+        matcher = TargetMatcher.compile("limited");
+        assertEquals(0, matcher.match("lixxxed"));
+        assertEquals(TargetMatcher.NO_MATCH, matcher.match("lxxxxed"));
+        // Length differences count as edits too.
+        assertEquals(0, matcher.match("limi"));
+        assertEquals(TargetMatcher.NO_MATCH, matcher.match("lim"));
+    }
+
+    @Test
+    public void caseAccentsAndPunctuation_areFolded() {
+        TargetMatcher matcher = TargetMatcher.compile("K\u00f6ln", "O'Neil", "AB-12");
+        assertEquals(0, matcher.match("KOLN"));
+        assertEquals(1, matcher.match("o\u2019neil"));
+        assertEquals(2, matcher.match("\uff41\uff42-12"));
+        assertEquals(2, matcher.match("ab\u201312"));
+    }
+
+    @Test
+    public void emptyTokensAndTargets_neverMatch() {
+        TargetMatcher matcher = TargetMatcher.compile("", "a");
+        assertEquals(TargetMatcher.NO_MATCH, matcher.match(""));
+        assertEquals(TargetMatcher.NO_MATCH, matcher.matchNormalized(new char[4], 2, 0));
+        assertEquals(1, matcher.match("A"));
+        assertEquals(TargetMatcher.NO_MATCH, matcher.matchExactly(""));
+    }
+
+    @Test
+    public void bruteForce_agreesWithSimilarity() {
+        Random random = new Random(1);
+        for (int round = 0; round < 200; round++) {
+            List<String> targets = randomWords(random, 1 + random.nextInt(20));
+            TargetMatcher matcher = TargetMatcher.compile(targets);
+            for (int i = 0; i < 50; i++) {
+                String token = random.nextBoolean()
+                        ? edit(targets.get(random.nextInt(targets.size())), random, 4)
+                        : randomWord(random);
+                int expected = TargetMatcher.NO_MATCH;
+                double best = TargetMatcher.MIN_SIMILARITY;
+                for (int id = 0; id < targets.size(); id++) {
+                    double similarity = Similarity.similarity(targets.get(id), token);
+                    if (similarity > best) {
+                        best = similarity;
+                        expected = id;
+                    }
+                }
+                assertEquals(targets + " / " + token, expected, matcher.match(token));
+            }
+        }
+    }
+
+    @Test
+    public void index_agreesWithBruteForceWithinItsEditDistance() {
+        Random random = new Random(2);
+        List<String> targets = randomWords(random, TargetMatcher.INDEX_THRESHOLD);
+        TargetMatcher bruteForce = TargetMatcher.compile(targets);
+        TargetMatcher indexed = TargetMatcher.forIndex(FuzzyIndex.build(targets));
+        for (int i = 0; i < 5000; i++) {
+            String token = edit(targets.get(random.nextInt(targets.size())), random,
+                    FuzzyIndex.DEFAULT_MAX_EDIT_DISTANCE);
+            int expected = bruteForce.match(token);
+            int actual = indexed.match(token);
+            if (expected == TargetMatcher.NO_MATCH
+                    || Similarity.editDistance(targets.get(expected), token)
+                    > FuzzyIndex.DEFAULT_MAX_EDIT_DISTANCE) {
+                // The index only looks that far; whatever it finds still has to be similar enough.
+                assertTrue(token, actual == TargetMatcher.NO_MATCH
+                        || Similarity.similarity(targets.get(actual), token)
+                        > TargetMatcher.MIN_SIMILARITY);
+                continue;
+            }
+            // Equally similar targets may tie; the two only have to find one of them.
+            assertNotEquals(token, TargetMatcher.NO_MATCH, actual);
+            assertEquals(token, Similarity.similarity(targets.get(expected), token),
+                    Similarity.similarity(targets.get(actual), token), 0.0);
+        }
+    }
+
+    private static List<String> randomWords(Random random, int count) {
+        List<String> words = new ArrayList<>(count);
+        while (words.size() < count) {
+            String word = randomWord(random);
+            if (!words.contains(word)) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 3 + random.nextInt(10); i > 0; i--) {
+            word.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return word.toString();
+    }
+
+    /** Applies up to {@code maxEdits} random substitutions, insertions and deletions. */
+    private static String edit(String word, Random random, int maxEdits) {
+        StringBuilder edited = new StringBuilder(word);
+        for (int i = random.nextInt(maxEdits + 1); i > 0; i--) {
+            int at = random.nextInt(edited.length() + 1);
+            char c = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            int kind = random.nextInt(3);
+            if (kind == 0 && at < edited.length()) {
+                edited.setCharAt(at, c);
+            } else if (kind == 1 && at < edited.length() && edited.length() > 1) {
+                edited.deleteCharAt(at);
+            } else {
+                edited.insert(at, c);
+            }
+        }
+        return edited.toString();
+    }
+}
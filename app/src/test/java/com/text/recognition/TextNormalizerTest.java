@@ -0,0 +1,54 @@
+package com.text.recognition;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class TextNormalizerTest {
+
+    @Test
+    public void fold_lowerCasesAndStripsAccents() {
+        assertEquals("cafe creme", TextNormalizer.fold("Caf\u00e9 CR\u00c8ME"));
+        assertEquals("aeiouncy", TextNormalizer.fold("\u00c4\u00e9\u00ee\u00f5\u00fa\u00f1\u00e7\u00fd"));
+        assertEquals("olsdi", TextNormalizer.fold("\u00d8\u0141\u015a\u0111\u0130"));
+        // Letters without a single base letter are only lower-cased.
+        assertEquals("\u00df\u00e6", TextNormalizer.fold("\u00df\u00c6"));
+    }
+
+    @Test
+    public void fold_mapsLookalikesAndFullwidthForms() {
+        // Cyrillic and Greek capitals that look like POCT and KO.
+        assertEquals("poct", TextNormalizer.fold("\u0420\u041e\u0421\u0422"));
+        assertEquals("ko", TextNormalizer.fold("\u039a\u039f"));
+        assertEquals("pn4711", TextNormalizer.fold("\uff30\uff2e\uff14\uff17\uff11\uff11"));
+        assertEquals("'it's'", TextNormalizer.fold("\u2018it\u2019s\u2019"));
+        // Other scripts are left alone but for case.
+        assertEquals("\u0434\u0436", TextNormalizer.fold("\u0414\u0416"));
+    }
+
+    @Test
+    public void fold_keepsLength() {
+        String text = "A\u2013B\u00a0c";
+        assertEquals(text.length(), TextNormalizer.fold(text).length());
+        assertEquals("a-b c", TextNormalizer.fold(text));
+    }
+
+    @Test
+    public void normalize_collapsesSeparatorsOfAnyKind() {
+        assertEquals("ab 12345 c", TextNormalizer.normalize("  AB--12345 \n C- "));
+        assertEquals("well known", TextNormalizer.normalize("Well\u2011known"));
+        assertEquals("a b", TextNormalizer.normalize("a\u00a0\u2014\u3000b"));
+        assertEquals("", TextNormalizer.normalize(" \u2013 "));
+    }
+
+    @Test
+    public void words_splitsAtSeparatorsAndKeepsCase() {
+        assertEquals(Arrays.asList("NATIONAL", "INDUSTRIES", "LIMITED"),
+                TextNormalizer.words("NATIONAL INDUSTRIES-LIMITED"));
+        assertEquals(Arrays.asList("a", "b"), TextNormalizer.words("\n a \u2014 b-"));
+        assertEquals(Collections.emptyList(), TextNormalizer.words(" - "));
+    }
+}
@@ -0,0 +1,151 @@
+package com.text.recognition;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TileMergerTest {
+
+    private static final float EPSILON = 1e-3f;
+
+    @Test
+    public void layout_coversFrameWithOverlappingEvenTiles() {
+        TileMerger merger = new TileMerger(512, 64);
+        assertEquals(6, merger.layout(1000, 600, 0));
+        for (int tile = 0; tile < 6; tile++) {
+            assertEquals(0, merger.tileLeft(tile) % 2);
+            assertEquals(0, merger.tileTop(tile) % 2);
+            assertEquals(0, merger.tileWidth(tile) % 2);
+            assertEquals(0, merger.tileHeight(tile) % 2);
+            assertTrue(merger.tileWidth(tile) <= 512);
+            assertTrue(merger.tileHeight(tile) <= 512);
+        }
+        // Three columns and two rows, in row order.
+        assertEquals(0, merger.tileLeft(0));
+        assertEquals(1000, merger.tileLeft(2) + merger.tileWidth(2));
+        assertEquals(600, merger.tileTop(5) + merger.tileHeight(5));
+        assertTrue(merger.tileLeft(0) + merger.tileWidth(0) - merger.tileLeft(1) >= 62);
+        assertTrue(merger.tileLeft(1) + merger.tileWidth(1) - merger.tileLeft(2) >= 62);
+        assertTrue(merger.tileTop(0) + merger.tileHeight(0) - merger.tileTop(3) >= 62);
+    }
+
+    @Test
+    public void layout_smallFrameIsOneTile() {
+        TileMerger merger = new TileMerger(512, 64);
+        assertFalse(merger.needsTiles(512, 384));
+        assertTrue(merger.needsTiles(640, 480));
+        assertEquals(1, merger.layout(512, 384, 90));
+        assertEquals(0, merger.tileLeft(0));
+        assertEquals(512, merger.tileWidth(0));
+        assertEquals(384, merger.tileHeight(0));
+    }
+
+    @Test
+    public void merge_dedupesWordsInTheOverlap() {
+        // Tiles 0-464 and 336-800.
+        TileMerger merger = new TileMerger(512, 128);
+        assertEquals(2, merger.layout(800, 200, 0));
+        assertEquals(336, merger.tileLeft(1));
+
+        merger.addTile(0, new CapturedText.Builder()
+                .beginLine("NATIONAL INDUSTRIES LI")
+                .addElement("NATIONAL", 100, 50, 250, 80)
+                .addElement("INDUSTRIES", 345, 50, 435, 80)
+                // Cut off by the tile's right edge.
+                .addElement("LI", 445, 50, 463, 80)
+                .build());
+        merger.addTile(1, new CapturedText.Builder()
+                .beginLine("INDUSTRIES LIMITED")
+                .addElement("INDUSTRIES", 10, 51, 100, 81)
+                .addElement("LIMITED", 109, 50, 249, 80)
+                .build());
+
+        CapturedText merged = merger.merge();
+        assertEquals(2, merged.lineCount());
+        assertEquals("NATIONAL INDUSTRIES", merged.lineText(0));
+        assertEquals(2, merged.elementCount(0));
+        assertBox(merged, 0, 1, 345, 50, 435, 80);
+        assertEquals("LIMITED", merged.lineText(1));
+        assertBox(merged, 1, 0, 445, 50, 585, 80);
+    }
+
+    @Test
+    public void merge_keepsSameTextElsewhereAndOtherTextInPlace() {
+        TileMerger merger = new TileMerger(512, 128);
+        merger.layout(800, 200, 0);
+        merger.addTile(0, new CapturedText.Builder()
+                .beginLine("42 INDUSTRIES")
+                .addElement("42", 10, 10, 40, 30)
+                .addElement("INDUSTRIES", 350, 50, 450, 80)
+                .build());
+        merger.addTile(1, new CapturedText.Builder()
+                .beginLine("INDUSTRLES 42")
+                .addElement("INDUSTRLES", 14, 50, 114, 80)
+                .addElement("42", 300, 10, 330, 30)
+                .build());
+
+        CapturedText merged = merger.merge();
+        assertEquals(2, merged.lineCount());
+        assertEquals("42 INDUSTRIES", merged.lineText(0));
+        assertEquals("INDUSTRLES 42", merged.lineText(1));
+        assertBox(merged, 1, 1, 636, 10, 666, 30);
+    }
+
+    @Test
+    public void merge_mapsRotatedTilesIntoTheUprightFrame() {
+        // Upright, the frame is 200 wide and 800 high; buffer x runs down the upright frame.
+        TileMerger merger = new TileMerger(512, 128);
+        merger.layout(800, 200, 90);
+        merger.addTile(1, wordAt(10, 20, 50, 60));
+        assertBox(merger.merge(), 0, 0, 10, 356, 50, 396);
+
+        // Buffer x runs up the upright frame, so the second tile is at the top.
+        merger.layout(800, 200, 270);
+        merger.addTile(0, wordAt(10, 20, 50, 60));
+        merger.addTile(1, wordAt(10, 20, 50, 60));
+        CapturedText merged = merger.merge();
+        assertBox(merged, 0, 0, 10, 356, 50, 396);
+        assertBox(merged, 1, 0, 10, 20, 50, 60);
+
+        merger.layout(800, 200, 180);
+        merger.addTile(0, wordAt(10, 20, 50, 60));
+        assertBox(merger.merge(), 0, 0, 346, 20, 386, 60);
+    }
+
+    @Test
+    public void merge_leavesOutWordsWithoutBoxes() {
+        TileMerger merger = new TileMerger(512, 128);
+        merger.layout(800, 200, 0);
+        merger.addTile(0, new CapturedText.Builder()
+                .beginLine("label")
+                .addElement("label")
+                .beginLine("part no")
+                .addElement("part", 10, 10, 50, 30)
+                .addElement("no")
+                .build());
+        CapturedText merged = merger.merge();
+        assertEquals(1, merged.lineCount());
+        assertEquals("part", merged.lineText(0));
+
+        // Laying out again starts over.
+        merger.layout(800, 200, 0);
+        assertEquals(0, merger.merge().lineCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void overlapMustLeaveRoomForTheTile() {
+        new TileMerger(128, 64);
+    }
+
+    private static CapturedText wordAt(float left, float top, float right, float bottom) {
+        return new CapturedText.Builder().beginLine("word").addElement("word", left, top, right, bottom)
+                .build();
+    }
+
+    private static void assertBox(RecognizedText text, int line, int element,
+                                  float left, float top, float right, float bottom) {
+        float[] box = new float[4];
+        assertTrue(text.elementBox(line, element, box));
+        assertArrayEquals(new float[]{left, top, right, bottom}, box, EPSILON);
+    }
+}
@@ -0,0 +1,82 @@
+package com.text.recognition;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ViewTransformTest {
+
+    private static final float EPSILON = 1e-4f;
+
+    @Test
+    public void rotation_turnsImageUpright() {
+        // Corner (0, 0) of a 640x480 buffer and the pixel right of it, for each rotation.
+        assertPoint(ViewTransform.rotation(0, 640, 480), 10, 0, 10, 0);
+        assertPoint(ViewTransform.rotation(90, 640, 480), 10, 0, 480, 10);
+        assertPoint(ViewTransform.rotation(180, 640, 480), 10, 0, 630, 480);
+        assertPoint(ViewTransform.rotation(270, 640, 480), 10, 0, 0, 630);
+        assertPoint(ViewTransform.rotation(-90, 640, 480), 10, 0, 0, 630);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rotation_rejectsOddAngles() {
+        ViewTransform.rotation(45, 640, 480);
+    }
+
+    @Test
+    public void then_appliesThisFirst() {
+        ViewTransform transform = ViewTransform.rotation(90, 640, 480)
+                .then(ViewTransform.scaleTranslate(2, 5, 7));
+        assertPoint(transform, 10, 20, (480 - 20) * 2 + 5, 10 * 2 + 7);
+    }
+
+    @Test
+    public void mirrored_flipsHorizontally() {
+        ViewTransform transform = ViewTransform.scaleTranslate(2, 10, 0).mirrored(1000);
+        assertPoint(transform, 5, 3, 1000 - 20, 6);
+    }
+
+    @Test
+    public void mapRects_keepsRectanglesSorted() {
+        float[] rects = {0, 0, 1, 1, 10, 20, 30, 60};
+        ViewTransform.rotation(90, 640, 480).mapRects(rects, 4, 1);
+
+        assertArrayEquals(new float[]{0, 0, 1, 1, 420, 10, 460, 30}, rects, EPSILON);
+    }
+
+    @Test
+    public void mapRects_matchesMapPoints() {
+        ViewTransform transform = ViewTransform.rotation(270, 640, 480)
+                .then(ViewTransform.scaleTranslate(1.5f, -12, 40))
+                .mirrored(720);
+        float[] rects = {10, 20, 30, 60, 100, 5, 140, 9};
+        float[] corners = {10, 20, 30, 60, 100, 5, 140, 9};
+        transform.mapRects(rects, 0, 2);
+        transform.mapPoints(corners, 0, 4);
+
+        for (int i = 0; i < 2; i++) {
+            int offset = i * 4;
+            assertEquals(Math.min(corners[offset], corners[offset + 2]), rects[offset], EPSILON);
+            assertEquals(Math.min(corners[offset + 1], corners[offset + 3]), rects[offset + 1], EPSILON);
+            assertEquals(Math.max(corners[offset], corners[offset + 2]), rects[offset + 2], EPSILON);
+            assertEquals(Math.max(corners[offset + 1], corners[offset + 3]), rects[offset + 3], EPSILON);
+        }
+    }
+
+    @Test
+    public void axisAlignedLengths() {
+        ViewTransform transform = ViewTransform.scaleTranslate(2.5f, 3, 4).mirrored(100);
+        assertTrue(transform.isAxisAligned());
+        assertEquals(25f, transform.mapLengthX(10), EPSILON);
+        assertEquals(25f, transform.mapLengthY(10), EPSILON);
+        assertFalse(ViewTransform.rotation(90, 4, 4).isAxisAligned());
+    }
+
+    private static void assertPoint(ViewTransform transform, float x, float y, float expectedX, float expectedY) {
+        assertEquals(expectedX, transform.mapX(x, y), EPSILON);
+        assertEquals(expectedY, transform.mapY(x, y), EPSILON);
+        float[] point = {x, y};
+        transform.mapPoints(point, 0, 1);
+        assertArrayEquals(new float[]{expectedX, expectedY}, point, EPSILON);
+    }
+}
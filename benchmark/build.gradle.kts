@@ -0,0 +1,57 @@
+// JMH benchmarks of the matching path, on a plain JVM without a device or the Android SDK:
+//   ./gradlew :benchmark:jmh
+// Results go to build/results/jmh/results.json; pass -Pjmh.includes=<regex> to run a subset.
+plugins {
+    id("java")
+    id("me.champeau.jmh")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+sourceSets {
+    main {
+        java {
+            // The app's plain Java classes; the ones that need the Android SDK are left out.
+            srcDir("../app/src/main/java")
+            exclude(
+                "com/text/recognition/CameraSource.java",
+                "com/text/recognition/GraphicOverlay.java",
+                "com/text/recognition/MainActivity.java",
+                "com/text/recognition/MlKitText.java",
+                "com/text/recognition/RecognitionPipeline.java",
+                "com/text/recognition/TextGraphic.java",
+            )
+        }
+    }
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    // Throughput for ops/s, sampling for latency percentiles, and the gc profiler for allocations.
+    benchmarkMode.set(listOf("thrpt", "sample"))
+    profilers.add("gc")
+    timeUnit.set("ms")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+    project.findProperty("jmh.includes")?.let { includes.add(it.toString()) }
+}
+
+tasks.register<JavaExec>("replay") {
+    description = "Replays session captures: ./gradlew :benchmark:replay -Pcapture=<file>[,<file>...]"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.text.recognition.SessionReplay")
+    args((project.findProperty("capture") ?: "").toString().split(",").filter { it.isNotEmpty() })
+}
+
+tasks.register<JavaExec>("compileTargets") {
+    description = "Compiles a target list into an index file for the app: " +
+        "./gradlew :benchmark:compileTargets -Ptargets=<list> -Pindex=<file>"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.text.recognition.TargetIndexCompiler")
+    args(listOf("targets", "index").mapNotNull { project.findProperty(it)?.toString() })
+}
@@ -0,0 +1,92 @@
+package com.text.recognition;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collections;
+
+/**
+ * Cost of turning one recognized page into highlight boxes in view coordinates, for pages of 10 to
+ * 10,000 words and 1 to 10,000 targets.
+ *
+ * <p>{@link #legacyOnDraw} is the matching loop that {@code GraphicOverlay.onDraw} ran on every
+ * draw before it moved off the UI thread: every target against every word of every line, with
+ * {@link Similarity#similarity}, and every hit mapped and copied into a new rectangle. {@link
+ * #extract} runs {@link HighlightExtractor}, which replaced it, over the same page. {@link
+ * #tokenize} is the regex line splitting the legacy loop starts with, {@link #normalizeTokens} the
+ * single pass over the elements that replaced it in {@link HighlightExtractor}.
+ *
+ * <p>The legacy loop is quadratic and takes seconds per page at the largest sizes; select
+ * benchmarks and sizes with {@code -Pjmh.includes} when iterating.
+ */
+@State(Scope.Thread)
+public class OverlayMatchingBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int elementCount;
+
+    @Param({"1", "10", "100", "1000", "10000"})
+    public int targetCount;
+
+    private SyntheticText text;
+    private String[] lowerCaseTargets;
+    private HighlightExtractor highlightExtractor;
+    private final FrameTokens tokens = new FrameTokens();
+    private final ViewTransform imageToView = ViewTransform.rotation(90, 1280, 960)
+            .then(ViewTransform.scaleTranslate(1.125f, -40, 0));
+
+    @Setup
+    public void setUp() {
+        text = SyntheticText.generate(elementCount, targetCount, 7);
+        lowerCaseTargets = new String[targetCount];
+        for (int i = 0; i < targetCount; i++) {
+            lowerCaseTargets[i] = text.targets.get(i).toLowerCase();
+        }
+        StringBuilder phrase = new StringBuilder();
+        for (int i = 0; i < Math.min(3, targetCount); i++) {
+            phrase.append(i > 0 ? " " : "").append(text.targets.get(i));
+        }
+        highlightExtractor = new HighlightExtractor(TargetMatcher.compile(text.targets),
+                PhraseMatcher.compile(Collections.singletonList(phrase.toString())));
+    }
+
+    @Benchmark
+    public void legacyOnDraw(Blackhole blackhole) {
+        for (String target : lowerCaseTargets) {
+            for (int line = 0; line < text.lineTexts.length; line++) {
+                String lineText = text.lineTexts[line].toLowerCase();
+                String[] words = lineText.split("[-\n\\s]+");
+                float[] boxes = text.elementBoxes[line];
+                for (int i = 0; i < words.length; i++) {
+                    String word = words[i].trim();
+                    if (!word.isEmpty() && Similarity.similarity(words[i].toLowerCase(), target) > 0.5) {
+                        float[] rect = {boxes[i * 4], boxes[i * 4 + 1], boxes[i * 4 + 2], boxes[i * 4 + 3]};
+                        imageToView.mapRects(rect, 0, 1);
+                        blackhole.consume(rect);
+                    }
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public HighlightResult extract() {
+        return highlightExtractor.extract(text, imageToView);
+    }
+
+    @Benchmark
+    public void tokenize(Blackhole blackhole) {
+        for (String lineText : text.lineTexts) {
+            blackhole.consume(lineText.split("[-\n\\s]+"));
+        }
+    }
+
+    @Benchmark
+    public FrameTokens normalizeTokens() {
+        return tokens.reset(text);
+    }
+}
@@ -0,0 +1,80 @@
+package com.text.recognition;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of comparing one recognized word with one target: the original {@link Similarity}
+ * functions against the compiled {@link MyersEditDistance} engine that {@link TargetMatcher} uses.
+ * Each invocation compares the next pair from a fixed pool, so branch predictors do not learn a
+ * single pair.
+ */
+@State(Scope.Thread)
+public class SimilarityBenchmark {
+
+    private static final int PAIRS = 1024;
+
+    @Param({"1", "10", "10000"})
+    public int targetCount;
+
+    private String[] words;
+    private String[] targets;
+    private MyersEditDistance[] engines;
+    private char[][] wordChars;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SyntheticText text = SyntheticText.generate(PAIRS, targetCount, 42);
+        words = new String[PAIRS];
+        targets = new String[PAIRS];
+        engines = new MyersEditDistance[PAIRS];
+        wordChars = new char[PAIRS][];
+        int i = 0;
+        for (String[] line : text.elementTexts) {
+            for (String word : line) {
+                words[i] = word.toLowerCase();
+                targets[i] = text.targets.get(i % targetCount);
+                engines[i] = new MyersEditDistance(targets[i]);
+                wordChars[i] = words[i].toCharArray();
+                i++;
+            }
+        }
+    }
+
+    private int nextPair() {
+        int pair = next;
+        next = (pair + 1) & (PAIRS - 1);
+        return pair;
+    }
+
+    @Benchmark
+    public double similarity() {
+        int pair = nextPair();
+        return Similarity.similarity(words[pair], targets[pair]);
+    }
+
+    @Benchmark
+    public double calculateSimilarity() {
+        int pair = nextPair();
+        return Similarity.calculateSimilarity(words[pair], targets[pair]);
+    }
+
+    @Benchmark
+    public int editDistance() {
+        int pair = nextPair();
+        return Similarity.editDistance(words[pair], targets[pair]);
+    }
+
+    /** Bounded like {@link TargetMatcher}: at most half the longer length, the 0.5 cutoff. */
+    @Benchmark
+    public int myersBounded() {
+        int pair = nextPair();
+        char[] word = wordChars[pair];
+        int longer = Math.max(word.length, targets[pair].length());
+        return engines[pair].distance(word, 0, word.length, longer / 2);
+    }
+}
@@ -0,0 +1,141 @@
+package com.text.recognition;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A recognized page of lines of words, each word with its bounding box in image coordinates.
+ * Words are made-up names built from syllables, some of which are targets, misspelled now and then
+ * like OCR output.
+ */
+final class SyntheticText implements RecognizedText {
+
+    static final int WORDS_PER_LINE = 8;
+    /** Share of the words that are (possibly misspelled) targets. */
+    private static final double TARGET_SHARE = 0.1;
+    private static final String[] SYLLABLES = {
+            "an", "ber", "cor", "dal", "en", "fis", "gar", "hol", "in", "jor", "kan", "lem", "mor",
+            "nat", "or", "pel", "quin", "ros", "sta", "tur", "ul", "ven", "wil", "xan", "yor", "zet"
+    };
+
+    /** Each line's text, as {@code Text.Line.getText()} returns it. */
+    final String[] lineTexts;
+    /** Each line's words, as its elements' {@code getText()}. */
+    final String[][] elementTexts;
+    /** Each line's element boxes, packed as {@code left, top, right, bottom}. */
+    final float[][] elementBoxes;
+    final List<String> targets;
+
+    private SyntheticText(String[] lineTexts, String[][] elementTexts, float[][] elementBoxes,
+                          List<String> targets) {
+        this.lineTexts = lineTexts;
+        this.elementTexts = elementTexts;
+        this.elementBoxes = elementBoxes;
+        this.targets = targets;
+    }
+
+    /** Returns a page of {@code elementCount} words and {@code targetCount} distinct targets. */
+    static SyntheticText generate(int elementCount, int targetCount, long seed) {
+        Random random = new Random(seed);
+        List<String> vocabulary = vocabulary(targetCount + Math.max(elementCount, 1000), random);
+        List<String> targets = new ArrayList<>(vocabulary.subList(0, targetCount));
+        List<String> others = vocabulary.subList(targetCount, vocabulary.size());
+
+        int lineCount = (elementCount + WORDS_PER_LINE - 1) / WORDS_PER_LINE;
+        String[] lineTexts = new String[lineCount];
+        String[][] elementTexts = new String[lineCount][];
+        float[][] elementBoxes = new float[lineCount][];
+        for (int line = 0; line < lineCount; line++) {
+            int words = Math.min(WORDS_PER_LINE, elementCount - line * WORDS_PER_LINE);
+            elementTexts[line] = new String[words];
+            elementBoxes[line] = new float[words * 4];
+            StringBuilder lineText = new StringBuilder();
+            float x = 10;
+            float y = 10 + line * 40;
+            for (int i = 0; i < words; i++) {
+                String word;
+                if (!targets.isEmpty() && random.nextDouble() < TARGET_SHARE) {
+                    word = targets.get(random.nextInt(targets.size()));
+                    if (random.nextBoolean()) {
+                        word = misspell(word, random);
+                    }
+                    if (random.nextBoolean()) {
+                        word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+                    }
+                } else {
+                    word = others.get(random.nextInt(others.size()));
+                }
+                elementTexts[line][i] = word;
+                float width = word.length() * 14;
+                float[] boxes = elementBoxes[line];
+                boxes[i * 4] = x;
+                boxes[i * 4 + 1] = y;
+                boxes[i * 4 + 2] = x + width;
+                boxes[i * 4 + 3] = y + 30;
+                x += width + 12;
+                if (i > 0) {
+                    lineText.append(' ');
+                }
+                lineText.append(word);
+            }
+            lineTexts[line] = lineText.toString();
+        }
+        return new SyntheticText(lineTexts, elementTexts, elementBoxes, targets);
+    }
+
+    @Override
+    public int lineCount() {
+        return lineTexts.length;
+    }
+
+    @Override
+    public String lineText(int line) {
+        return lineTexts[line];
+    }
+
+    @Override
+    public int elementCount(int line) {
+        return elementTexts[line].length;
+    }
+
+    @Override
+    public String elementText(int line, int element) {
+        return elementTexts[line][element];
+    }
+
+    @Override
+    public boolean elementBox(int line, int element, float[] out) {
+        System.arraycopy(elementBoxes[line], element * 4, out, 0, 4);
+        return true;
+    }
+
+    private static List<String> vocabulary(int size, Random random) {
+        Set<String> words = new LinkedHashSet<>();
+        while (words.size() < size) {
+            // Up to five syllables, for the million distinct words of the largest target sets.
+            int syllables = 2 + random.nextInt(4);
+            StringBuilder word = new StringBuilder();
+            for (int i = 0; i < syllables; i++) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            words.add(word.toString());
+        }
+        return new ArrayList<>(words);
+    }
+
+    /** Replaces, drops or doubles one letter, the usual OCR mistakes. */
+    private static String misspell(String word, Random random) {
+        int at = random.nextInt(word.length());
+        switch (random.nextInt(3)) {
+            case 0:
+                return word.substring(0, at) + (char) ('a' + random.nextInt(26)) + word.substring(at + 1);
+            case 1:
+                return word.substring(0, at) + word.substring(at + 1);
+            default:
+                return word.substring(0, at + 1) + word.substring(at);
+        }
+    }
+}
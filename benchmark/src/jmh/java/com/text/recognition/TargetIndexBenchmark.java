@@ -0,0 +1,89 @@
+package com.text.recognition;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Cost of getting a large target dictionary ready to match, and of matching against it afterwards:
+ * {@link #build} indexes the targets as the app does when they are set, {@link #map} opens the
+ * same index compiled ahead of time by {@link TargetIndexCompiler}. {@link #searchBuilt} and
+ * {@link #searchMapped} look up the next word of a synthetic page in each. The table in {@link
+ * FuzzyIndex} comes from {@code build} and {@code searchBuilt} in average time mode, with {@code
+ * -Pjmh.includes="TargetIndexBenchmark.(build|searchBuilt)"}.
+ */
+@State(Scope.Thread)
+public class TargetIndexBenchmark {
+
+    private static final int WORDS = 1024;
+
+    @Param({"10000", "100000", "1000000"})
+    public int targetCount;
+
+    private SyntheticText text;
+    private File file;
+    private FuzzyIndex.Searcher built;
+    private FuzzyIndex.Searcher mapped;
+    private char[][] words;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        text = SyntheticText.generate(WORDS, targetCount, 11);
+        file = File.createTempFile("targets", ".idx");
+        FuzzyIndex index = TargetIndexCompiler.compile(text.targets);
+        index.writeTo(file);
+        // The index size of the table in FuzzyIndex.
+        System.out.println(String.format(Locale.US, "%d targets: index of %.1f MB", targetCount,
+                index.sizeBytes() / 1e6));
+        built = index.newSearcher();
+        mapped = FuzzyIndex.map(file).newSearcher();
+        words = new char[WORDS][];
+        int i = 0;
+        for (String[] line : text.elementTexts) {
+            for (String word : line) {
+                words[i++] = TargetMatcher.normalize(word).toCharArray();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    private char[] nextWord() {
+        int word = next;
+        next = (word + 1) & (WORDS - 1);
+        return words[word];
+    }
+
+    @Benchmark
+    public FuzzyIndex build() {
+        return TargetIndexCompiler.compile(text.targets);
+    }
+
+    @Benchmark
+    public FuzzyIndex map() throws IOException {
+        return FuzzyIndex.map(file);
+    }
+
+    @Benchmark
+    public int searchBuilt() {
+        char[] word = nextWord();
+        return built.search(word, word.length, TargetMatcher.MIN_SIMILARITY);
+    }
+
+    @Benchmark
+    public int searchMapped() {
+        char[] word = nextWord();
+        return mapped.search(word, word.length, TargetMatcher.MIN_SIMILARITY);
+    }
+}